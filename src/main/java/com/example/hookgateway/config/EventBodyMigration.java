@@ -0,0 +1,108 @@
+package com.example.hookgateway.config;
+
+import com.example.hookgateway.model.SchemaMigration;
+import com.example.hookgateway.repository.SchemaMigrationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * 启动时将旧版本 webhook_event 表中的大字段（headers、payload、delivery_details）迁移到 webhook_event_body。
+ * ddl-auto=update 不会删除旧列，因此升级后的库仍保留这些列：按 ID 区间分批迁移，每批单独提交并清空旧列，
+ * 全部完成后写入 schema_migration 记录，之后的启动只按主键查一次记录即跳过。
+ * 新建的库没有旧列，查询报错后同样写入记录。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EventBodyMigration implements CommandLineRunner {
+
+    private static final String NAME = "event-body";
+
+    private static final String LEGACY_CONDITION =
+            "(w.headers IS NOT NULL OR w.payload IS NOT NULL OR w.delivery_details IS NOT NULL)";
+
+    private static final String COPY_BODIES = "INSERT INTO webhook_event_body (event_id, received_at, headers, "
+            + "payload, delivery_details) SELECT w.id, w.received_at, w.headers, w.payload, w.delivery_details "
+            + "FROM webhook_event w WHERE w.id BETWEEN ? AND ? AND " + LEGACY_CONDITION
+            + " AND NOT EXISTS (SELECT 1 FROM webhook_event_body b WHERE b.event_id = w.id)";
+
+    private static final String CLEAR_LEGACY = "UPDATE webhook_event w SET headers = NULL, payload = NULL, "
+            + "delivery_details = NULL WHERE w.id BETWEEN ? AND ? AND " + LEGACY_CONDITION;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SchemaMigrationRepository migrationRepository;
+
+    // 每批迁移的事件 ID 区间长度
+    @Value("${app.migration.event-body.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * 迁移旧版本事件的大字段。
+     *
+     * @param args 启动参数
+     */
+    @Override
+    public void run(String... args) {
+        if (migrationRepository.existsById(NAME)) {
+            return;
+        }
+        Map<String, Object> range;
+        try {
+            // 探测旧列是否存在（不扫描数据），同时取 ID 范围
+            jdbcTemplate.queryForList("SELECT w.headers FROM webhook_event w WHERE 1 = 0");
+            range = jdbcTemplate.queryForMap("SELECT MIN(id) AS min_id, MAX(id) AS max_id FROM webhook_event");
+        } catch (BadSqlGrammarException e) {
+            // 没有旧列：新建的库，无需迁移
+            markCompleted();
+            return;
+        }
+
+        long migrated = 0;
+        if (range.get("min_id") != null) {
+            long minId = ((Number) range.get("min_id")).longValue();
+            long maxId = ((Number) range.get("max_id")).longValue();
+            int step = Math.max(1, batchSize);
+            for (long from = minId; from <= maxId; from += step) {
+                migrated += migrateRange(from, Math.min(maxId, from + step - 1));
+            }
+        }
+        markCompleted();
+        if (migrated > 0) {
+            log.info("[Migration] Moved headers/payload/details of {} legacy events to webhook_event_body", migrated);
+        }
+    }
+
+    /**
+     * 迁移一个 ID 区间，单独一个事务提交。多个节点同时迁移时，冲突的批次重试一次（已复制的行被 NOT EXISTS 排除）。
+     */
+    private int migrateRange(long from, long to) {
+        try {
+            return copyAndClear(from, to);
+        } catch (DuplicateKeyException e) {
+            return copyAndClear(from, to);
+        }
+    }
+
+    private int copyAndClear(long from, long to) {
+        return transactionTemplate.execute(tx -> {
+            int copied = jdbcTemplate.update(COPY_BODIES, from, to);
+            jdbcTemplate.update(CLEAR_LEGACY, from, to);
+            return copied;
+        });
+    }
+
+    private void markCompleted() {
+        migrationRepository.save(SchemaMigration.builder().name(NAME).completedAt(LocalDateTime.now()).build());
+    }
+}
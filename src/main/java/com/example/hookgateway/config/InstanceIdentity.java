@@ -0,0 +1,76 @@
+package com.example.hookgateway.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+
+/**
+ * 实例标识：为 Redis 消费组提供稳定的消费者名称。
+ * 同一实例重启后沿用相同名称，避免消费组中不断累积新的消费者。
+ * 优先级：app.instance.id > 环境变量 HOSTNAME > 本机主机名。
+ */
+@Component
+@Slf4j
+public class InstanceIdentity {
+
+    private final String instanceId;
+
+    public InstanceIdentity(@Value("${app.instance.id:}") String configuredId) {
+        this.instanceId = sanitize(resolve(configuredId));
+        log.info("[Instance] Using instance id: {}", instanceId);
+    }
+
+    /**
+     * 获取实例 ID。
+     *
+     * @return 实例 ID
+     */
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    /**
+     * 生成带角色前缀的消费者名称，例如 consumer-node1。
+     *
+     * @param prefix 角色前缀
+     * @return 消费者名称
+     */
+    public String consumerName(String prefix) {
+        return prefix + "-" + instanceId;
+    }
+
+    /**
+     * 按优先级解析实例 ID。
+     *
+     * @param configuredId 配置的实例 ID
+     * @return 原始实例 ID
+     */
+    private String resolve(String configuredId) {
+        if (configuredId != null && !configuredId.isBlank()) {
+            return configuredId;
+        }
+        String hostnameEnv = System.getenv("HOSTNAME");
+        if (hostnameEnv != null && !hostnameEnv.isBlank()) {
+            return hostnameEnv;
+        }
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            log.warn("[Instance] Failed to resolve hostname, falling back to 'default'", e);
+            return "default";
+        }
+    }
+
+    /**
+     * 仅保留安全字符，避免空白等字符进入 Redis 消费者名称。
+     *
+     * @param raw 原始 ID
+     * @return 清洗后的 ID
+     */
+    private String sanitize(String raw) {
+        String cleaned = raw.trim().replaceAll("[^A-Za-z0-9._:-]", "_");
+        return cleaned.length() > 64 ? cleaned.substring(0, 64) : cleaned;
+    }
+}
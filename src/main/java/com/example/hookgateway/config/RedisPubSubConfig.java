@@ -20,21 +20,38 @@ import org.springframework.stereotype.Component;
 @Slf4j
 public class RedisPubSubConfig {
 
+    // 旧版全量广播频道，保留订阅以兼容滚动升级期间的旧节点
     public static final String TUNNEL_CHANNEL = "tunnel:broadcast";
+    // 节点专属频道前缀，定向转发只发给持有隧道连接的节点
+    public static final String NODE_CHANNEL_PREFIX = "tunnel:node:";
+
+    /**
+     * 获取指定节点的专属频道名。
+     *
+     * @param nodeId 节点 ID
+     * @return 频道名
+     */
+    public static String nodeChannel(String nodeId) {
+        return NODE_CHANNEL_PREFIX + nodeId;
+    }
 
     /**
      * Redis 消息监听容器。
      *
      * @param connectionFactory Redis 连接工厂
      * @param listenerAdapter   监听适配器
+     * @param instanceIdentity  实例标识
      * @return 监听容器
      */
     @Bean
     public RedisMessageListenerContainer redisContainer(RedisConnectionFactory connectionFactory,
-                                                        MessageListenerAdapter listenerAdapter) {
+                                                        MessageListenerAdapter listenerAdapter,
+                                                        InstanceIdentity instanceIdentity) {
         RedisMessageListenerContainer container = new RedisMessageListenerContainer();
         container.setConnectionFactory(connectionFactory);
         container.addMessageListener(listenerAdapter, new ChannelTopic(TUNNEL_CHANNEL));
+        container.addMessageListener(listenerAdapter,
+                new ChannelTopic(nodeChannel(instanceIdentity.getInstanceId())));
         return container;
     }
 
@@ -22,20 +22,22 @@ public class RedisStreamConfig {
 
         public static final String STREAM_KEY = "webhook:stream";
         public static final String GROUP_NAME = "webhook-group";
-        // 动态生成消费者名称，支持多实例部署
-        public static final String CONSUMER_NAME = "consumer-" + java.util.UUID.randomUUID().toString().substring(0, 8);
+        // 消费者名称前缀，完整名称由 InstanceIdentity 生成（重启后保持不变）
+        public static final String CONSUMER_PREFIX = "consumer";
 
         /**
          * 创建并启动流消费监听容器。
          *
          * @param connectionFactory Redis 连接工厂
          * @param consumer          消费者
+         * @param instanceIdentity  实例标识
          * @return 监听容器
          */
         @Bean
         public StreamMessageListenerContainer<String, MapRecord<String, String, String>> streamMessageListenerContainer(
                         RedisConnectionFactory connectionFactory,
-                        com.example.hookgateway.service.WebhookStreamConsumer consumer) {
+                        com.example.hookgateway.service.WebhookStreamConsumer consumer,
+                        InstanceIdentity instanceIdentity) {
 
                 // 1. 初始化 Stream 与 Group（不存在则创建）
                 try {
@@ -56,7 +58,7 @@ public class RedisStreamConfig {
 
                 // 3. 注册监听器
                 container.receive(
-                                Consumer.from(GROUP_NAME, CONSUMER_NAME),
+                                Consumer.from(GROUP_NAME, instanceIdentity.consumerName(CONSUMER_PREFIX)),
                                 StreamOffset.create(STREAM_KEY, ReadOffset.lastConsumed()),
                                 consumer);
 
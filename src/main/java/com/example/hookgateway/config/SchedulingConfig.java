@@ -0,0 +1,43 @@
+package com.example.hookgateway.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.ThreadPoolTaskSchedulerBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * 定时任务线程池配置。
+ * 隧道的心跳、补发、额度回收与注册表刷新使用独立的调度线程，
+ * 不与清理、分区维护等可能长时间执行的任务共用线程，避免心跳被阻塞后误剔除全部隧道连接。
+ */
+@Configuration
+public class SchedulingConfig {
+
+    /**
+     * 默认调度线程池（@Scheduled 未指定 scheduler 时使用），大小由 spring.task.scheduling.pool.size 配置。
+     * 定义了其他 TaskScheduler 后 Spring Boot 不再自动创建默认线程池，因此在此显式声明。
+     *
+     * @param builder Spring Boot 按 spring.task.scheduling.* 配置好的构建器
+     * @return 调度器
+     */
+    @Bean(name = "taskScheduler")
+    public ThreadPoolTaskScheduler taskScheduler(ThreadPoolTaskSchedulerBuilder builder) {
+        return builder.build();
+    }
+
+    /**
+     * 隧道定时任务专用调度线程池。
+     *
+     * @param poolSize 线程数
+     * @return 调度器
+     */
+    @Bean(name = "tunnelTaskScheduler")
+    public ThreadPoolTaskScheduler tunnelTaskScheduler(@Value("${app.tunnel.scheduler.pool-size:2}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(Math.max(1, poolSize));
+        scheduler.setThreadNamePrefix("Tunnel-Scheduler-");
+        scheduler.setDaemon(true);
+        return scheduler;
+    }
+}
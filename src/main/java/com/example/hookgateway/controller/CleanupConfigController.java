@@ -1,12 +1,15 @@
 package com.example.hookgateway.controller;
 
 import com.example.hookgateway.model.CleanupConfig;
+import com.example.hookgateway.model.RetentionRule;
 import com.example.hookgateway.service.CleanupSchedulerService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 清理配置接口控制器。
@@ -16,6 +19,12 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class CleanupConfigController {
 
+    private static final Set<String> STATUSES = Set.of("RECEIVED", "PENDING", "SUCCESS", "PARTIAL_SUCCESS", "FAILED",
+            "NO_MATCH");
+
+    // 保留规则最长 10 年
+    private static final int MAX_RETENTION_HOURS = 87600;
+
     private final CleanupSchedulerService cleanupService;
 
     /**
@@ -47,6 +56,56 @@ public class CleanupConfigController {
         return ResponseEntity.ok(updated);
     }
 
+    /**
+     * 获取全部保留规则
+     */
+    @GetMapping("/rules")
+    public ResponseEntity<List<RetentionRule>> listRules() {
+        return ResponseEntity.ok(cleanupService.listRules());
+    }
+
+    /**
+     * 新增保留规则：source 与 status 至少指定一个
+     */
+    @PostMapping("/rules")
+    public ResponseEntity<RetentionRule> addRule(@RequestBody Map<String, Object> request) {
+        String source = (String) request.get("source");
+        String status = (String) request.get("status");
+        Integer retentionHours = (Integer) request.get("retentionHours");
+
+        if (source != null && source.isBlank()) {
+            source = null;
+        }
+        if (status != null && status.isBlank()) {
+            status = null;
+        }
+        if ((source == null && status == null) || retentionHours == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (status != null && !STATUSES.contains(status)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (retentionHours < 1 || retentionHours > MAX_RETENTION_HOURS) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (cleanupService.ruleExists(source, status)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(cleanupService.addRule(source, status, retentionHours));
+    }
+
+    /**
+     * 删除保留规则
+     */
+    @DeleteMapping("/rules/{id}")
+    public ResponseEntity<Void> deleteRule(@PathVariable Long id) {
+        if (!cleanupService.deleteRule(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+
     /**
      * 手动触发清理（用于测试）
      */
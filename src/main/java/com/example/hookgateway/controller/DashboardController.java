@@ -4,9 +4,11 @@ import com.example.hookgateway.model.Subscription;
 import com.example.hookgateway.model.WebhookEvent;
 import com.example.hookgateway.repository.SubscriptionRepository;
 import com.example.hookgateway.repository.WebhookEventRepository;
+import com.example.hookgateway.service.EventCountTracker;
+import com.example.hookgateway.service.EventSearchIndex;
+import com.example.hookgateway.service.WebhookEventStore;
 import jakarta.persistence.criteria.Predicate;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
@@ -16,8 +18,11 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -29,22 +34,33 @@ import java.util.stream.Collectors;
 public class DashboardController {
 
         private final WebhookEventRepository eventRepository;
+        private final WebhookEventStore eventStore;
         private final SubscriptionRepository subscriptionRepository;
+        private final EventCountTracker countTracker;
+        private final EventSearchIndex searchIndex;
+
+        // 事件列表每页最大条数
+        private static final int MAX_PAGE_SIZE = 100;
+
+        // 详情页每页展示的投递尝试数
+        private static final int ATTEMPT_PAGE_SIZE = 20;
 
     /**
-     * 仪表盘主页。
+     * 仪表盘主页。按 (receivedAt, id) 游标翻页（keyset），翻到多深都只扫描一页数据。
      *
-     * @param tab   tab 类型
-     * @param page  页码
-     * @param size  每页大小
-     * @param q     搜索关键字
-     * @param model 视图模型
+     * @param tab    tab 类型
+     * @param before 游标：查看比该位置更早的一页
+     * @param after  游标：查看比该位置更新的一页
+     * @param size   每页大小
+     * @param q      搜索关键字
+     * @param model  视图模型
      * @return 页面名
      */
     @GetMapping("/")
     public String dashboard(
             @RequestParam(defaultValue = "subscribed") String tab,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) String after,
             @RequestParam(defaultValue = "15") int size,
             @RequestParam(required = false) String q,
             Model model) {
@@ -67,32 +83,65 @@ public class DashboardController {
                                 }
                         }
 
-                        // 关键字搜索：source、method、payload
-                        if (q != null && !q.trim().isEmpty()) {
+                        return cb.and(predicates.toArray(new Predicate[0]));
+                };
+
+                // 关键字搜索：source、method、payload 走搜索索引（按词前缀匹配）
+                if (q != null && !q.trim().isEmpty()) {
+                        Specification<WebhookEvent> matching = searchIndex.matching(q);
+                        if (matching == null) {
+                                // 关键字中没有可索引的词（如只有符号），退回只在 source、method 上模糊匹配
                                 String keyword = "%" + q.toLowerCase() + "%";
-                                predicates.add(cb.or(
+                                matching = (root, query, cb) -> cb.or(
                                                 cb.like(cb.lower(root.get("source").as(String.class)), keyword),
-                                                cb.like(cb.lower(root.get("method").as(String.class)), keyword),
-                                                cb.like(cb.lower(root.get("payload").as(String.class)), keyword)));
+                                                cb.like(cb.lower(root.get("method").as(String.class)), keyword));
                         }
+                        spec = spec.and(matching);
+                }
 
-                        return cb.and(predicates.toArray(new Predicate[0]));
-                };
-
-                // 3. 分页查询
-                PageRequest pageRequest = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "receivedAt"));
-                Page<WebhookEvent> eventPage = eventRepository.findAll(spec, pageRequest);
+                // 3. 游标分页查询：多取一条判断是否还有下一页
+                int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+                EventCursor beforeCursor = EventCursor.parse(before);
+                EventCursor afterCursor = beforeCursor == null ? EventCursor.parse(after) : null;
+                boolean backward = afterCursor != null;
+                Specification<WebhookEvent> pageSpec = spec;
+                if (beforeCursor != null) {
+                        pageSpec = spec.and(beforeCursor.olderThan());
+                } else if (afterCursor != null) {
+                        pageSpec = spec.and(afterCursor.newerThan());
+                }
+                Sort.Direction direction = backward ? Sort.Direction.ASC : Sort.Direction.DESC;
+                List<WebhookEvent> events = new ArrayList<>(eventRepository.findBy(pageSpec, query -> query
+                                .sortBy(Sort.by(direction, "receivedAt").and(Sort.by(direction, "id")))
+                                .limit(pageSize + 1)
+                                .all()));
+                boolean more = events.size() > pageSize;
+                if (more) {
+                        events = events.subList(0, pageSize);
+                }
+                if (backward) {
+                        Collections.reverse(events);
+                }
+                // 向后翻时“更早一页”一定存在；向前翻时“更新一页”取决于是否多取到一条
+                boolean hasOlder = backward ? !events.isEmpty() : more;
+                boolean hasNewer = backward ? more : beforeCursor != null && !events.isEmpty();
 
-                // 4. 统计徽章计数（简单实现，大数据量下可能偏重）
-                long subscribedTotal = eventRepository.count((root, query,
-                                cb) -> knownSources.isEmpty() ? cb.disjunction() : root.get("source").in(knownSources));
-                long unmappedTotal = eventRepository
-                                .count((root, query, cb) -> knownSources.isEmpty() ? cb.conjunction()
-                                                : cb.not(root.get("source").in(knownSources)));
+                // 4. 徽章计数：读取按来源维护的计数，不对事件表做 COUNT(*)
+                long subscribedTotal = 0;
+                long unmappedTotal = 0;
+                for (Map.Entry<String, Long> entry : countTracker.counts().entrySet()) {
+                        if (knownSources.contains(entry.getKey())) {
+                                subscribedTotal += entry.getValue();
+                        } else {
+                                unmappedTotal += entry.getValue();
+                        }
+                }
 
                 // 5. 组装页面数据
                 model.addAttribute("tab", tab);
-                model.addAttribute("eventPage", eventPage);
+                model.addAttribute("events", events);
+                model.addAttribute("olderCursor", hasOlder ? EventCursor.of(events.get(events.size() - 1)) : null);
+                model.addAttribute("newerCursor", hasNewer ? EventCursor.of(events.get(0)) : null);
                 model.addAttribute("query", q);
                 model.addAttribute("subscribedCount", subscribedTotal);
                 model.addAttribute("unmappedCount", unmappedTotal);
@@ -104,16 +153,63 @@ public class DashboardController {
     /**
      * 查看事件详情页面。
      *
-     * @param id    事件 ID
-     * @param model 视图模型
+     * @param id          事件 ID
+     * @param attemptPage 投递尝试页码
+     * @param model       视图模型
      * @return 页面名
      */
     @GetMapping("/view/{id}")
-    public String viewDetail(@PathVariable Long id, Model model) {
-                eventRepository.findById(id).ifPresent(event -> {
+    public String viewDetail(@PathVariable Long id,
+            @RequestParam(defaultValue = "0") int attemptPage,
+            Model model) {
+                eventStore.findWithBody(id).ifPresent(event -> {
                         model.addAttribute("event", event);
+                        model.addAttribute("attemptPage", eventStore.findAttempts(id,
+                                        PageRequest.of(Math.max(0, attemptPage), ATTEMPT_PAGE_SIZE)));
+                        model.addAttribute("detectedTunnelKey", eventStore.findLastTunnelKey(id).orElse(null));
                         model.addAttribute("currentUri", "/view");
                 });
                 return "detail";
         }
+
+        /**
+         * 事件列表游标：接收时间与 ID，格式为 {@code <receivedAt ISO>_<id>}。
+         */
+        record EventCursor(LocalDateTime receivedAt, Long id) {
+
+                static EventCursor parse(String value) {
+                        if (value == null || value.isBlank()) {
+                                return null;
+                        }
+                        int separator = value.lastIndexOf('_');
+                        if (separator <= 0) {
+                                return null;
+                        }
+                        try {
+                                return new EventCursor(LocalDateTime.parse(value.substring(0, separator)),
+                                                Long.parseLong(value.substring(separator + 1)));
+                        } catch (RuntimeException e) {
+                                // 无效游标按第一页处理
+                                return null;
+                        }
+                }
+
+                static String of(WebhookEvent event) {
+                        return event.getReceivedAt() + "_" + event.getId();
+                }
+
+                Specification<WebhookEvent> olderThan() {
+                        return (root, query, cb) -> cb.or(
+                                        cb.lessThan(root.get("receivedAt"), receivedAt),
+                                        cb.and(cb.equal(root.get("receivedAt"), receivedAt),
+                                                        cb.lessThan(root.get("id"), id)));
+                }
+
+                Specification<WebhookEvent> newerThan() {
+                        return (root, query, cb) -> cb.or(
+                                        cb.greaterThan(root.get("receivedAt"), receivedAt),
+                                        cb.and(cb.equal(root.get("receivedAt"), receivedAt),
+                                                        cb.greaterThan(root.get("id"), id)));
+                }
+        }
 }
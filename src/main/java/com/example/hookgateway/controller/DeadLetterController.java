@@ -0,0 +1,135 @@
+package com.example.hookgateway.controller;
+
+import com.example.hookgateway.service.DeadLetterRedriveService;
+import com.example.hookgateway.service.DeadLetterService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * 死信队列接口控制器：查询死信并按速率重投。
+ */
+@RestController
+@RequestMapping("/api/dlq")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.distribution.mode", havingValue = "redis")
+public class DeadLetterController {
+
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int MAX_RATE_PER_SECOND = 1000;
+
+    private final DeadLetterService deadLetterService;
+    private final DeadLetterRedriveService redriveService;
+
+    /**
+     * 按游标分页查询死信。
+     *
+     * @param cursor           上一页返回的游标
+     * @param limit            每页扫描条数
+     * @param reason           失败原因关键字
+     * @param source           事件来源
+     * @param olderThanMinutes 仅返回进入 DLQ 超过指定分钟数的条目
+     * @param newerThanMinutes 仅返回进入 DLQ 不超过指定分钟数的条目
+     * @return 死信分页结果
+     */
+    @GetMapping
+    public ResponseEntity<DeadLetterService.DeadLetterPage> list(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String reason,
+            @RequestParam(required = false) String source,
+            @RequestParam(required = false) Long olderThanMinutes,
+            @RequestParam(required = false) Long newerThanMinutes) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        DeadLetterService.DeadLetterFilter filter = buildFilter(reason, source, olderThanMinutes, newerThanMinutes);
+        return ResponseEntity.ok(deadLetterService.scan(cursor, limit, filter));
+    }
+
+    /**
+     * 获取死信数量。
+     */
+    @GetMapping("/count")
+    public ResponseEntity<Map<String, Object>> count() {
+        return ResponseEntity.ok(Map.of("count", deadLetterService.getDeadLetterCount()));
+    }
+
+    /**
+     * 启动重投任务。
+     *
+     * @param batchSize        每批扫描条数
+     * @param ratePerSecond    每秒最多重投条数
+     * @param reason           失败原因关键字
+     * @param source           事件来源
+     * @param olderThanMinutes 仅重投进入 DLQ 超过指定分钟数的条目
+     * @param newerThanMinutes 仅重投进入 DLQ 不超过指定分钟数的条目
+     * @return 任务进度
+     */
+    @PostMapping("/redrive")
+    public ResponseEntity<?> startRedrive(
+            @RequestParam(defaultValue = "100") int batchSize,
+            @RequestParam(defaultValue = "50") int ratePerSecond,
+            @RequestParam(required = false) String reason,
+            @RequestParam(required = false) String source,
+            @RequestParam(required = false) Long olderThanMinutes,
+            @RequestParam(required = false) Long newerThanMinutes) {
+        if (batchSize < 1 || batchSize > MAX_BATCH_SIZE || ratePerSecond < 1
+                || ratePerSecond > MAX_RATE_PER_SECOND) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid batchSize or ratePerSecond"));
+        }
+
+        DeadLetterService.DeadLetterFilter filter = buildFilter(reason, source, olderThanMinutes, newerThanMinutes);
+        try {
+            return ResponseEntity.ok(redriveService.start(filter, batchSize, ratePerSecond));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * 查询重投任务进度。
+     */
+    @GetMapping("/redrive")
+    public ResponseEntity<DeadLetterRedriveService.RedriveProgress> redriveStatus() {
+        DeadLetterRedriveService.RedriveProgress progress = redriveService.getProgress();
+        return progress != null ? ResponseEntity.ok(progress) : ResponseEntity.noContent().build();
+    }
+
+    /**
+     * 取消重投任务。
+     */
+    @PostMapping("/redrive/cancel")
+    public ResponseEntity<DeadLetterRedriveService.RedriveProgress> cancelRedrive() {
+        DeadLetterRedriveService.RedriveProgress progress = redriveService.cancel();
+        return progress != null ? ResponseEntity.ok(progress) : ResponseEntity.noContent().build();
+    }
+
+    /**
+     * 组装过滤条件，全部为空时返回 null。
+     */
+    private DeadLetterService.DeadLetterFilter buildFilter(String reason, String source, Long olderThanMinutes,
+            Long newerThanMinutes) {
+        if (isBlank(reason) && isBlank(source) && olderThanMinutes == null && newerThanMinutes == null) {
+            return null;
+        }
+        Instant now = Instant.now();
+        return DeadLetterService.DeadLetterFilter.builder()
+                .reason(isBlank(reason) ? null : reason.trim())
+                .source(isBlank(source) ? null : source.trim())
+                .movedBefore(olderThanMinutes != null ? now.minus(Duration.ofMinutes(olderThanMinutes)) : null)
+                .movedAfter(newerThanMinutes != null ? now.minus(Duration.ofMinutes(newerThanMinutes)) : null)
+                .build();
+    }
+
+    private boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
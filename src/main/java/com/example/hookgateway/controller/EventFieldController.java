@@ -0,0 +1,151 @@
+package com.example.hookgateway.controller;
+
+import com.example.hookgateway.model.EventField;
+import com.example.hookgateway.model.FieldExtractor;
+import com.example.hookgateway.model.WebhookEvent;
+import com.example.hookgateway.repository.WebhookEventRepository;
+import com.example.hookgateway.service.EventFieldIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 事件字段接口控制器：管理字段提取规则，按提取出的字段搜索事件。
+ */
+@RestController
+@RequestMapping("/api/fields")
+@RequiredArgsConstructor
+public class EventFieldController {
+
+    private static final Pattern FIELD_NAME = Pattern.compile("[A-Za-z0-9_.-]{1," + EventField.MAX_FIELD_LENGTH + "}");
+
+    // 单次搜索最多的过滤条件数与每页最大事件数
+    private static final int MAX_FILTERS = 5;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final EventFieldIndex fieldIndex;
+    private final WebhookEventRepository eventRepository;
+
+    /**
+     * 获取全部提取规则
+     */
+    @GetMapping("/extractors")
+    public ResponseEntity<List<FieldExtractor>> listExtractors() {
+        return ResponseEntity.ok(fieldIndex.listExtractors());
+    }
+
+    /**
+     * 新增提取规则：type 为 JSON_PATH（expression 为 JSONPath）或 HEADER（expression 为请求头名称）
+     */
+    @PostMapping("/extractors")
+    public ResponseEntity<FieldExtractor> addExtractor(@RequestBody Map<String, Object> request) {
+        String source = (String) request.get("source");
+        String field = (String) request.get("field");
+        String type = (String) request.get("type");
+        String expression = (String) request.get("expression");
+
+        if (source == null || source.isBlank() || field == null || !FIELD_NAME.matcher(field).matches()) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!EventFieldIndex.isValidExpression(type, expression) || expression.length() > 500) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (fieldIndex.extractorExists(source, field)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(fieldIndex.addExtractor(source, field, type, expression.trim()));
+    }
+
+    /**
+     * 删除提取规则
+     */
+    @DeleteMapping("/extractors/{id}")
+    public ResponseEntity<Void> deleteExtractor(@PathVariable Long id) {
+        if (!fieldIndex.deleteExtractor(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * 按字段搜索事件，按接收时间从新到旧，游标分页。
+     *
+     * @param f      过滤条件 {@code field:value}，可重复，值以 * 结尾表示前缀匹配
+     * @param source 来源（可选）
+     * @param before 游标，返回比它更早的事件
+     * @param size   每页事件数
+     * @return 事件与字段值，以及下一页游标
+     */
+    @GetMapping("/search")
+    public ResponseEntity<SearchResult> search(
+            @RequestParam List<String> f,
+            @RequestParam(required = false) String source,
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "20") int size) {
+        if (f.isEmpty() || f.size() > MAX_FILTERS) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<EventFieldIndex.FieldFilter> filters = new ArrayList<>();
+        for (String expression : f) {
+            EventFieldIndex.FieldFilter filter = EventFieldIndex.FieldFilter.parse(expression);
+            if (filter == null || !FIELD_NAME.matcher(filter.field()).matches()
+                    || filter.value().length() > EventField.MAX_VALUE_LENGTH) {
+                return ResponseEntity.badRequest().build();
+            }
+            filters.add(filter);
+        }
+
+        Specification<WebhookEvent> spec = fieldIndex.matching(filters);
+        if (source != null && !source.isBlank()) {
+            spec = spec.and((root, query, cb) -> cb.equal(root.get("source"), source));
+        }
+        DashboardController.EventCursor cursor = DashboardController.EventCursor.parse(before);
+        if (cursor != null) {
+            spec = spec.and(cursor.olderThan());
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        List<WebhookEvent> events = new ArrayList<>(eventRepository.findBy(spec, query -> query
+                .sortBy(Sort.by(Sort.Direction.DESC, "receivedAt").and(Sort.by(Sort.Direction.DESC, "id")))
+                .limit(pageSize + 1)
+                .all()));
+        boolean more = events.size() > pageSize;
+        if (more) {
+            events = events.subList(0, pageSize);
+        }
+
+        Map<Long, Map<String, List<String>>> fields = fieldIndex
+                .fieldsOf(events.stream().map(WebhookEvent::getId).toList());
+        List<EventHit> hits = events.stream()
+                .map(event -> new EventHit(event.getId(), event.getSource(), event.getMethod(), event.getStatus(),
+                        event.getReceivedAt(), fields.getOrDefault(event.getId(), new LinkedHashMap<>())))
+                .toList();
+        String nextCursor = more ? DashboardController.EventCursor.of(events.get(events.size() - 1)) : null;
+        return ResponseEntity.ok(new SearchResult(hits, nextCursor));
+    }
+
+    /**
+     * 搜索结果。
+     *
+     * @param events     事件
+     * @param nextCursor 下一页游标，没有更多时为 null
+     */
+    public record SearchResult(List<EventHit> events, String nextCursor) {
+    }
+
+    /**
+     * 命中的事件及其字段值。
+     */
+    public record EventHit(Long id, String source, String method, String status, LocalDateTime receivedAt,
+            Map<String, List<String>> fields) {
+    }
+}
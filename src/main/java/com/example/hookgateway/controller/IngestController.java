@@ -1,7 +1,7 @@
 package com.example.hookgateway.controller;
 
 import com.example.hookgateway.model.WebhookEvent;
-import com.example.hookgateway.repository.WebhookEventRepository;
+import com.example.hookgateway.service.WebhookEventStore;
 import com.example.hookgateway.service.WebhookProcessingService;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
@@ -21,7 +21,7 @@ import java.util.Enumeration;
 @Slf4j
 public class IngestController {
 
-    private final WebhookEventRepository eventRepository;
+    private final WebhookEventStore eventStore;
     private final WebhookProcessingService processingService;
 
     // Redis 支持（可选）
@@ -87,18 +87,18 @@ public class IngestController {
                 .status("PENDING") // 初始状态
                 .build();
 
-        final WebhookEvent savedEvent = eventRepository.save(event);
+        final WebhookEvent savedEvent = eventStore.create(event);
 
         // 根据分发模式进行异步转发
         if ("redis".equalsIgnoreCase(distributionMode) && redisAvailable) {
             log.info("Dispatching event {} via Redis Stream", savedEvent.getId());
-            // 添加消息到流
+            // 添加消息到流，携带来源与方法，消费者只需读取大字段行
             redisTemplate.opsForStream().add(
                     com.example.hookgateway.config.RedisStreamConfig.STREAM_KEY,
-                    java.util.Collections.singletonMap("eventId", String.valueOf(savedEvent.getId())));
-            // 裁剪流长度，保留最近约 10000 条消息（使用近似模式，性能更好）
-            redisTemplate.opsForStream().trim(
-                    com.example.hookgateway.config.RedisStreamConfig.STREAM_KEY, 10000, true);
+                    java.util.Map.of("eventId", String.valueOf(savedEvent.getId()),
+                            "source", savedEvent.getSource(),
+                            "method", savedEvent.getMethod()));
+            // 流长度由 StreamTrimmer 在后台按 MINID 裁剪，避免每次摄入多一次往返
         } else {
             if ("redis".equalsIgnoreCase(distributionMode)) {
                 log.warn("Mode is 'redis' but RedisTemplate is null. Fallback to Local @Async.");
@@ -4,17 +4,25 @@ import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import com.example.hookgateway.repository.WebhookEventRepository;
+import com.example.hookgateway.model.EventRollup;
 import com.example.hookgateway.repository.SubscriptionRepository;
+import com.example.hookgateway.service.EventCountTracker;
+import com.example.hookgateway.service.EventRollupTracker;
 
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.lang.management.OperatingSystemMXBean;
+import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 监控数据 API
@@ -23,6 +31,15 @@ import java.util.Map;
 @RequestMapping("/api/monitoring")
 public class MonitoringApiController {
 
+    // 概览中成功率与状态分布的统计窗口（小时）
+    private static final int OVERVIEW_WINDOW_HOURS = 24;
+
+    // 单次时间序列查询最多的时间桶数
+    private static final int MAX_SERIES_POINTS = 1440;
+
+    // 不参与成功率计算的状态：到达与等待隧道 ACK
+    private static final Set<String> NON_OUTCOME_STATUSES = Set.of(EventRollup.RECEIVED, EventRollup.PENDING);
+
     @Autowired
     private HealthEndpoint healthEndpoint;
 
@@ -30,7 +47,10 @@ public class MonitoringApiController {
     private MeterRegistry meterRegistry;
 
     @Autowired
-    private WebhookEventRepository webhookEventRepository;
+    private EventCountTracker countTracker;
+
+    @Autowired
+    private EventRollupTracker rollupTracker;
 
     @Autowired
     private SubscriptionRepository subscriptionRepository;
@@ -65,21 +85,59 @@ public class MonitoringApiController {
         overview.put("uptimeMs", uptime);
         overview.put("uptimeFormatted", formatUptime(uptime));
 
-        // 业务数据
-        long totalEvents = webhookEventRepository.count();
+        // 业务数据：总数取来源计数，状态分布取最近 24 小时的小时汇总，均不扫描事件表
+        long totalEvents = countTracker.counts().values().stream().mapToLong(Long::longValue).sum();
         overview.put("totalEvents", totalEvents);
         overview.put("totalSubscriptions", subscriptionRepository.count());
-        long successfulEvents = webhookEventRepository.countByStatus("SUCCESS");
+        Map<String, Long> statusTotals = rollupTracker.statusTotals(EventRollup.Granularity.HOUR,
+                LocalDateTime.now().minusHours(OVERVIEW_WINDOW_HOURS - 1));
+        long successfulEvents = statusTotals.getOrDefault("SUCCESS", 0L);
+        long deliveredEvents = statusTotals.entrySet().stream()
+                .filter(entry -> !NON_OUTCOME_STATUSES.contains(entry.getKey()))
+                .mapToLong(Map.Entry::getValue)
+                .sum();
+        overview.put("windowHours", OVERVIEW_WINDOW_HOURS);
+        overview.put("receivedEvents", statusTotals.getOrDefault(EventRollup.RECEIVED, 0L));
         overview.put("successfulEvents", successfulEvents);
-        overview.put("failedEvents", webhookEventRepository.countByStatus("FAILED"));
+        overview.put("failedEvents", statusTotals.getOrDefault("FAILED", 0L));
 
-        // 计算成功率
-        double successRate = totalEvents > 0 ? (successfulEvents * 100.0 / totalEvents) : 0;
+        // 计算成功率（窗口内有投递结果的事件）
+        double successRate = deliveredEvents > 0 ? (successfulEvents * 100.0 / deliveredEvents) : 0;
         overview.put("successRate", String.format("%.1f", successRate));
 
         return overview;
     }
 
+    /**
+     * 获取事件汇总时间序列（趋势图）
+     *
+     * @param granularity 粒度：minute / hour / day
+     * @param from        起始时间，默认为结束时间前 60 个时间桶
+     * @param to          结束时间（不含），默认为当前时间
+     * @param source      来源（可选）
+     * @return 按时间升序的数据点
+     */
+    @GetMapping("/rollups")
+    public ResponseEntity<List<EventRollupTracker.RollupPoint>> getRollups(
+            @RequestParam(defaultValue = "minute") String granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String source) {
+        EventRollup.Granularity unit;
+        try {
+            unit = EventRollup.Granularity.valueOf(granularity.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : unit.bucketOf(end).minus(59, unit.unit());
+        if (!start.isBefore(end) || unit.unit().between(start, end) >= MAX_SERIES_POINTS) {
+            return ResponseEntity.badRequest().build();
+        }
+        String sourceFilter = source != null && !source.isBlank() ? source : null;
+        return ResponseEntity.ok(rollupTracker.series(unit, start, end, sourceFilter));
+    }
+
     /**
      * 获取 HTTP 请求统计
      */
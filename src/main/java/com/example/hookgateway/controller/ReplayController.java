@@ -1,10 +1,16 @@
 package com.example.hookgateway.controller;
 
+import com.example.hookgateway.model.DeliveryAttempt;
 import com.example.hookgateway.service.ReplayService;
+import com.example.hookgateway.service.WebhookEventStore;
+import com.example.hookgateway.service.WebhookProcessingService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 /**
  * 重放接口控制器。
  */
@@ -14,7 +20,7 @@ import org.springframework.web.bind.annotation.*;
 public class ReplayController {
 
     private final ReplayService replayService;
-    private final com.example.hookgateway.repository.WebhookEventRepository eventRepository;
+    private final WebhookEventStore eventStore;
     private final com.example.hookgateway.websocket.TunnelSessionManager tunnelSessionManager;
 
     /**
@@ -31,16 +37,29 @@ public class ReplayController {
             @RequestParam(required = false) String targetUrl,
             @RequestParam(required = false) String tunnelKey) {
         
-        return eventRepository.findById(id).map(event -> {
+        return eventStore.findWithBody(id).map(event -> {
             String resultMsg;
             boolean isSuccess;
             int responseStatusCode = 200;
+            List<DeliveryAttempt> attempts;
 
             if (tunnelKey != null && !tunnelKey.trim().isEmpty()) {
                 // 隧道重放
+                LocalDateTime startedAt = LocalDateTime.now();
+                long startNanos = System.nanoTime();
                 String deliveryLog = tunnelSessionManager.routeEvent(event, tunnelKey);
-                isSuccess = deliveryLog.startsWith("SUCCESS");
+                // 已定向转发到持有连接的节点或已写入离线缓冲也视为投递成功，最终结果以客户端 ACK 为准
+                String attemptStatus = WebhookProcessingService.tunnelAttemptStatus(deliveryLog);
+                isSuccess = !"FAILED".equals(attemptStatus);
                 resultMsg = "Tunnel Replay (" + tunnelKey + "): " + deliveryLog;
+                attempts = List.of(DeliveryAttempt.builder()
+                        .target(WebhookEventStore.tunnelTarget(tunnelKey))
+                        .status(attemptStatus)
+                        .latencyMs((System.nanoTime() - startNanos) / 1_000_000)
+                        .error(isSuccess ? null : deliveryLog)
+                        .startedAt(startedAt)
+                        .finishedAt(LocalDateTime.now())
+                        .build());
             } else if (targetUrl != null && !targetUrl.trim().isEmpty()) {
                 // HTTP URL 重放（带重试，V12）
                 replayService.startNewTracking();
@@ -52,18 +71,15 @@ public class ReplayController {
                 resultMsg = "Manual Replay to " + targetUrl + ": " + (isSuccess ? " (SUCCESS)" : " (FAILED)");
                 // 此时 resultMsg 只是摘要，详细轨迹在 result.getLog() 中
                 resultMsg += "\n" + result.getLog();
+                attempts = result.getAttempts();
             } else {
                 return ResponseEntity.badRequest().body("Either targetUrl or tunnelKey must be provided");
             }
 
-            // 将日志追加到 deliveryDetails
-            String timestamp = java.time.LocalDateTime.now()
-                    .format(java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-            String newLog = String.format("\n[%s] %s", timestamp, resultMsg);
+            // 手动重放没有关联订阅
+            attempts.forEach(attempt -> attempt.setEventId(id));
 
-            String currentDetails = event.getDeliveryDetails();
-            event.setDeliveryDetails(currentDetails == null ? newLog : currentDetails + newLog);
-            event.setLastDeliveryAt(java.time.LocalDateTime.now());
+            event.setLastDeliveryAt(LocalDateTime.now());
 
             // 根据最后一次操作结果更新状态（V12.1：细化状态机）
             String currentStatus = event.getStatus();
@@ -79,7 +95,7 @@ public class ReplayController {
                 // 保持 PARTIAL_SUCCESS、FAILED、NO_MATCH 不变
             }
 
-            eventRepository.save(event);
+            eventStore.saveDeliveryResult(event, attempts);
 
             if (isSuccess) {
                 return ResponseEntity.ok("Success: " + resultMsg);
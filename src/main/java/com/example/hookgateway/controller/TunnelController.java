@@ -1,10 +1,12 @@
 package com.example.hookgateway.controller;
 
 import com.example.hookgateway.websocket.TunnelSessionManager;
+import com.example.hookgateway.websocket.TunnelSessionStats;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -33,13 +35,27 @@ public class TunnelController {
      */
     @GetMapping("/status/{tunnelKey}")
     public ResponseEntity<Map<String, Object>> getStatus(@PathVariable String tunnelKey) {
-        boolean connected = sessionManager.isConnected(tunnelKey);
+        int sessions = sessionManager.getSessionCount(tunnelKey);
+        boolean connected = sessions > 0;
         return ResponseEntity.ok(Map.of(
                 "tunnelKey", tunnelKey,
                 "connected", connected,
+                "sessions", sessions,
                 "status", connected ? "CONNECTED" : "DISCONNECTED"));
     }
 
+    /**
+     * 查询隧道在本节点各连接的运行指标（未确认数、心跳往返时延、ACK 时延）
+     */
+    @GetMapping("/metrics/{tunnelKey}")
+    public ResponseEntity<Map<String, Object>> getMetrics(@PathVariable String tunnelKey) {
+        List<TunnelSessionStats> sessions = sessionManager.getSessionStats(tunnelKey);
+        return ResponseEntity.ok(Map.of(
+                "tunnelKey", tunnelKey,
+                "inFlight", sessions.stream().mapToInt(TunnelSessionStats::inFlight).sum(),
+                "sessions", sessions));
+    }
+
     /**
      * 获取活跃连接数统计
      */
@@ -47,6 +63,7 @@ public class TunnelController {
     public ResponseEntity<Map<String, Object>> getStats() {
         int activeConnections = sessionManager.getActiveConnectionCount();
         return ResponseEntity.ok(Map.of(
-                "activeConnections", activeConnections));
+                "activeConnections", activeConnections,
+                "activeTunnels", sessionManager.getActiveTunnelCount()));
     }
 }
@@ -40,6 +40,12 @@ public class CleanupConfig {
     @Builder.Default
     private Long lastCleanupCount = 0L;
 
+    /**
+     * 清理滞后（秒）：最早未清理事件超出保留期的时长，0 表示已追平
+     */
+    @Builder.Default
+    private Long purgeLagSeconds = 0L;
+
     /**
      * 配置更新时间
      */
@@ -0,0 +1,71 @@
+package com.example.hookgateway.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 投递尝试记录（只追加）：每次 HTTP 请求、隧道下发、过滤/验签跳过或客户端 ACK 各占一行，
+ * 代替在事件上反复改写的投递明细文本。
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_delivery_attempt_event_id", columnList = "eventId, id"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeliveryAttempt {
+
+    /**
+     * 错误信息最大长度，超出部分截断。
+     */
+    public static final int MAX_ERROR_LENGTH = 1000;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long eventId;
+
+    // 与事件的 receivedAt 相同，冗余存储以便按同一时间范围分区
+    private LocalDateTime receivedAt;
+
+    private Long subscriptionId; // 为空表示手动重放或客户端 ACK
+
+    @Column(length = 512)
+    private String target; // 目标 URL，隧道为 tunnel:<tunnelKey>
+
+    private Integer attemptNumber; // HTTP 投递内的第几次尝试（从 1 开始），隧道下发、ACK 与跳过的订阅为空
+
+    @Column(length = 32)
+    private String status; // SUCCESS, FAILED, DISPATCHED, BUFFERED, FILTERED, VERIFY_FAILED
+
+    private Integer statusCode; // HTTP 状态码，无响应时为空
+
+    private Long latencyMs;
+
+    @Column(length = MAX_ERROR_LENGTH)
+    private String error; // 错误或跳过原因（已截断）
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+
+    /**
+     * 截断错误信息。
+     *
+     * @param error 错误信息
+     * @return 不超过 {@link #MAX_ERROR_LENGTH} 的错误信息
+     */
+    public static String truncate(String error) {
+        if (error == null || error.length() <= MAX_ERROR_LENGTH) {
+            return error;
+        }
+        return error.substring(0, MAX_ERROR_LENGTH - 3) + "...";
+    }
+}
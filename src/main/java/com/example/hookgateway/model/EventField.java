@@ -0,0 +1,63 @@
+package com.example.hookgateway.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 事件字段索引：入库时按 {@link FieldExtractor} 提取的业务字段值，每个（字段, 值, 事件）一行。
+ * 按字段精确或前缀查找事件走 (field, value, eventId) 索引范围扫描。
+ * 主键为 (eventId, field, value)（Hibernate 按属性名排列联合主键列，分区表见 EventPartitionManager.PRIMARY_KEYS），
+ * 按事件删除字段值走主键。
+ */
+@Entity
+@IdClass(EventField.Key.class)
+@Table(indexes = @Index(name = "idx_event_field_value", columnList = "field, field_value, eventId"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventField {
+
+    /**
+     * 字段名的最大长度。
+     */
+    public static final int MAX_FIELD_LENGTH = 64;
+
+    /**
+     * 字段值的最大长度，更长的值截断。
+     */
+    public static final int MAX_VALUE_LENGTH = 255;
+
+    @Id
+    @Column(length = MAX_FIELD_LENGTH)
+    private String field;
+
+    // value 是 H2 等数据库的保留字
+    @Id
+    @Column(name = "field_value", length = MAX_VALUE_LENGTH)
+    private String value;
+
+    @Id
+    private Long eventId;
+
+    // 与事件的 receivedAt 相同，冗余存储以便随事件按时间分区与清理
+    private LocalDateTime receivedAt;
+
+    /**
+     * 联合主键。
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String field;
+        private String value;
+        private Long eventId;
+    }
+}
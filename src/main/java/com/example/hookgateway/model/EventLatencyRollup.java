@@ -0,0 +1,59 @@
+package com.example.hookgateway.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 投递耗时分布汇总：与 {@link EventRollup} 同一维度，再按耗时区间上界（毫秒）计数。
+ * 直方图可跨节点、跨时间桶直接相加，P50 / P99 在读取时由直方图估算。
+ */
+@Entity
+@IdClass(EventLatencyRollup.Key.class)
+@Table(name = "event_latency_rollup",
+        indexes = @Index(name = "idx_event_latency_rollup_bucket", columnList = "granularity, bucketStart"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventLatencyRollup {
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 8)
+    private EventRollup.Granularity granularity;
+
+    @Id
+    private LocalDateTime bucketStart;
+
+    @Id
+    private String source;
+
+    @Id
+    @Column(length = 32)
+    private String status;
+
+    @Id
+    private Integer upperMs; // 耗时区间上界（含）
+
+    private long sampleCount;
+
+    /**
+     * 联合主键。
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private EventRollup.Granularity granularity;
+        private LocalDateTime bucketStart;
+        private String source;
+        private String status;
+        private Integer upperMs;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.hookgateway.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * 事件时间桶汇总：按粒度（分钟 / 小时 / 天）、时间桶、来源与状态累计事件数与请求体字节数，
+ * 供监控概览与趋势图读取，不再对事件表做 COUNT。
+ * 状态为 RECEIVED 的行统计到达的事件，PENDING 统计已下发、等待隧道 ACK 的投递，
+ * 其余状态统计投递结果（每次投递或重放计一次，隧道投递的结果只在 ACK 到达时计一次）。
+ * 对应的投递耗时分布见 {@link EventLatencyRollup}。
+ */
+@Entity
+@IdClass(EventRollup.Key.class)
+@Table(name = "event_rollup", indexes = @Index(name = "idx_event_rollup_bucket", columnList = "granularity, bucketStart"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventRollup {
+
+    /**
+     * 到达事件的统计状态。
+     */
+    public static final String RECEIVED = "RECEIVED";
+
+    /**
+     * 已下发、结果等待隧道 ACK 的投递的统计状态。
+     */
+    public static final String PENDING = "PENDING";
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 8)
+    private Granularity granularity;
+
+    @Id
+    private LocalDateTime bucketStart;
+
+    @Id
+    private String source;
+
+    @Id
+    @Column(length = 32)
+    private String status;
+
+    private long eventCount;
+
+    private long totalBytes;
+
+    /**
+     * 汇总粒度。
+     */
+    public enum Granularity {
+        MINUTE(ChronoUnit.MINUTES),
+        HOUR(ChronoUnit.HOURS),
+        DAY(ChronoUnit.DAYS);
+
+        private final ChronoUnit unit;
+
+        Granularity(ChronoUnit unit) {
+            this.unit = unit;
+        }
+
+        public ChronoUnit unit() {
+            return unit;
+        }
+
+        /**
+         * 时间所在时间桶的起点。
+         */
+        public LocalDateTime bucketOf(LocalDateTime time) {
+            return time.truncatedTo(unit);
+        }
+    }
+
+    /**
+     * 联合主键。
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Granularity granularity;
+        private LocalDateTime bucketStart;
+        private String source;
+        private String status;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.hookgateway.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 事件搜索倒排索引：入库时从来源、方法与请求体中提取的词，每个（词, 事件）一行。
+ * 按词前缀查事件走 (token, eventId) 索引范围扫描，代替对请求体的 LIKE '%q%' 全表扫描。
+ * 主键为 (eventId, token)（Hibernate 按属性名排列联合主键列，分区表见 EventPartitionManager.PRIMARY_KEYS），
+ * 按事件删除索引走主键。
+ */
+@Entity
+@IdClass(EventSearchToken.Key.class)
+@Table(indexes = @Index(name = "idx_event_search_token_token", columnList = "token, eventId"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventSearchToken {
+
+    /**
+     * 词的最大长度，更长的词截断。
+     */
+    public static final int MAX_TOKEN_LENGTH = 64;
+
+    @Id
+    @Column(length = MAX_TOKEN_LENGTH)
+    private String token;
+
+    @Id
+    private Long eventId;
+
+    // 与事件的 receivedAt 相同，冗余存储以便随事件按时间分区与清理
+    private LocalDateTime receivedAt;
+
+    /**
+     * 联合主键。
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String token;
+        private Long eventId;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.hookgateway.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * 按来源维护的事件数：入库时累加、清理时扣减，仪表盘徽章直接读取，避免对事件表做 COUNT(*)。
+ */
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventSourceCount {
+    @Id
+    private String source;
+
+    @Column(nullable = false)
+    private Long eventCount;
+}
@@ -0,0 +1,42 @@
+package com.example.hookgateway.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * 字段提取规则：事件入库时按来源从请求体（JSONPath）或请求头中提取业务字段，写入 {@link EventField}。
+ * 规则只作用于新入库的事件。
+ */
+@Entity
+@Table(name = "field_extractor", uniqueConstraints = @UniqueConstraint(columnNames = { "source", "field" }))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FieldExtractor {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String source;
+
+    @Column(nullable = false, length = EventField.MAX_FIELD_LENGTH)
+    private String field; // 字段名，例如 orderId
+
+    @Column(nullable = false)
+    private String type; // JSON_PATH, HEADER
+
+    @Column(nullable = false, length = 500)
+    private String expression; // JSONPath 表达式或请求头名称
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+}
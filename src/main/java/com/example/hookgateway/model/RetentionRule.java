@@ -0,0 +1,37 @@
+package com.example.hookgateway.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * 事件保留规则：按来源和/或状态覆盖全局保留天数。
+ * 匹配优先级：来源+状态 > 仅来源 > 仅状态 > 全局 CleanupConfig.retentionDays。
+ */
+@Entity
+@Table(name = "retention_rule", uniqueConstraints = @UniqueConstraint(columnNames = { "source", "status" }))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RetentionRule {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String source; // 为空表示任意来源
+
+    private String status; // 为空表示任意状态，例如 FAILED
+
+    @Column(nullable = false)
+    private Integer retentionHours; // 保留时长（小时）
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+}
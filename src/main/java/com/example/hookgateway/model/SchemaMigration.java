@@ -0,0 +1,22 @@
+package com.example.hookgateway.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 已完成的启动数据迁移：每个迁移一行，之后的启动查到记录即跳过，不再扫描数据表。
+ */
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SchemaMigration {
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    private LocalDateTime completedAt;
+}
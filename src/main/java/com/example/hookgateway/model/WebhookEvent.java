@@ -5,9 +5,14 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 /**
- * Webhook 事件实体。
+ * Webhook 事件实体（元数据）。
+ * 请求头、请求体与投递明细存放在 {@link WebhookEventBody} 中，这里仅为瞬时字段：
+ * 新建事件时随元数据一起写入，读取时需通过 WebhookEventStore 显式加载。
  */
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_webhook_event_received_at_id", columnList = "receivedAt, id"),
+        @Index(name = "idx_webhook_event_source_received_at", columnList = "source, receivedAt") })
 @Data
 @Builder
 @NoArgsConstructor
@@ -20,10 +25,10 @@ public class WebhookEvent {
     private String source;
     private String method;
 
-    @Column(columnDefinition = "TEXT")
+    @Transient
     private String headers;
 
-    @Column(columnDefinition = "TEXT")
+    @Transient
     private String payload;
 
     private LocalDateTime receivedAt;
@@ -35,8 +40,8 @@ public class WebhookEvent {
     @Builder.Default
     private Integer deliveryCount = 0;
 
-    @Column(columnDefinition = "TEXT")
-    private String deliveryDetails; // 投递结果明细（JSON 或格式化文本）
+    @Transient
+    private String deliveryDetails; // 旧版本的投递结果明细（只读），新的投递记录见 DeliveryAttempt
 
     private LocalDateTime lastDeliveryAt;
 }
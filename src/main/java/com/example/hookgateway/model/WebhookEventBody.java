@@ -0,0 +1,32 @@
+package com.example.hookgateway.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Webhook 事件的大字段（冷数据）：请求头、请求体与投递明细。
+ * 与 {@link WebhookEvent} 共用主键，单独成表，列表、计数与状态更新只访问精简的事件元数据行，
+ * 仅在查看详情或投递时按事件 ID 加载。
+ */
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WebhookEventBody {
+    @Id
+    private Long eventId;
+
+    // 与事件的 receivedAt 相同，冗余存储以便两张表按同一时间范围分区
+    private LocalDateTime receivedAt;
+
+    @Column(columnDefinition = "TEXT")
+    private String headers;
+
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(columnDefinition = "TEXT")
+    private String deliveryDetails; // 旧版本的投递结果明细，新的投递记录见 DeliveryAttempt
+}
@@ -2,9 +2,29 @@ package com.example.hookgateway.repository;
 
 import com.example.hookgateway.model.CleanupConfig;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
 
 /**
  * 清理配置仓储接口。
  */
 public interface CleanupConfigRepository extends JpaRepository<CleanupConfig, Long> {
+
+    /**
+     * 只更新清理进度字段，不覆盖并发修改的保留配置
+     *
+     * @param id               配置 ID
+     * @param lastRunAt        最近一次清理时间
+     * @param lastCleanupCount 本轮已清理的事件数
+     * @param purgeLagSeconds  清理滞后（秒）
+     * @return 更新记录数
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE CleanupConfig c SET c.lastRunAt = :lastRunAt, c.lastCleanupCount = :lastCleanupCount, "
+            + "c.purgeLagSeconds = :purgeLagSeconds WHERE c.id = :id")
+    int updateProgress(Long id, LocalDateTime lastRunAt, Long lastCleanupCount, Long purgeLagSeconds);
 }
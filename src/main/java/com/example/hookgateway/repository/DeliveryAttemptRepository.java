@@ -0,0 +1,47 @@
+package com.example.hookgateway.repository;
+
+import com.example.hookgateway.model.DeliveryAttempt;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 投递尝试仓储接口。
+ */
+@Repository
+public interface DeliveryAttemptRepository extends JpaRepository<DeliveryAttempt, Long> {
+
+        /**
+         * 分页查询事件的投递尝试（最新在前）
+         *
+         * @param eventId  事件 ID
+         * @param pageable 分页参数
+         * @return 投递尝试分页
+         */
+        Page<DeliveryAttempt> findByEventIdOrderByIdDesc(Long eventId, Pageable pageable);
+
+        /**
+         * 事件最近一次指定前缀目标的投递尝试（用于识别隧道投递）
+         *
+         * @param eventId 事件 ID
+         * @param prefix  目标前缀
+         * @return 投递尝试
+         */
+        Optional<DeliveryAttempt> findFirstByEventIdAndTargetStartingWithOrderByIdDesc(Long eventId, String prefix);
+
+        /**
+         * 按事件 ID 批量删除投递尝试
+         *
+         * @param eventIds 事件 ID 列表
+         * @return 删除记录数
+         */
+        @Modifying
+        @Query("DELETE FROM DeliveryAttempt a WHERE a.eventId IN :eventIds")
+        int deleteByEventIdIn(List<Long> eventIds);
+}
@@ -0,0 +1,35 @@
+package com.example.hookgateway.repository;
+
+import com.example.hookgateway.model.EventField;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 事件字段索引仓储接口。
+ */
+@Repository
+public interface EventFieldRepository extends JpaRepository<EventField, EventField.Key> {
+
+        /**
+         * 查询多个事件的字段值
+         *
+         * @param eventIds 事件 ID 列表
+         * @return 字段值列表
+         */
+        List<EventField> findByEventIdIn(Collection<Long> eventIds);
+
+        /**
+         * 按事件 ID 批量删除字段值
+         *
+         * @param eventIds 事件 ID 列表
+         * @return 删除记录数
+         */
+        @Modifying
+        @Query("DELETE FROM EventField f WHERE f.eventId IN :eventIds")
+        int deleteByEventIdIn(List<Long> eventIds);
+}
@@ -0,0 +1,44 @@
+package com.example.hookgateway.repository;
+
+import com.example.hookgateway.model.EventLatencyRollup;
+import com.example.hookgateway.model.EventRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 投递耗时分布汇总仓储接口。
+ */
+@Repository
+public interface EventLatencyRollupRepository extends JpaRepository<EventLatencyRollup, EventLatencyRollup.Key> {
+
+        /**
+         * 按时间桶与耗时区间汇总（各来源、状态合并）
+         *
+         * @param granularity 粒度
+         * @param from        起始时间桶（含）
+         * @param to          结束时间（不含）
+         * @param source      来源，为 null 时汇总全部来源
+         * @return [bucketStart, upperMs, sampleCount] 列表
+         */
+        @Query("SELECT l.bucketStart, l.upperMs, SUM(l.sampleCount) FROM EventLatencyRollup l "
+                        + "WHERE l.granularity = :granularity AND l.bucketStart >= :from AND l.bucketStart < :to "
+                        + "AND (:source IS NULL OR l.source = :source) GROUP BY l.bucketStart, l.upperMs")
+        List<Object[]> sumByBucket(EventRollup.Granularity granularity, LocalDateTime from, LocalDateTime to,
+                        String source);
+
+        /**
+         * 删除早于截止时间的汇总
+         *
+         * @param granularity 粒度
+         * @param cutoff      截止时间
+         * @return 删除记录数
+         */
+        @Modifying
+        @Query("DELETE FROM EventLatencyRollup l WHERE l.granularity = :granularity AND l.bucketStart < :cutoff")
+        int deleteOlderThan(EventRollup.Granularity granularity, LocalDateTime cutoff);
+}
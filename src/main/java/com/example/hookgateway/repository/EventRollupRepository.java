@@ -0,0 +1,54 @@
+package com.example.hookgateway.repository;
+
+import com.example.hookgateway.model.EventRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 事件时间桶汇总仓储接口。
+ */
+@Repository
+public interface EventRollupRepository extends JpaRepository<EventRollup, EventRollup.Key> {
+
+        /**
+         * 按时间桶与状态汇总（走 (granularity, bucketStart) 索引）
+         *
+         * @param granularity 粒度
+         * @param from        起始时间桶（含）
+         * @param to          结束时间（不含）
+         * @param source      来源，为 null 时汇总全部来源
+         * @return [bucketStart, status, eventCount, totalBytes] 列表
+         */
+        @Query("SELECT r.bucketStart, r.status, SUM(r.eventCount), SUM(r.totalBytes) FROM EventRollup r "
+                        + "WHERE r.granularity = :granularity AND r.bucketStart >= :from AND r.bucketStart < :to "
+                        + "AND (:source IS NULL OR r.source = :source) GROUP BY r.bucketStart, r.status")
+        List<Object[]> sumByBucketAndStatus(EventRollup.Granularity granularity, LocalDateTime from, LocalDateTime to,
+                        String source);
+
+        /**
+         * 按状态汇总
+         *
+         * @param granularity 粒度
+         * @param from        起始时间桶（含）
+         * @return [status, eventCount] 列表
+         */
+        @Query("SELECT r.status, SUM(r.eventCount) FROM EventRollup r "
+                        + "WHERE r.granularity = :granularity AND r.bucketStart >= :from GROUP BY r.status")
+        List<Object[]> sumByStatus(EventRollup.Granularity granularity, LocalDateTime from);
+
+        /**
+         * 删除早于截止时间的汇总
+         *
+         * @param granularity 粒度
+         * @param cutoff      截止时间
+         * @return 删除记录数
+         */
+        @Modifying
+        @Query("DELETE FROM EventRollup r WHERE r.granularity = :granularity AND r.bucketStart < :cutoff")
+        int deleteOlderThan(EventRollup.Granularity granularity, LocalDateTime cutoff);
+}
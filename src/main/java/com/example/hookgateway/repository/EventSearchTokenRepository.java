@@ -0,0 +1,43 @@
+package com.example.hookgateway.repository;
+
+import com.example.hookgateway.model.EventSearchToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * 事件搜索索引仓储接口。
+ */
+@Repository
+public interface EventSearchTokenRepository extends JpaRepository<EventSearchToken, EventSearchToken.Key> {
+
+        /**
+         * 已建立索引的最小事件 ID（更早的事件需要回填）
+         *
+         * @return 最小事件 ID，索引为空时为 null
+         */
+        @Query("SELECT MIN(t.eventId) FROM EventSearchToken t")
+        Long findMinEventId();
+
+        /**
+         * 已建立索引的事件 ID（主键以事件 ID 开头，按主键查找）
+         *
+         * @param eventIds 事件 ID 列表
+         * @return 其中已有索引的事件 ID
+         */
+        @Query("SELECT DISTINCT t.eventId FROM EventSearchToken t WHERE t.eventId IN :eventIds")
+        List<Long> findIndexedEventIds(List<Long> eventIds);
+
+        /**
+         * 按事件 ID 批量删除索引
+         *
+         * @param eventIds 事件 ID 列表
+         * @return 删除记录数
+         */
+        @Modifying
+        @Query("DELETE FROM EventSearchToken t WHERE t.eventId IN :eventIds")
+        int deleteByEventIdIn(List<Long> eventIds);
+}
@@ -0,0 +1,12 @@
+package com.example.hookgateway.repository;
+
+import com.example.hookgateway.model.EventSourceCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * 来源事件数仓储接口。
+ */
+@Repository
+public interface EventSourceCountRepository extends JpaRepository<EventSourceCount, String> {
+}
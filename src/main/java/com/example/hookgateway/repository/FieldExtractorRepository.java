@@ -0,0 +1,17 @@
+package com.example.hookgateway.repository;
+
+import com.example.hookgateway.model.FieldExtractor;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * 字段提取规则仓储接口。
+ */
+@Repository
+public interface FieldExtractorRepository extends JpaRepository<FieldExtractor, Long> {
+
+    /**
+     * 是否已存在相同来源与字段名的规则。
+     */
+    boolean existsBySourceAndField(String source, String field);
+}
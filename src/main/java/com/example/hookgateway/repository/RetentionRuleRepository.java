@@ -0,0 +1,17 @@
+package com.example.hookgateway.repository;
+
+import com.example.hookgateway.model.RetentionRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * 保留规则仓储接口。
+ */
+@Repository
+public interface RetentionRuleRepository extends JpaRepository<RetentionRule, Long> {
+
+    /**
+     * 是否已存在相同来源与状态的规则（参数为 null 时匹配 IS NULL）。
+     */
+    boolean existsBySourceAndStatus(String source, String status);
+}
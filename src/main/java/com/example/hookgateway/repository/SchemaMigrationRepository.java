@@ -0,0 +1,12 @@
+package com.example.hookgateway.repository;
+
+import com.example.hookgateway.model.SchemaMigration;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * 启动数据迁移记录仓储接口。
+ */
+@Repository
+public interface SchemaMigrationRepository extends JpaRepository<SchemaMigration, String> {
+}
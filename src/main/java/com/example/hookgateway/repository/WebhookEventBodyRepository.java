@@ -0,0 +1,26 @@
+package com.example.hookgateway.repository;
+
+import com.example.hookgateway.model.WebhookEventBody;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Webhook 事件大字段仓储接口。
+ */
+@Repository
+public interface WebhookEventBodyRepository extends JpaRepository<WebhookEventBody, Long> {
+
+        /**
+         * 按事件 ID 批量删除大字段
+         *
+         * @param eventIds 事件 ID 列表
+         * @return 删除记录数
+         */
+        @Modifying
+        @Query("DELETE FROM WebhookEventBody b WHERE b.eventId IN :eventIds")
+        int deleteByEventIdIn(List<Long> eventIds);
+}
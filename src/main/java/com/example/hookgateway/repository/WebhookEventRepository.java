@@ -1,6 +1,7 @@
 package com.example.hookgateway.repository;
 
 import com.example.hookgateway.model.WebhookEvent;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
@@ -8,6 +9,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Webhook 事件仓储接口。
@@ -27,10 +30,94 @@ public interface WebhookEventRepository
         int deleteByReceivedAtBefore(LocalDateTime cutoffDate);
 
         /**
-         * 按状态统计事件数
+         * 按接收时间顺序查询早于指定时间的事件 ID（走 received_at 索引），用于分块清理
          *
-         * @param status 目标状态
-         * @return 指定状态的事件数量
+         * @param cutoffDate 截止时间
+         * @param pageable   分块大小
+         * @return 事件 ID 列表
+         */
+        @Query("SELECT w.id FROM WebhookEvent w WHERE w.receivedAt < :cutoffDate ORDER BY w.receivedAt")
+        List<Long> findIdsReceivedBefore(LocalDateTime cutoffDate, Pageable pageable);
+
+        /**
+         * 按接收时间顺序查询指定来源早于指定时间的事件 ID（走 (source, received_at) 索引）
+         *
+         * @param source     来源
+         * @param cutoffDate 截止时间
+         * @param pageable   分块大小
+         * @return 事件 ID 列表
+         */
+        @Query("SELECT w.id FROM WebhookEvent w WHERE w.source = :source AND w.receivedAt < :cutoffDate "
+                        + "ORDER BY w.receivedAt")
+        List<Long> findIdsBySourceReceivedBefore(String source, LocalDateTime cutoffDate, Pageable pageable);
+
+        /**
+         * 同上，只包含指定状态
+         */
+        @Query("SELECT w.id FROM WebhookEvent w WHERE w.source = :source AND w.receivedAt < :cutoffDate "
+                        + "AND w.status IN :statuses ORDER BY w.receivedAt")
+        List<Long> findIdsBySourceAndStatusInReceivedBefore(String source, List<String> statuses,
+                        LocalDateTime cutoffDate, Pageable pageable);
+
+        /**
+         * 同上，排除指定状态
+         */
+        @Query("SELECT w.id FROM WebhookEvent w WHERE w.source = :source AND w.receivedAt < :cutoffDate "
+                        + "AND w.status NOT IN :statuses ORDER BY w.receivedAt")
+        List<Long> findIdsBySourceAndStatusNotInReceivedBefore(String source, List<String> statuses,
+                        LocalDateTime cutoffDate, Pageable pageable);
+
+        /**
+         * 查询事件的全部来源
+         *
+         * @return 来源列表
+         */
+        @Query("SELECT DISTINCT w.source FROM WebhookEvent w")
+        List<String> findDistinctSources();
+
+        /**
+         * 按来源汇总指定事件：事件数与最早接收时间
+         *
+         * @param ids 事件 ID 列表
+         * @return [source, count, minReceivedAt] 列表
+         */
+        @Query("SELECT w.source, COUNT(w), MIN(w.receivedAt) FROM WebhookEvent w WHERE w.id IN :ids GROUP BY w.source")
+        List<Object[]> summarizeBySourceIn(List<Long> ids);
+
+        /**
+         * 查询小于指定 ID 的事件 ID（从大到小，用于回填）
+         *
+         * @param maxId    ID 上界（不含）
+         * @param pageable 分页参数（仅使用条数）
+         * @return 事件 ID 列表
+         */
+        @Query("SELECT w.id FROM WebhookEvent w WHERE w.id < :maxId ORDER BY w.id DESC")
+        List<Long> findIdsBelow(long maxId, Pageable pageable);
+
+        /**
+         * 按来源统计全部事件数（用于校准来源计数）
+         *
+         * @return [source, count] 列表
+         */
+        @Query("SELECT w.source, COUNT(w) FROM WebhookEvent w GROUP BY w.source")
+        List<Object[]> countGroupBySource();
+
+        /**
+         * 按 ID 批量删除事件
+         *
+         * @param ids 事件 ID 列表
+         * @return 删除记录数
+         */
+        @Modifying
+        @Query("DELETE FROM WebhookEvent w WHERE w.id IN :ids")
+        int deleteByIdIn(List<Long> ids);
+
+        /**
+         * 按 ID 批量查询事件来源
+         *
+         * @param ids 事件 ID 列表
+         * @return [id, source] 列表
          */
-        long countByStatus(String status);
+        @Query("SELECT w.id, w.source FROM WebhookEvent w WHERE w.id IN :ids")
+        List<Object[]> findSourcesByIdIn(Collection<Long> ids);
 }
@@ -1,8 +1,9 @@
 package com.example.hookgateway.service;
 
 import com.example.hookgateway.model.CleanupConfig;
+import com.example.hookgateway.model.RetentionRule;
 import com.example.hookgateway.repository.CleanupConfigRepository;
-import com.example.hookgateway.repository.WebhookEventRepository;
+import com.example.hookgateway.repository.RetentionRuleRepository;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -11,9 +12,12 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * 事件清理调度服务。
+ * 事件表已按时间分区时每天直接删除过期分区，否则由 {@link EventPurger} 持续分块增量删除。
+ * 配置了按来源/状态的保留规则时，分区只按最长保留时长删除，更短的规则由增量清理线程按行删除。
  */
 @Service
 @RequiredArgsConstructor
@@ -21,7 +25,10 @@ import java.time.LocalDateTime;
 public class CleanupSchedulerService {
 
     private final CleanupConfigRepository configRepository;
-    private final WebhookEventRepository eventRepository;
+    private final RetentionRuleRepository ruleRepository;
+    private final EventPartitionManager partitionManager;
+    private final EventPurger eventPurger;
+    private final EventCountTracker countTracker;
 
     /**
      * 初始化默认配置
@@ -40,19 +47,21 @@ public class CleanupSchedulerService {
     }
 
     /**
-     * 定时任务：每天凌晨 2 点执行清理
+     * 定时任务：每天凌晨 2 点删除过期分区（仅分区表，普通表由增量清理线程持续处理）
      */
     @Scheduled(cron = "0 0 2 * * ?")
-    @Transactional
     public void scheduledCleanup() {
+        if (!partitionManager.isActive()) {
+            return;
+        }
         log.info("Scheduled cleanup task triggered");
         runCleanup();
     }
 
     /**
-     * 手动触发清理
+     * 手动触发清理。
+     * 不在事务中执行：DROP PARTITION 是 DDL（MySQL 会隐式提交），计数校准与配置更新各自单独提交。
      */
-    @Transactional
     public CleanupResult runCleanup() {
         CleanupConfig config = getConfig();
 
@@ -64,21 +73,42 @@ public class CleanupSchedulerService {
                     .build();
         }
 
-        LocalDateTime cutoffDate = LocalDateTime.now().minusDays(config.getRetentionDays());
-        log.info("Starting cleanup: deleting events older than {} (retention: {} days)",
-                cutoffDate, config.getRetentionDays());
+        List<RetentionRule> rules = ruleRepository.findAll();
+        if (!partitionManager.isActive() || !rules.isEmpty()) {
+            // 普通表或有保留规则：唤醒增量清理线程，按块限速删除，不在请求线程中执行大事务
+            eventPurger.wake();
+        }
+        if (!partitionManager.isActive()) {
+            return CleanupResult.builder()
+                    .executed(true)
+                    .deletedCount(eventPurger.getPassPurged())
+                    .message("Incremental purge in progress (lag " + eventPurger.getLagSeconds() + "s)")
+                    .build();
+        }
 
-        int deletedCount = eventRepository.deleteByReceivedAtBefore(cutoffDate);
+        // 分区内混有各来源、各状态的事件，只能删除超过最长保留时长的分区
+        long retentionHours = RetentionPolicy.longestRetentionHours(rules, config.getRetentionDays());
+        LocalDateTime cutoffDate = LocalDateTime.now().minusHours(retentionHours);
+        log.info("Starting cleanup: dropping partitions older than {} (retention: {} hours)",
+                cutoffDate, retentionHours);
+
+        // 分区表：DROP PARTITION 只需修改元数据，不产生行锁与 undo 日志
+        long deletedCount = partitionManager.dropPartitionsBefore(cutoffDate);
+        if (deletedCount > 0) {
+            // 分区删除不经过逐行扣减，按剩余事件重新校准来源计数
+            countTracker.reconcile();
+        }
 
         config.setLastRunAt(LocalDateTime.now());
-        config.setLastCleanupCount((long) deletedCount);
+        config.setLastCleanupCount(deletedCount);
+        // 仓储的 save 自带事务
         configRepository.save(config);
 
         log.info("Cleanup completed: deleted {} events", deletedCount);
 
         return CleanupResult.builder()
                 .executed(true)
-                .deletedCount((long) deletedCount)
+                .deletedCount(deletedCount)
                 .message("Successfully deleted " + deletedCount + " events")
                 .build();
     }
@@ -108,7 +138,54 @@ public class CleanupSchedulerService {
         config.setRetentionDays(retentionDays);
         config.setEnabled(enabled);
         config.setUpdatedAt(LocalDateTime.now());
-        return configRepository.save(config);
+        CleanupConfig saved = configRepository.save(config);
+        eventPurger.wake();
+        return saved;
+    }
+
+    /**
+     * 全部保留规则
+     */
+    public List<RetentionRule> listRules() {
+        return ruleRepository.findAll();
+    }
+
+    /**
+     * 是否已存在相同来源与状态的规则
+     */
+    public boolean ruleExists(String source, String status) {
+        return ruleRepository.existsBySourceAndStatus(source, status);
+    }
+
+    /**
+     * 新增保留规则，并按新规则开始一轮清理
+     */
+    @Transactional
+    public RetentionRule addRule(String source, String status, Integer retentionHours) {
+        RetentionRule saved = ruleRepository.save(RetentionRule.builder()
+                .source(source)
+                .status(status)
+                .retentionHours(retentionHours)
+                .build());
+        log.info("Added retention rule: source={}, status={}, retentionHours={}", source, status, retentionHours);
+        eventPurger.wake();
+        return saved;
+    }
+
+    /**
+     * 删除保留规则
+     *
+     * @return false 表示规则不存在
+     */
+    @Transactional
+    public boolean deleteRule(Long id) {
+        if (!ruleRepository.existsById(id)) {
+            return false;
+        }
+        ruleRepository.deleteById(id);
+        log.info("Deleted retention rule {}", id);
+        eventPurger.wake();
+        return true;
     }
 
     /**
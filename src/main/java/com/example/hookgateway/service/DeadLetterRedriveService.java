@@ -0,0 +1,307 @@
+package com.example.hookgateway.service;
+
+import com.example.hookgateway.config.RedisStreamConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 死信重投服务：按批次、按速率将 DLQ 中的消息重新注入分发流。
+ * 同一时间只运行一个任务，支持进度查询与取消，避免故障恢复时瞬间压垮下游。
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "app.distribution.mode", havingValue = "redis")
+public class DeadLetterRedriveService {
+
+    private final DeadLetterService deadLetterService;
+    private final StringRedisTemplate redisTemplate;
+
+    private final Counter redrivenCounter;
+    private final Counter skippedCounter;
+    private final Counter failedCounter;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "DLQ-Redrive");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private volatile RedriveJob currentJob;
+
+    public DeadLetterRedriveService(DeadLetterService deadLetterService, StringRedisTemplate redisTemplate,
+            MeterRegistry meterRegistry) {
+        this.deadLetterService = deadLetterService;
+        this.redisTemplate = redisTemplate;
+        this.redrivenCounter = Counter.builder("webhook.dlq.redrive.events")
+                .tag("result", "redriven")
+                .description("DLQ entries re-injected into the distribution stream")
+                .register(meterRegistry);
+        this.skippedCounter = Counter.builder("webhook.dlq.redrive.events")
+                .tag("result", "skipped")
+                .description("DLQ entries scanned but not matching the redrive filter")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("webhook.dlq.redrive.events")
+                .tag("result", "failed")
+                .description("DLQ entries that could not be re-injected")
+                .register(meterRegistry);
+        Gauge.builder("webhook.dlq.redrive.running", this, s -> s.isRunning() ? 1 : 0)
+                .description("Whether a DLQ redrive job is running")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 启动重投任务。
+     *
+     * @param filter        过滤条件，可为 null
+     * @param batchSize     每批扫描条数
+     * @param ratePerSecond 每秒最多重投条数
+     * @return 任务进度快照
+     * @throws IllegalStateException 已有任务运行中
+     */
+    public synchronized RedriveProgress start(DeadLetterService.DeadLetterFilter filter, int batchSize,
+            int ratePerSecond) {
+        if (isRunning()) {
+            throw new IllegalStateException("A redrive job is already running: " + currentJob.id);
+        }
+
+        RedriveJob job = new RedriveJob(UUID.randomUUID().toString(), filter, batchSize, ratePerSecond);
+        currentJob = job;
+        executor.submit(() -> run(job));
+        log.info("[DLQ-Redrive] Started job {} (batchSize={}, rate={}/s, filter={})",
+                job.id, batchSize, ratePerSecond, filter);
+        return job.toProgress();
+    }
+
+    /**
+     * 请求取消当前任务，当前批次完成后停止。
+     *
+     * @return 任务进度快照；无任务时返回 null
+     */
+    public RedriveProgress cancel() {
+        RedriveJob job = currentJob;
+        if (job == null) {
+            return null;
+        }
+        job.cancelRequested = true;
+        return job.toProgress();
+    }
+
+    /**
+     * 获取最近一次任务的进度。
+     *
+     * @return 任务进度快照；无任务时返回 null
+     */
+    public RedriveProgress getProgress() {
+        RedriveJob job = currentJob;
+        return job != null ? job.toProgress() : null;
+    }
+
+    /**
+     * 是否有任务正在运行。
+     *
+     * @return true 表示运行中
+     */
+    public boolean isRunning() {
+        RedriveJob job = currentJob;
+        return job != null && "RUNNING".equals(job.status);
+    }
+
+    /**
+     * 停机时中断任务线程。
+     */
+    @PreDestroy
+    public void shutdown() {
+        RedriveJob job = currentJob;
+        if (job != null) {
+            job.cancelRequested = true;
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * 任务主循环：扫描一批、重投匹配的条目，然后按速率休眠。
+     *
+     * @param job 任务
+     */
+    private void run(RedriveJob job) {
+        try {
+            String cursor = null;
+            while (!job.cancelRequested) {
+                long batchStart = System.nanoTime();
+
+                DeadLetterService.DeadLetterPage page = deadLetterService.scan(cursor, job.batchSize, job.filter);
+                if (page.getScanned() == 0) {
+                    break;
+                }
+
+                List<DeadLetterService.DeadLetterEntry> toRedrive = page.getEntries().stream()
+                        .filter(e -> e.getEventId() != null)
+                        .toList();
+                int skipped = page.getScanned() - toRedrive.size();
+
+                int redriven = redrive(toRedrive);
+                job.scanned.addAndGet(page.getScanned());
+                job.redriven.addAndGet(redriven);
+                job.skipped.addAndGet(skipped);
+                job.failed.addAndGet(toRedrive.size() - redriven);
+                redrivenCounter.increment(redriven);
+                skippedCounter.increment(skipped);
+                failedCounter.increment(toRedrive.size() - redriven);
+
+                cursor = page.getNextCursor();
+                job.cursor = cursor;
+
+                if (!page.isHasMore()) {
+                    break;
+                }
+
+                // 速率控制：本批重投 N 条至少占用 N / rate 秒
+                long minBatchNanos = redriven * 1_000_000_000L / job.ratePerSecond;
+                long sleepNanos = minBatchNanos - (System.nanoTime() - batchStart);
+                if (sleepNanos > 0) {
+                    Thread.sleep(sleepNanos / 1_000_000, (int) (sleepNanos % 1_000_000));
+                }
+            }
+            job.finish(job.cancelRequested ? "CANCELLED" : "COMPLETED", null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.finish("CANCELLED", "Interrupted");
+        } catch (Exception e) {
+            log.error("[DLQ-Redrive] Job {} failed", job.id, e);
+            job.finish("FAILED", e.getMessage());
+        }
+        log.info("[DLQ-Redrive] Job {} finished: {}", job.id, job.toProgress());
+    }
+
+    /**
+     * 以管道方式将条目重新写入分发流并从 DLQ 删除。
+     *
+     * @param entries 待重投条目
+     * @return 成功重投的条数
+     */
+    private int redrive(List<DeadLetterService.DeadLetterEntry> entries) {
+        if (entries.isEmpty()) {
+            return 0;
+        }
+
+        byte[] rawStreamKey = RedisStreamConfig.STREAM_KEY.getBytes(StandardCharsets.UTF_8);
+        byte[] rawDlqKey = DeadLetterService.DLQ_STREAM_KEY.getBytes(StandardCharsets.UTF_8);
+        byte[] eventIdField = "eventId".getBytes(StandardCharsets.UTF_8);
+        byte[] redriveField = "_redrivenFrom".getBytes(StandardCharsets.UTF_8);
+
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                RedisStreamCommands streamCommands = connection.streamCommands();
+                for (DeadLetterService.DeadLetterEntry entry : entries) {
+                    streamCommands.xAdd(StreamRecords.rawBytes(Map.of(
+                            eventIdField, String.valueOf(entry.getEventId()).getBytes(StandardCharsets.UTF_8),
+                            redriveField, entry.getDlqId().getBytes(StandardCharsets.UTF_8)))
+                            .withStreamKey(rawStreamKey));
+                }
+                streamCommands.xDel(rawDlqKey, entries.stream()
+                        .map(e -> RecordId.of(e.getDlqId()))
+                        .toArray(RecordId[]::new));
+                return null;
+            });
+            return entries.size();
+        } catch (Exception e) {
+            log.error("[DLQ-Redrive] Failed to redrive batch of {} entries", entries.size(), e);
+            return 0;
+        }
+    }
+
+    /**
+     * 重投任务的运行状态。
+     */
+    private static class RedriveJob {
+        private final String id;
+        private final DeadLetterService.DeadLetterFilter filter;
+        private final int batchSize;
+        private final int ratePerSecond;
+        private final Instant startedAt = Instant.now();
+
+        private final AtomicLong scanned = new AtomicLong();
+        private final AtomicLong redriven = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+
+        private volatile String status = "RUNNING";
+        private volatile String cursor;
+        private volatile String message;
+        private volatile Instant finishedAt;
+        private volatile boolean cancelRequested;
+
+        RedriveJob(String id, DeadLetterService.DeadLetterFilter filter, int batchSize, int ratePerSecond) {
+            this.id = id;
+            this.filter = filter;
+            this.batchSize = batchSize;
+            this.ratePerSecond = ratePerSecond;
+        }
+
+        void finish(String finalStatus, String finalMessage) {
+            this.message = finalMessage;
+            this.finishedAt = Instant.now();
+            this.status = finalStatus;
+        }
+
+        RedriveProgress toProgress() {
+            return RedriveProgress.builder()
+                    .jobId(id)
+                    .status(status)
+                    .batchSize(batchSize)
+                    .ratePerSecond(ratePerSecond)
+                    .scanned(scanned.get())
+                    .redriven(redriven.get())
+                    .skipped(skipped.get())
+                    .failed(failed.get())
+                    .cursor(cursor)
+                    .cancelRequested(cancelRequested)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .message(message)
+                    .build();
+        }
+    }
+
+    /**
+     * 重投任务进度快照。
+     */
+    @Data
+    @Builder
+    public static class RedriveProgress {
+        private String jobId;
+        private String status; // RUNNING, COMPLETED, CANCELLED, FAILED
+        private int batchSize;
+        private int ratePerSecond;
+        private long scanned;
+        private long redriven;
+        private long skipped;
+        private long failed;
+        private String cursor;
+        private boolean cancelRequested;
+        private Instant startedAt;
+        private Instant finishedAt;
+        private String message;
+    }
+}
@@ -1,14 +1,26 @@
 package com.example.hookgateway.service;
 
 import com.example.hookgateway.config.RedisStreamConfig;
+import com.example.hookgateway.model.WebhookEvent;
+import com.example.hookgateway.repository.WebhookEventRepository;
+import lombok.Builder;
+import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
 import org.springframework.data.redis.connection.stream.MapRecord;
 import org.springframework.data.redis.connection.stream.RecordId;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 死信队列服务：处理反复失败、超过最大重试次数的消息。
@@ -21,6 +33,7 @@ import java.util.Map;
 public class DeadLetterService {
 
     private final StringRedisTemplate redisTemplate;
+    private final WebhookEventRepository eventRepository;
 
     public static final String DLQ_STREAM_KEY = "webhook:dlq";
     public static final int MAX_DELIVERY_COUNT = 5;
@@ -71,4 +84,141 @@ public class DeadLetterService {
         Long size = redisTemplate.opsForStream().size(DLQ_STREAM_KEY);
         return size != null ? size : 0;
     }
+
+    /**
+     * 按游标扫描死信队列（XRANGE，从游标之后开始），并按条件过滤。
+     * 返回的 nextCursor 指向本次扫描的最后一条记录（无论是否匹配），便于继续翻页。
+     *
+     * @param cursor    上一页的游标（DLQ 记录 ID），为空时从头开始
+     * @param scanCount 本次最多扫描的记录数
+     * @param filter    过滤条件，可为 null
+     * @return 死信分页结果
+     */
+    public DeadLetterPage scan(String cursor, int scanCount, DeadLetterFilter filter) {
+        Range<String> range = (cursor == null || cursor.isBlank())
+                ? Range.unbounded()
+                : Range.rightUnbounded(Range.Bound.exclusive(cursor));
+
+        List<MapRecord<String, Object, Object>> records = redisTemplate.opsForStream()
+                .range(DLQ_STREAM_KEY, range, Limit.limit().count(scanCount));
+
+        List<DeadLetterEntry> entries = new ArrayList<>();
+        Set<Long> eventIds = new HashSet<>();
+        if (records != null) {
+            for (MapRecord<String, Object, Object> record : records) {
+                DeadLetterEntry entry = toEntry(record);
+                entries.add(entry);
+                if (entry.getEventId() != null) {
+                    eventIds.add(entry.getEventId());
+                }
+            }
+        }
+
+        // 需要按来源过滤时，一次性批量查询事件来源
+        if (filter != null && filter.getSource() != null && !eventIds.isEmpty()) {
+            Map<Long, String> sources = new HashMap<>();
+            for (WebhookEvent event : eventRepository.findAllById(eventIds)) {
+                sources.put(event.getId(), event.getSource());
+            }
+            entries.forEach(e -> e.setSource(sources.get(e.getEventId())));
+        }
+
+        List<DeadLetterEntry> matched = filter == null
+                ? entries
+                : entries.stream().filter(filter::matches).toList();
+
+        String nextCursor = entries.isEmpty() ? cursor : entries.get(entries.size() - 1).getDlqId();
+        return DeadLetterPage.builder()
+                .entries(matched)
+                .scanned(entries.size())
+                .nextCursor(nextCursor)
+                .hasMore(entries.size() >= scanCount)
+                .build();
+    }
+
+    /**
+     * 将流记录转换为死信条目。
+     *
+     * @param record DLQ 流记录
+     * @return 死信条目
+     */
+    private DeadLetterEntry toEntry(MapRecord<String, Object, Object> record) {
+        Map<Object, Object> body = record.getValue();
+        Long eventId = null;
+        Object rawEventId = body.get("eventId");
+        if (rawEventId != null) {
+            try {
+                eventId = Long.parseLong(rawEventId.toString());
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        Object movedAt = body.get("_movedAt");
+        return DeadLetterEntry.builder()
+                .dlqId(record.getId().getValue())
+                .eventId(eventId)
+                .originalId(body.get("_originalId") != null ? body.get("_originalId").toString() : null)
+                .errorReason(body.get("_errorReason") != null ? body.get("_errorReason").toString() : null)
+                .movedAt(movedAt != null
+                        ? Instant.parse(movedAt.toString())
+                        : Instant.ofEpochMilli(record.getId().getTimestamp()))
+                .build();
+    }
+
+    /**
+     * 死信条目。
+     */
+    @Data
+    @Builder
+    public static class DeadLetterEntry {
+        private String dlqId;
+        private Long eventId;
+        private String originalId;
+        private String errorReason;
+        private Instant movedAt;
+        private String source; // 仅在按来源过滤时填充
+    }
+
+    /**
+     * 死信分页结果。
+     */
+    @Data
+    @Builder
+    public static class DeadLetterPage {
+        private List<DeadLetterEntry> entries;
+        private int scanned;
+        private String nextCursor;
+        private boolean hasMore;
+    }
+
+    /**
+     * 死信过滤条件：原因（包含匹配，忽略大小写）、来源（精确匹配）、进入 DLQ 的时间范围。
+     */
+    @Data
+    @Builder
+    public static class DeadLetterFilter {
+        private String reason;
+        private String source;
+        private Instant movedBefore;
+        private Instant movedAfter;
+
+        /**
+         * 判断条目是否满足过滤条件。
+         *
+         * @param entry 死信条目
+         * @return true 表示匹配
+         */
+        public boolean matches(DeadLetterEntry entry) {
+            if (reason != null && (entry.getErrorReason() == null
+                    || !entry.getErrorReason().toLowerCase().contains(reason.toLowerCase()))) {
+                return false;
+            }
+            if (source != null && !source.equals(entry.getSource())) {
+                return false;
+            }
+            if (movedBefore != null && entry.getMovedAt().isAfter(movedBefore)) {
+                return false;
+            }
+            return movedAfter == null || !entry.getMovedAt().isBefore(movedAfter);
+        }
+    }
 }
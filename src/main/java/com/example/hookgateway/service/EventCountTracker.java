@@ -0,0 +1,146 @@
+package com.example.hookgateway.service;
+
+import com.example.hookgateway.model.EventSourceCount;
+import com.example.hookgateway.repository.EventSourceCountRepository;
+import com.example.hookgateway.repository.WebhookEventRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按来源维护事件数（event_source_count），供仪表盘徽章使用。
+ * 入库与清理只在内存中累加增量，定时合并为每个来源一条 UPDATE，避免热点来源的计数行成为写入瓶颈；
+ * 多个节点各自累加增量，互不覆盖。
+ * 分区删除无法得知各来源删除了多少行，删除后与每天定时按 GROUP BY 重新校准。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EventCountTracker {
+
+    private static final String ADD_COUNT =
+            "UPDATE event_source_count SET event_count = event_count + ? WHERE source = ?";
+
+    private final EventSourceCountRepository countRepository;
+    private final WebhookEventRepository eventRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // 尚未写库的增量
+    private final Map<String, LongAdder> deltas = new ConcurrentHashMap<>();
+
+    /**
+     * 首次启动（计数表为空）时按现有事件初始化计数。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        if (countRepository.count() == 0 && eventRepository.count() > 0) {
+            reconcile();
+        }
+    }
+
+    /**
+     * 累加来源事件数。
+     *
+     * @param source 来源
+     * @param delta  增量（清理时为负数）
+     */
+    public void add(String source, long delta) {
+        if (source == null || delta == 0) {
+            return;
+        }
+        deltas.computeIfAbsent(source, s -> new LongAdder()).add(delta);
+    }
+
+    /**
+     * 各来源事件数（已写库的计数加上本节点未写库的增量）。
+     *
+     * @return 来源 -> 事件数
+     */
+    public Map<String, Long> counts() {
+        Map<String, Long> counts = new HashMap<>();
+        for (EventSourceCount count : countRepository.findAll()) {
+            counts.put(count.getSource(), count.getEventCount());
+        }
+        deltas.forEach((source, delta) -> counts.merge(source, delta.sum(), Long::sum));
+        return counts;
+    }
+
+    /**
+     * 定时写入增量。
+     */
+    @Scheduled(fixedDelayString = "${app.events.counts.flush-interval-ms:1000}")
+    public void flush() {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        Map<String, Long> drained = new HashMap<>();
+        for (String source : deltas.keySet()) {
+            LongAdder adder = deltas.get(source);
+            long delta = adder != null ? adder.sumThenReset() : 0;
+            if (delta != 0) {
+                drained.put(source, delta);
+            }
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(tx -> drained.forEach(this::apply));
+        } catch (Exception e) {
+            // 放回增量，下次重试
+            drained.forEach(this::add);
+            log.error("[EventCount] Failed to flush source counts", e);
+        }
+    }
+
+    /**
+     * 按事件表重新校准全部来源计数（GROUP BY，走 (source, received_at) 索引）。
+     */
+    @Scheduled(cron = "${app.events.counts.reconcile-cron:0 45 3 * * ?}")
+    public void reconcile() {
+        // 先写出已有增量，校准期间新增的少量事件可能重复计入，下次校准时修正
+        flush();
+        List<Object[]> rows = eventRepository.countGroupBySource();
+        transactionTemplate.executeWithoutResult(tx -> {
+            countRepository.deleteAllInBatch();
+            for (Object[] row : rows) {
+                if (row[0] != null) {
+                    countRepository.save(new EventSourceCount((String) row[0], ((Number) row[1]).longValue()));
+                }
+            }
+        });
+        log.info("[EventCount] Reconciled event counts for {} sources", rows.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void apply(String source, long delta) {
+        if (jdbcTemplate.update(ADD_COUNT, delta, source) > 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update("INSERT INTO event_source_count (source, event_count) VALUES (?, ?)", source,
+                    Math.max(0, delta));
+        } catch (DuplicateKeyException e) {
+            // 其他节点刚插入了该来源
+            jdbcTemplate.update(ADD_COUNT, delta, source);
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package com.example.hookgateway.service;
+
+import com.example.hookgateway.model.EventField;
+import com.example.hookgateway.model.FieldExtractor;
+import com.example.hookgateway.model.WebhookEvent;
+import com.example.hookgateway.repository.EventFieldRepository;
+import com.example.hookgateway.repository.FieldExtractorRepository;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.Option;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 事件字段索引：入库时按来源的 {@link FieldExtractor} 从请求体（JSONPath）或请求头中提取业务字段
+ * （订单号、仓库名、事件类型等），与事件同一事务写入 event_field；
+ * 按字段精确或前缀查询事件走 (field, value, eventId) 索引查找，不再扫描请求体。
+ * 提取规则缓存在内存中，修改后立即重新加载，其他节点定时重新加载。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EventFieldIndex {
+
+    public static final String TYPE_JSON_PATH = "JSON_PATH";
+    public static final String TYPE_HEADER = "HEADER";
+
+    private static final String INSERT_FIELD =
+            "INSERT INTO event_field (field, field_value, event_id, received_at) VALUES (?, ?, ?, ?)";
+
+    private static final int[] INSERT_FIELD_TYPES = { Types.VARCHAR, Types.VARCHAR, Types.BIGINT, Types.TIMESTAMP };
+
+    // JSONPath 命中数组时每个字段最多保留的值数
+    static final int MAX_VALUES_PER_FIELD = 16;
+
+    // 路径不存在时返回 null 而不是抛异常
+    private static final Configuration JSON_CONFIG = Configuration.defaultConfiguration()
+            .addOptions(Option.SUPPRESS_EXCEPTIONS);
+
+    private final FieldExtractorRepository extractorRepository;
+    private final EventFieldRepository fieldRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    // 来源 -> 已编译的提取规则
+    private volatile Map<String, List<Extractor>> extractors = Map.of();
+
+    /**
+     * 应用就绪后与定时（其他节点修改规则后）重新加载提取规则。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.fields.refresh-interval-ms:30000}",
+            initialDelayString = "${app.fields.refresh-interval-ms:30000}")
+    public void reload() {
+        Map<String, List<Extractor>> loaded = new LinkedHashMap<>();
+        for (FieldExtractor rule : extractorRepository.findAll()) {
+            try {
+                loaded.computeIfAbsent(rule.getSource(), s -> new ArrayList<>()).add(Extractor.compile(rule));
+            } catch (RuntimeException e) {
+                log.warn("[EventField] Skipping invalid extractor {} for source {}: {}", rule.getField(),
+                        rule.getSource(), e.getMessage());
+            }
+        }
+        extractors = loaded;
+    }
+
+    /**
+     * 获取全部提取规则。
+     *
+     * @return 规则列表
+     */
+    public List<FieldExtractor> listExtractors() {
+        return extractorRepository.findAll();
+    }
+
+    /**
+     * 是否已存在相同来源与字段名的规则。
+     *
+     * @param source 来源
+     * @param field  字段名
+     * @return 是否存在
+     */
+    public boolean extractorExists(String source, String field) {
+        return extractorRepository.existsBySourceAndField(source, field);
+    }
+
+    /**
+     * 新增提取规则（调用方需先校验表达式，见 {@link #isValidExpression}）。
+     *
+     * @param source     来源
+     * @param field      字段名
+     * @param type       JSON_PATH 或 HEADER
+     * @param expression JSONPath 表达式或请求头名称
+     * @return 保存后的规则
+     */
+    public FieldExtractor addExtractor(String source, String field, String type, String expression) {
+        FieldExtractor saved = extractorRepository.save(FieldExtractor.builder()
+                .source(source)
+                .field(field)
+                .type(type)
+                .expression(expression)
+                .build());
+        reload();
+        log.info("[EventField] Added extractor {} ({} {}) for source {}", field, type, expression, source);
+        return saved;
+    }
+
+    /**
+     * 删除提取规则，已提取的字段值保留到事件过期。
+     *
+     * @param id 规则 ID
+     * @return 规则是否存在
+     */
+    public boolean deleteExtractor(Long id) {
+        if (!extractorRepository.existsById(id)) {
+            return false;
+        }
+        extractorRepository.deleteById(id);
+        reload();
+        return true;
+    }
+
+    /**
+     * 校验提取表达式。
+     *
+     * @param type       JSON_PATH 或 HEADER
+     * @param expression 表达式
+     * @return 是否有效
+     */
+    public static boolean isValidExpression(String type, String expression) {
+        if (expression == null || expression.isBlank()) {
+            return false;
+        }
+        if (TYPE_HEADER.equals(type)) {
+            return true;
+        }
+        if (!TYPE_JSON_PATH.equals(type)) {
+            return false;
+        }
+        try {
+            JsonPath.compile(expression);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 为新事件提取并写入字段值（需在保存事件的事务中调用）。
+     *
+     * @param events 已保存的事件（带 ID，请求头与请求体在瞬时字段中）
+     */
+    public void index(List<WebhookEvent> events) {
+        Map<String, List<Extractor>> current = extractors;
+        if (current.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>();
+        for (WebhookEvent event : events) {
+            List<Extractor> rules = current.get(event.getSource());
+            if (rules == null) {
+                continue;
+            }
+            Timestamp receivedAt = event.getReceivedAt() != null ? Timestamp.valueOf(event.getReceivedAt()) : null;
+            extract(event, rules).forEach((field, values) -> {
+                for (String value : values) {
+                    rows.add(new Object[] { field, value, event.getId(), receivedAt });
+                }
+            });
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_FIELD, rows, INSERT_FIELD_TYPES);
+        }
+    }
+
+    /**
+     * 删除事件的字段值。
+     *
+     * @param eventIds 事件 ID 列表
+     */
+    public void remove(List<Long> eventIds) {
+        fieldRepository.deleteByEventIdIn(eventIds);
+    }
+
+    /**
+     * 查询多个事件的字段值。
+     *
+     * @param eventIds 事件 ID 列表
+     * @return 事件 ID -> (字段名 -> 值列表)
+     */
+    public Map<Long, Map<String, List<String>>> fieldsOf(Collection<Long> eventIds) {
+        if (eventIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, Map<String, List<String>>> fields = new LinkedHashMap<>();
+        for (EventField row : fieldRepository.findByEventIdIn(eventIds)) {
+            fields.computeIfAbsent(row.getEventId(), id -> new LinkedHashMap<>())
+                    .computeIfAbsent(row.getField(), f -> new ArrayList<>())
+                    .add(row.getValue());
+        }
+        return fields;
+    }
+
+    /**
+     * 字段过滤条件：每个过滤条件都需命中。
+     *
+     * @param filters 过滤条件
+     * @return 查询条件
+     */
+    public Specification<WebhookEvent> matching(List<FieldFilter> filters) {
+        return (root, criteria, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            for (FieldFilter filter : filters) {
+                Subquery<Long> hits = criteria.subquery(Long.class);
+                Root<EventField> f = hits.from(EventField.class);
+                Predicate value = filter.prefix()
+                        ? cb.like(f.get("value"), escapeLike(filter.value()) + "%", '\\')
+                        : cb.equal(f.get("value"), filter.value());
+                hits.select(f.get("eventId")).where(cb.equal(f.get("field"), filter.field()), value);
+                predicates.add(root.get("id").in(hits));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * 按规则提取事件的字段值。请求体不是合法 JSON 时跳过 JSONPath 规则。
+     *
+     * @param event 事件
+     * @param rules 该来源的提取规则
+     * @return 字段名 -> 去重后的值
+     */
+    static Map<String, Set<String>> extract(WebhookEvent event, List<Extractor> rules) {
+        Map<String, Set<String>> fields = new LinkedHashMap<>();
+        DocumentContext json = null;
+        boolean jsonParsed = false;
+        for (Extractor rule : rules) {
+            Set<String> values = new LinkedHashSet<>();
+            if (rule.path() != null) {
+                if (!jsonParsed) {
+                    jsonParsed = true;
+                    json = parseJson(event);
+                }
+                if (json != null) {
+                    collect(json.read(rule.path()), values);
+                }
+            } else {
+                String header = header(event.getHeaders(), rule.expression());
+                if (header != null) {
+                    addValue(header, values);
+                }
+            }
+            if (!values.isEmpty()) {
+                fields.put(rule.field(), values);
+            }
+        }
+        return fields;
+    }
+
+    private static DocumentContext parseJson(WebhookEvent event) {
+        if (event.getPayload() == null || event.getPayload().isBlank()) {
+            return null;
+        }
+        try {
+            return JsonPath.using(JSON_CONFIG).parse(event.getPayload());
+        } catch (RuntimeException e) {
+            log.debug("[EventField] Payload of event {} is not JSON, skipping JSONPath extractors", event.getId());
+            return null;
+        }
+    }
+
+    private static void collect(Object result, Set<String> values) {
+        if (result instanceof Collection<?> items) {
+            for (Object item : items) {
+                if (values.size() >= MAX_VALUES_PER_FIELD) {
+                    return;
+                }
+                // 只索引标量，嵌套对象与数组跳过
+                if (item != null && !(item instanceof Map) && !(item instanceof Collection)) {
+                    addValue(String.valueOf(item), values);
+                }
+            }
+        } else if (result != null && !(result instanceof Map)) {
+            addValue(String.valueOf(result), values);
+        }
+    }
+
+    private static void addValue(String value, Set<String> values) {
+        if (value.isEmpty()) {
+            return;
+        }
+        values.add(value.length() > EventField.MAX_VALUE_LENGTH
+                ? value.substring(0, EventField.MAX_VALUE_LENGTH)
+                : value);
+    }
+
+    /**
+     * 从 "name: value" 逐行格式的请求头中查找（名称不区分大小写）。
+     */
+    private static String header(String headers, String name) {
+        if (headers == null) {
+            return null;
+        }
+        for (String line : headers.split("\n")) {
+            int separator = line.indexOf(':');
+            if (separator > 0 && line.substring(0, separator).trim().equalsIgnoreCase(name)) {
+                return line.substring(separator + 1).trim();
+            }
+        }
+        return null;
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * 已编译的提取规则。
+     *
+     * @param field      字段名
+     * @param path       JSONPath（请求头规则为 null）
+     * @param expression 原始表达式
+     */
+    record Extractor(String field, JsonPath path, String expression) {
+
+        static Extractor compile(FieldExtractor rule) {
+            JsonPath path = TYPE_JSON_PATH.equals(rule.getType()) ? JsonPath.compile(rule.getExpression()) : null;
+            return new Extractor(rule.getField(), path, rule.getExpression());
+        }
+    }
+
+    /**
+     * 字段过滤条件。
+     *
+     * @param field  字段名
+     * @param value  值（前缀匹配时为前缀）
+     * @param prefix 是否前缀匹配
+     */
+    public record FieldFilter(String field, String value, boolean prefix) {
+
+        /**
+         * 解析 {@code field:value} 形式的过滤条件，值以 {@code *} 结尾表示前缀匹配。
+         *
+         * @param expression 过滤条件
+         * @return 过滤条件，格式无效时为 null
+         */
+        public static FieldFilter parse(String expression) {
+            if (expression == null) {
+                return null;
+            }
+            int separator = expression.indexOf(':');
+            if (separator <= 0 || separator == expression.length() - 1) {
+                return null;
+            }
+            String field = expression.substring(0, separator).trim();
+            String value = expression.substring(separator + 1);
+            boolean prefix = value.endsWith("*");
+            if (prefix) {
+                value = value.substring(0, value.length() - 1);
+            }
+            if (field.isEmpty() || value.isEmpty()) {
+                return null;
+            }
+            return new FieldFilter(field, value, prefix);
+        }
+    }
+}
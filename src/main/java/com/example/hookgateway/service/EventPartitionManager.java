@@ -0,0 +1,384 @@
+package com.example.hookgateway.service;
+
+import com.example.hookgateway.model.SchemaMigration;
+import com.example.hookgateway.repository.SchemaMigrationRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 事件表按时间分区（可选，仅 MySQL / MariaDB）。
+ * 开启后事件相关各表（见 {@link #TABLES}）按 received_at 做 RANGE 分区（按天或按周），
+ * 由应用预建未来分区；保留期清理改为直接 DROP PARTITION，代替大事务的逐行 DELETE。
+ * 其他数据库（如 H2）不支持该布局，自动回退为按时间 DELETE。
+ *
+ * <p>首次开启时需要把现有表改造为分区表（重建整表），建议在低峰期发布。
+ * 改造、预建分区与删除分区都在数据库命名锁（GET_LOCK）内执行，集群中同一时刻只有一个节点执行 DDL；
+ * 每张表改造完成后写入 schema_migration 记录，中途失败时下次启动从未完成的表继续。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EventPartitionManager {
+
+    static final List<String> TABLES = List.of("webhook_event", "webhook_event_body", "delivery_attempt",
+            "event_search_token", "event_field");
+
+    // 各表原主键列，分区后主键追加 received_at
+    private static final Map<String, String> PRIMARY_KEYS = Map.of(
+            "webhook_event", "id",
+            "webhook_event_body", "event_id",
+            "delivery_attempt", "id",
+            "event_search_token", "event_id, token",
+            "event_field", "event_id, field, field_value");
+
+    // 兜底分区：预建分区用尽时新数据写入这里，不会插入失败
+    private static final String MAX_PARTITION = "pmax";
+
+    // MySQL TO_DAYS('1970-01-01')
+    private static final long TO_DAYS_EPOCH = 719528;
+
+    // 首次改造时最多按实际数据补建的历史分区数，更早的数据并入第一个分区
+    private static final int MAX_HISTORY_PARTITIONS = 400;
+
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMMdd");
+
+    // 分区 DDL 的数据库命名锁，锁随持有连接关闭自动释放
+    private static final String LOCK_NAME = "hookgateway:event-partition";
+
+    // 启动时等待其他节点完成改造的单次锁等待时长（秒）
+    private static final int SETUP_LOCK_WAIT_SECONDS = 60;
+
+    // 每张表改造完成的迁移记录名前缀
+    private static final String MIGRATION_PREFIX = "event-partition:";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SchemaMigrationRepository migrationRepository;
+
+    @Value("${app.events.partitioning.enabled:false}")
+    private boolean enabled;
+
+    // 分区粒度：daily 或 weekly
+    @Value("${app.events.partitioning.interval:daily}")
+    private String interval;
+
+    // 预建的未来分区数
+    @Value("${app.events.partitioning.precreate:7}")
+    private int precreate;
+
+    private volatile boolean active;
+
+    private volatile Thread setupWorker;
+
+    /**
+     * 分区布局是否生效（已开启且数据库支持）。
+     *
+     * @return true 表示保留期清理应使用 {@link #dropPartitionsBefore}
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * 启动时检查数据库类型，在后台线程中将事件表改造为分区表并预建未来分区。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        String product = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        if (product == null || !(product.contains("MySQL") || product.contains("MariaDB"))) {
+            log.warn("[Partition] Event table partitioning requires MySQL/MariaDB but database is {}; "
+                    + "falling back to row deletes for retention", product);
+            return;
+        }
+        setupWorker = new Thread(this::setup, "Partition-Setup");
+        setupWorker.setDaemon(true);
+        setupWorker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (setupWorker != null) {
+            setupWorker.interrupt();
+        }
+    }
+
+    /**
+     * 获得锁后改造尚未完成的表；锁由其他节点持有（正在改造）时继续等待，之后在锁内重新检查各表状态。
+     */
+    private void setup() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Boolean done;
+            try {
+                done = withLock(SETUP_LOCK_WAIT_SECONDS, this::convertPending, null);
+            } catch (Exception e) {
+                log.error("[Partition] Failed to set up event table partitions; falling back to row deletes", e);
+                return;
+            }
+            if (done == null) {
+                log.info("[Partition] Partition setup is held by another node, waiting");
+                continue;
+            }
+            if (done) {
+                active = true;
+                maintainPartitions();
+            }
+            return;
+        }
+    }
+
+    /**
+     * 在锁内按表改造，每张表完成后记录进度。
+     *
+     * @return 是否所有表均已改造
+     */
+    private boolean convertPending() {
+        List<String> converted = new ArrayList<>();
+        for (String table : TABLES) {
+            try {
+                if (!migrationRepository.existsById(MIGRATION_PREFIX + table)) {
+                    if (listPartitions(table).isEmpty()) {
+                        convert(table);
+                    }
+                    migrationRepository.save(SchemaMigration.builder().name(MIGRATION_PREFIX + table)
+                            .completedAt(LocalDateTime.now()).build());
+                }
+                converted.add(table);
+            } catch (Exception e) {
+                log.error("[Partition] Failed to convert {} to a partitioned table (converted so far: {}); "
+                        + "falling back to row deletes, conversion resumes from {} on next start",
+                        table, converted, table, e);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 每天预建未来分区，由获得锁的一个节点执行。
+     */
+    @Scheduled(cron = "0 30 1 * * ?")
+    public void maintainPartitions() {
+        if (!active) {
+            return;
+        }
+        Boolean done = withLock(0, () -> {
+            createPartitions();
+            return true;
+        }, null);
+        if (done == null) {
+            log.debug("[Partition] Partition maintenance is running on another node, skipping");
+        }
+    }
+
+    private void createPartitions() {
+        LocalDate last = currentPeriodStart().plus(precreate, unit());
+        for (String table : TABLES) {
+            try {
+                List<LocalDate> existing = listPartitions(table);
+                LocalDate next = existing.isEmpty() ? currentPeriodStart()
+                        : existing.get(existing.size() - 1).plus(1, unit());
+                List<String> definitions = new ArrayList<>();
+                for (LocalDate start = next; !start.isAfter(last); start = start.plus(1, unit())) {
+                    definitions.add(definition(start));
+                }
+                if (definitions.isEmpty()) {
+                    continue;
+                }
+                definitions.add("PARTITION " + MAX_PARTITION + " VALUES LESS THAN MAXVALUE");
+                jdbcTemplate.execute("ALTER TABLE " + table + " REORGANIZE PARTITION " + MAX_PARTITION + " INTO ("
+                        + String.join(", ", definitions) + ")");
+                log.info("[Partition] Created {} partitions for {} up to {}", definitions.size() - 1, table, last);
+            } catch (Exception e) {
+                log.error("[Partition] Failed to pre-create partitions for {}", table, e);
+            }
+        }
+    }
+
+    /**
+     * 删除所有数据都早于截止时间的分区。跨越截止时间的分区保留到下一次清理，
+     * 因此实际保留时长按分区粒度向上取整。
+     *
+     * 由获得锁的一个节点执行，其他节点跳过并返回 0。
+     *
+     * @param cutoff 截止时间
+     * @return 删除的事件数（依据表统计信息，为近似值）
+     */
+    public long dropPartitionsBefore(LocalDateTime cutoff) {
+        Long dropped = withLock(0, () -> dropPartitions(cutoff), null);
+        if (dropped == null) {
+            log.info("[Partition] Partition drop is running on another node, skipping");
+            return 0;
+        }
+        return dropped;
+    }
+
+    private long dropPartitions(LocalDateTime cutoff) {
+        long cutoffDays = toDays(cutoff.toLocalDate());
+        long dropped = 0;
+        for (String table : TABLES) {
+            List<String> names = new ArrayList<>();
+            long rows = 0;
+            for (Map<String, Object> partition : queryPartitions(table)) {
+                String description = (String) partition.get("PARTITION_DESCRIPTION");
+                if ("MAXVALUE".equals(description) || Long.parseLong(description) > cutoffDays) {
+                    continue;
+                }
+                names.add((String) partition.get("PARTITION_NAME"));
+                Number tableRows = (Number) partition.get("TABLE_ROWS");
+                rows += tableRows != null ? tableRows.longValue() : 0;
+            }
+            if (names.isEmpty()) {
+                continue;
+            }
+            jdbcTemplate.execute("ALTER TABLE " + table + " DROP PARTITION " + String.join(", ", names));
+            log.info("[Partition] Dropped {} partitions (~{} rows) of {} older than {}", names.size(), rows, table,
+                    cutoff.toLocalDate());
+            if ("webhook_event".equals(table)) {
+                dropped = rows;
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * 将普通表改造为分区表：分区键必须包含在主键中，因此主键追加 received_at（见 {@link #PRIMARY_KEYS}）。
+     * 按现有数据的最早时间补建历史分区，更早的数据并入第一个分区。
+     */
+    private void convert(String table) {
+        if (!"webhook_event".equals(table)) {
+            // 分区键不能为空：补齐冗余的 received_at
+            jdbcTemplate.update("UPDATE " + table + " b JOIN webhook_event w ON w.id = b.event_id "
+                    + "SET b.received_at = w.received_at WHERE b.received_at IS NULL");
+            // 没有对应事件的孤立行不删除，记为当前时间，随保留期清理
+            int orphans = jdbcTemplate.update("UPDATE " + table + " SET received_at = NOW() "
+                    + "WHERE received_at IS NULL");
+            if (orphans > 0) {
+                log.warn("[Partition] {} rows of {} have no matching event; kept with received_at = now "
+                        + "until retention removes them", orphans, table);
+            }
+        } else {
+            jdbcTemplate.update("UPDATE webhook_event SET received_at = NOW() WHERE received_at IS NULL");
+        }
+
+        LocalDateTime oldest = jdbcTemplate.queryForObject("SELECT MIN(received_at) FROM " + table,
+                LocalDateTime.class);
+        LocalDate current = currentPeriodStart();
+        LocalDate first = oldest != null ? periodStart(oldest.toLocalDate()) : current;
+        LocalDate earliestAllowed = current.minus(MAX_HISTORY_PARTITIONS, unit());
+        if (first.isBefore(earliestAllowed)) {
+            first = earliestAllowed;
+        }
+
+        List<String> definitions = new ArrayList<>();
+        for (LocalDate start = first; !start.isAfter(current); start = start.plus(1, unit())) {
+            definitions.add(definition(start));
+        }
+        definitions.add("PARTITION " + MAX_PARTITION + " VALUES LESS THAN MAXVALUE");
+
+        log.warn("[Partition] Converting {} to a partitioned table ({} partitions); this rebuilds the table",
+                table, definitions.size());
+        jdbcTemplate.execute("ALTER TABLE " + table + " MODIFY received_at DATETIME(6) NOT NULL, "
+                + "DROP PRIMARY KEY, ADD PRIMARY KEY (" + PRIMARY_KEYS.get(table) + ", received_at)");
+        jdbcTemplate.execute("ALTER TABLE " + table + " PARTITION BY RANGE (TO_DAYS(received_at)) ("
+                + String.join(", ", definitions) + ")");
+    }
+
+    /**
+     * 按分区上界升序列出普通分区（不含兜底分区）的起始日期。
+     */
+    private List<LocalDate> listPartitions(String table) {
+        List<LocalDate> result = new ArrayList<>();
+        for (Map<String, Object> partition : queryPartitions(table)) {
+            String description = (String) partition.get("PARTITION_DESCRIPTION");
+            if (description != null && !"MAXVALUE".equals(description)) {
+                // 上界为下一周期的起点
+                result.add(LocalDate.ofEpochDay(Long.parseLong(description) - TO_DAYS_EPOCH).minus(1, unit()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 持有数据库命名锁执行任务。锁绑定在回调的连接上，任务中的 SQL 使用连接池中的其他连接。
+     *
+     * @param waitSeconds 获取锁的最长等待秒数，0 表示不等待
+     * @param work 任务
+     * @param otherwise 未获得锁时的返回值
+     */
+    private <T> T withLock(int waitSeconds, Supplier<T> work, T otherwise) {
+        return jdbcTemplate.execute((ConnectionCallback<T>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+                statement.setString(1, LOCK_NAME);
+                statement.setInt(2, waitSeconds);
+                try (ResultSet rs = statement.executeQuery()) {
+                    if (!rs.next() || rs.getInt(1) != 1) {
+                        return otherwise;
+                    }
+                }
+            }
+            try {
+                return work.get();
+            } finally {
+                try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+                    statement.setString(1, LOCK_NAME);
+                    statement.execute();
+                }
+            }
+        });
+    }
+
+    private List<Map<String, Object>> queryPartitions(String table) {
+        return jdbcTemplate.queryForList("SELECT PARTITION_NAME, PARTITION_DESCRIPTION, TABLE_ROWS "
+                + "FROM information_schema.PARTITIONS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? "
+                + "AND PARTITION_NAME IS NOT NULL ORDER BY PARTITION_ORDINAL_POSITION", table);
+    }
+
+    private String definition(LocalDate start) {
+        return "PARTITION " + start.format(PARTITION_NAME) + " VALUES LESS THAN ("
+                + toDays(start.plus(1, unit())) + ")";
+    }
+
+    private LocalDate currentPeriodStart() {
+        return periodStart(LocalDate.now());
+    }
+
+    private LocalDate periodStart(LocalDate date) {
+        return isWeekly() ? date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)) : date;
+    }
+
+    private ChronoUnit unit() {
+        return isWeekly() ? ChronoUnit.WEEKS : ChronoUnit.DAYS;
+    }
+
+    private boolean isWeekly() {
+        return "weekly".equalsIgnoreCase(interval);
+    }
+
+    private static long toDays(LocalDate date) {
+        return date.toEpochDay() + TO_DAYS_EPOCH;
+    }
+}
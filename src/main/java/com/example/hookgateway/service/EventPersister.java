@@ -1,25 +1,44 @@
 package com.example.hookgateway.service;
 
+import com.example.hookgateway.config.InstanceIdentity;
+import com.example.hookgateway.config.RedisStreamConfig;
 import com.example.hookgateway.model.WebhookEvent;
-import com.example.hookgateway.repository.WebhookEventRepository;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.stream.Consumer;
 import org.springframework.data.redis.connection.stream.MapRecord;
 import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
 import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Redis 摄入持久化：将摄入流批量写入数据库。
+ * 每个工作线程以独立消费者身份执行 XREADGROUP BLOCK 循环，
+ * 空闲时阻塞在 Redis 上，消息到达后立即返回并批量入库。
  */
 @Service
 @RequiredArgsConstructor
@@ -28,8 +47,9 @@ import java.util.Map;
 public class EventPersister {
 
     private final StringRedisTemplate redisTemplate;
-    private final WebhookEventRepository eventRepository;
+    private final WebhookEventStore eventStore;
     private final WebhookProcessingService processingService;
+    private final InstanceIdentity instanceIdentity;
 
     @Value("${app.ingest.stream.key:webhook:events:ingest}")
     private String ingestStreamKey;
@@ -37,80 +57,261 @@ public class EventPersister {
     @Value("${app.distribution.mode:async}")
     private String distributionMode;
 
+    // 并行持久化工作线程数，每个线程对应消费组中的一个消费者
+    @Value("${app.ingest.persister.workers:1}")
+    private int workerCount;
+
+    // XREADGROUP BLOCK 超时时间（毫秒），仅影响停机响应速度，不影响入库延迟
+    @Value("${app.ingest.persister.block-ms:2000}")
+    private long blockMs;
+
+    public static final String GROUP_NAME = "webhook-ingest-group";
+    public static final String CONSUMER_PREFIX = "persister";
+
     private static final int BATCH_SIZE = 500;
 
+    // 出错后的退避时间，避免 Redis 不可用时空转刷日志
+    private static final long ERROR_BACKOFF_MS = 1000;
+
+    private final List<PersisterWorker> workers = new CopyOnWriteArrayList<>();
+    private ExecutorService workerPool;
+    private volatile boolean running;
+
     /**
-     * 拉取摄入流并批量入库，随后触发分发。
+     * 应用就绪后创建消费者组并启动工作线程。
      */
-    @Scheduled(fixedDelay = 100) // 每 100ms 轮询一次
-    @SuppressWarnings("unchecked")
-    public void processPendingEvents() {
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        ensureGroup();
+
+        int count = Math.max(1, workerCount);
+        AtomicInteger threadIndex = new AtomicInteger();
+        workerPool = Executors.newFixedThreadPool(count, r -> {
+            Thread t = new Thread(r, "Persister-" + threadIndex.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+
+        running = true;
+        for (int i = 0; i < count; i++) {
+            // 第一个工作线程沿用实例消费者名称，失效消费者的消息会转移给它
+            String consumerName = i == 0 ? getConsumerName() : getConsumerName() + "-" + i;
+            PersisterWorker worker = new PersisterWorker(consumerName);
+            workers.add(worker);
+            workerPool.submit(() -> runLoop(worker));
+        }
+        log.info("[Persister] Started {} worker(s) on stream {}", count, ingestStreamKey);
+    }
+
+    /**
+     * 停止工作线程，等待当前批次结束。
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (workerPool == null) {
+            return;
+        }
+        workerPool.shutdownNow();
         try {
-            // 使用消费者组从 Redis 流批量拉取并 ACK，重启更安全
-            // 需要先确保消费者组存在
+            if (!workerPool.awaitTermination(blockMs + 5000, TimeUnit.MILLISECONDS)) {
+                log.warn("[Persister] Workers did not stop in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-            String group = "webhook-ingest-group";
-            String consumer = "persister-" + java.net.InetAddress.getLocalHost().getHostName();
+    /**
+     * 标记自身待确认列表中有待处理的积压消息，下一轮优先消费。
+     */
+    public void markBacklogPending() {
+        if (!workers.isEmpty()) {
+            workers.get(0).backlogPending = true;
+        }
+    }
 
+    /**
+     * 获取当前实例的摄入消费者名称。
+     *
+     * @return 消费者名称
+     */
+    public String getConsumerName() {
+        return instanceIdentity.consumerName(CONSUMER_PREFIX);
+    }
+
+    /**
+     * 确保摄入流与消费者组存在（MKSTREAM），仅在启动或 NOGROUP 时调用。
+     */
+    private void ensureGroup() {
+        try {
+            byte[] rawKey = ingestStreamKey.getBytes(StandardCharsets.UTF_8);
+            redisTemplate.execute((RedisCallback<String>) connection -> connection.streamCommands()
+                    .xGroupCreate(rawKey, GROUP_NAME, ReadOffset.from("0"), true));
+            log.info("[Persister] Created consumer group {} on stream {}", GROUP_NAME, ingestStreamKey);
+        } catch (Exception e) {
+            // 消费者组已存在，忽略即可
+            log.debug("[Persister] Consumer group already exists: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 工作线程主循环。
+     *
+     * @param worker 工作线程状态
+     */
+    private void runLoop(PersisterWorker worker) {
+        while (running && !Thread.currentThread().isInterrupted()) {
             try {
-                redisTemplate.opsForStream().createGroup(ingestStreamKey, group);
+                pollOnce(worker);
             } catch (Exception e) {
-                // 消费者组已存在，忽略即可
+                if (!running) {
+                    break;
+                }
+                log.error("Error in EventPersister worker {}", worker.consumerName, e);
+                if (String.valueOf(e.getMessage()).contains("NOGROUP")) {
+                    // 流被删除或 Redis 被清空，重新创建消费者组
+                    ensureGroup();
+                }
+                try {
+                    Thread.sleep(ERROR_BACKOFF_MS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
             }
+        }
+        log.info("[Persister] Worker {} stopped", worker.consumerName);
+    }
 
-            List<MapRecord<String, Object, Object>> messages = redisTemplate.opsForStream().read(
-                    org.springframework.data.redis.connection.stream.Consumer.from(group, consumer),
-                    org.springframework.data.redis.connection.stream.StreamReadOptions.empty().count(BATCH_SIZE),
-                    StreamOffset.create(ingestStreamKey, ReadOffset.lastConsumed()));
+    /**
+     * 读取一批消息并入库。
+     * 积压模式下从 "0" 非阻塞读取自身待确认列表，否则阻塞等待新消息。
+     *
+     * @param worker 工作线程状态
+     * @return 本次处理的消息数
+     */
+    @SuppressWarnings("unchecked")
+    int pollOnce(PersisterWorker worker) {
+        boolean drainingBacklog = worker.backlogPending;
+
+        StreamReadOptions options = StreamReadOptions.empty().count(BATCH_SIZE);
+        if (!drainingBacklog) {
+            options = options.block(Duration.ofMillis(blockMs));
+        }
 
-            if (messages == null || messages.isEmpty()) {
-                return;
+        List<MapRecord<String, Object, Object>> messages = redisTemplate.opsForStream().read(
+                Consumer.from(GROUP_NAME, worker.consumerName),
+                options,
+                StreamOffset.create(ingestStreamKey,
+                        drainingBacklog ? ReadOffset.from("0") : ReadOffset.lastConsumed()));
+
+        if (messages == null || messages.isEmpty()) {
+            if (drainingBacklog) {
+                worker.backlogPending = false;
             }
+            return 0;
+        }
+
+        flush(messages);
+        return messages.size();
+    }
 
-            List<WebhookEvent> eventsToSave = new ArrayList<>();
-            List<String> recordIds = new ArrayList<>();
-
-            for (MapRecord<String, Object, Object> message : messages) {
-                Map<Object, Object> body = message.getValue();
-                WebhookEvent event = WebhookEvent.builder()
-                        .source((String) body.get("source"))
-                        .method((String) body.get("method"))
-                        .headers((String) body.get("headers"))
-                        .payload((String) body.get("payload"))
-                        .receivedAt(LocalDateTime.parse((String) body.get("receivedAt"))) // 按 ISO 时间解析
-                        .status("PENDING")
-                        .build();
-                eventsToSave.add(event);
+    /**
+     * 批量入库，随后触发分发并确认消息。
+     *
+     * @param messages 摄入流消息
+     */
+    private void flush(List<MapRecord<String, Object, Object>> messages) {
+        List<WebhookEvent> eventsToSave = new ArrayList<>();
+        List<String> recordIds = new ArrayList<>();
+
+        for (MapRecord<String, Object, Object> message : messages) {
+            Map<Object, Object> body = message.getValue();
+            if (body == null || body.isEmpty()) {
+                // 待确认列表中已被删除的条目，仅 ACK 清理
                 recordIds.add(message.getId().getValue());
+                continue;
+            }
+            WebhookEvent event = WebhookEvent.builder()
+                    .source((String) body.get("source"))
+                    .method((String) body.get("method"))
+                    .headers((String) body.get("headers"))
+                    .payload((String) body.get("payload"))
+                    .receivedAt(LocalDateTime.parse((String) body.get("receivedAt"))) // 按 ISO 时间解析
+                    .status("PENDING")
+                    .build();
+            eventsToSave.add(event);
+            recordIds.add(message.getId().getValue());
+        }
+
+        // 批量入库
+        List<WebhookEvent> savedEvents = eventStore.createAll(eventsToSave);
+        log.info("[Persister] Flushed {} events to DB", savedEvents.size());
+
+        // 入库后继续分发逻辑
+        boolean redisDistribution = "redis".equalsIgnoreCase(distributionMode);
+        if (!redisDistribution) {
+            for (WebhookEvent saved : savedEvents) {
+                processingService.processEventAsync(saved);
             }
+        }
 
-            // 批量入库
-            List<WebhookEvent> savedEvents = eventRepository.saveAll(eventsToSave);
-            log.info("[Persister] Flushed {} events to DB", savedEvents.size());
-
-            // 入库后继续分发逻辑
-            if ("redis".equalsIgnoreCase(distributionMode)) {
-                // 推送到分发流
-                for (WebhookEvent saved : savedEvents) {
-                    log.info("Dispatching event {} via Redis Stream (from Persister)", saved.getId());
-                    redisTemplate.opsForStream().add(
-                            com.example.hookgateway.config.RedisStreamConfig.STREAM_KEY,
-                            java.util.Collections.singletonMap("eventId", String.valueOf(saved.getId())));
-                }
-            } else {
-                for (WebhookEvent saved : savedEvents) {
-                    processingService.processEventAsync(saved);
+        // 推送到分发流 + ACK + 删除：合并为一次管道往返
+        forwardAndAcknowledge(redisDistribution ? savedEvents : List.of(), recordIds);
+    }
+
+    /**
+     * 以管道方式批量执行：XADD 到分发流（每个事件一条）、XACK 与 XDEL 摄入流记录。
+     * 500 条事件的批次只需一次网络往返，而不是约 502 次。
+     *
+     * @param toDispatch 需推送到分发流的事件
+     * @param recordIds  需确认并删除的摄入流记录 ID
+     */
+    void forwardAndAcknowledge(List<WebhookEvent> toDispatch, List<String> recordIds) {
+        byte[] rawIngestKey = ingestStreamKey.getBytes(StandardCharsets.UTF_8);
+        byte[] rawDistributionKey = RedisStreamConfig.STREAM_KEY.getBytes(StandardCharsets.UTF_8);
+        byte[] eventIdField = "eventId".getBytes(StandardCharsets.UTF_8);
+        byte[] sourceField = "source".getBytes(StandardCharsets.UTF_8);
+        byte[] methodField = "method".getBytes(StandardCharsets.UTF_8);
+        RecordId[] ids = recordIds.stream().map(RecordId::of).toArray(RecordId[]::new);
+
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            RedisStreamCommands streamCommands = connection.streamCommands();
+            for (WebhookEvent saved : toDispatch) {
+                // 携带来源与方法，消费者只需读取大字段行
+                Map<byte[], byte[]> fields = new LinkedHashMap<>();
+                fields.put(eventIdField, String.valueOf(saved.getId()).getBytes(StandardCharsets.UTF_8));
+                if (saved.getSource() != null && saved.getMethod() != null) {
+                    fields.put(sourceField, saved.getSource().getBytes(StandardCharsets.UTF_8));
+                    fields.put(methodField, saved.getMethod().getBytes(StandardCharsets.UTF_8));
                 }
+                streamCommands.xAdd(StreamRecords.rawBytes(fields).withStreamKey(rawDistributionKey));
+            }
+            if (ids.length > 0) {
+                // 确认（ACK）
+                streamCommands.xAck(rawIngestKey, GROUP_NAME, ids);
+                // 删除已处理记录以释放内存
+                streamCommands.xDel(rawIngestKey, ids);
             }
+            return null;
+        });
+
+        if (!toDispatch.isEmpty()) {
+            log.info("[Persister] Dispatched {} events via Redis Stream", toDispatch.size());
+        }
+    }
 
-            // 确认（ACK）
-            redisTemplate.opsForStream().acknowledge(ingestStreamKey, group, recordIds.toArray(new String[0]));
+    /**
+     * 工作线程状态：消费者名称与积压标记。
+     */
+    static class PersisterWorker {
+        private final String consumerName;
 
-            // 可选：删除已处理记录以释放内存
-            redisTemplate.opsForStream().delete(ingestStreamKey, recordIds.toArray(new String[0]));
+        // 为 true 时先从 "0" 读取自身待确认列表（重启遗留或接管自失效消费者的消息）
+        private volatile boolean backlogPending = true;
 
-        } catch (Exception e) {
-            log.error("Error in EventPersister", e);
+        PersisterWorker(String consumerName) {
+            this.consumerName = consumerName;
         }
     }
 }
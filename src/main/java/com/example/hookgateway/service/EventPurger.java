@@ -0,0 +1,267 @@
+package com.example.hookgateway.service;
+
+import com.example.hookgateway.model.CleanupConfig;
+import com.example.hookgateway.model.RetentionRule;
+import com.example.hookgateway.repository.CleanupConfigRepository;
+import com.example.hookgateway.repository.RetentionRuleRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 增量事件清理：后台线程持续按块删除过期事件，每块单独提交事务，
+ * 块间按行数预算（行/秒）与实际删除耗时限速，避免凌晨一次性大事务锁表、撑爆 undo 日志。
+ * 删除耗时超过目标时块大小减半，恢复后逐步放大。
+ * 每轮开始时按保留规则生成清理分段（见 {@link RetentionPolicy}），依次清理各分段直到追平。
+ * 事件表已按时间分区且没有保留规则时由分区删除负责，本线程空闲。
+ */
+@Component
+@Slf4j
+public class EventPurger {
+
+    private final CleanupConfigRepository configRepository;
+    private final RetentionRuleRepository ruleRepository;
+    private final WebhookEventStore eventStore;
+    private final EventPartitionManager partitionManager;
+
+    private final Counter purgedCounter;
+    private final Timer chunkTimer;
+
+    // 清理滞后（秒）：最早未清理事件超出保留期的时长
+    private final AtomicLong lagSeconds = new AtomicLong();
+
+    // 单块最多删除的事件数
+    @Value("${app.cleanup.chunk-size:1000}")
+    private int maxChunkSize;
+
+    // 删除速率上限（行/秒）
+    @Value("${app.cleanup.rows-per-second:2000}")
+    private int rowsPerSecond;
+
+    // 单块删除的目标耗时（毫秒），超过后缩小块并延长间隔
+    @Value("${app.cleanup.target-chunk-latency-ms:500}")
+    private long targetChunkLatencyMs;
+
+    // 已追平或清理关闭时的检查间隔（毫秒）
+    @Value("${app.cleanup.idle-interval-ms:60000}")
+    private long idleIntervalMs;
+
+    // 进度写回 CleanupConfig 的最小间隔
+    private static final long PROGRESS_INTERVAL_MS = 10_000;
+
+    private final Object wakeLock = new Object();
+    private Thread worker;
+    private volatile boolean running;
+
+    private int chunkSize;
+    // 本轮的清理分段与当前分段下标，为 null 时下一次重新生成
+    private List<RetentionPolicy.Segment> segments;
+    private int segmentIndex;
+    private volatile boolean replan;
+    private CleanupConfig config;
+    // 当前一轮（从开始清理到追平）已删除的事件数
+    private volatile long passPurged;
+    private long lastProgressAt;
+
+    public EventPurger(CleanupConfigRepository configRepository, RetentionRuleRepository ruleRepository,
+            WebhookEventStore eventStore, EventPartitionManager partitionManager, MeterRegistry meterRegistry) {
+        this.configRepository = configRepository;
+        this.ruleRepository = ruleRepository;
+        this.eventStore = eventStore;
+        this.partitionManager = partitionManager;
+        this.purgedCounter = Counter.builder("webhook.cleanup.purged")
+                .description("Expired events deleted by the incremental purger")
+                .register(meterRegistry);
+        this.chunkTimer = Timer.builder("webhook.cleanup.chunk")
+                .description("Time spent deleting one chunk of expired events")
+                .register(meterRegistry);
+        Gauge.builder("webhook.cleanup.lag.seconds", lagSeconds, AtomicLong::get)
+                .description("How far the oldest remaining event is past its retention period")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 应用就绪后启动清理线程。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        chunkSize = maxChunkSize;
+        running = true;
+        worker = new Thread(this::runLoop, "Event-Purger");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("[Purger] Started incremental purger (chunkSize={}, rowsPerSecond={})", maxChunkSize,
+                rowsPerSecond);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    /**
+     * 按最新配置与规则立即开始一轮清理（配置变更或手动触发时调用）。
+     */
+    public void wake() {
+        replan = true;
+        synchronized (wakeLock) {
+            wakeLock.notifyAll();
+        }
+    }
+
+    /**
+     * 当前一轮已删除的事件数。
+     */
+    public long getPassPurged() {
+        return passPurged;
+    }
+
+    /**
+     * 当前清理滞后（秒）。
+     */
+    public long getLagSeconds() {
+        return lagSeconds.get();
+    }
+
+    private void runLoop() {
+        while (running && !Thread.currentThread().isInterrupted()) {
+            long pauseMs;
+            try {
+                pauseMs = purgeOnce();
+            } catch (Exception e) {
+                log.error("[Purger] Failed to purge expired events", e);
+                pauseMs = idleIntervalMs;
+            }
+            if (pauseMs <= 0) {
+                continue;
+            }
+            try {
+                synchronized (wakeLock) {
+                    wakeLock.wait(pauseMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 删除一块过期事件。
+     *
+     * @return 距下一块的等待时间（毫秒）
+     */
+    long purgeOnce() {
+        if (segments == null || replan) {
+            replan = false;
+            if (!startPass()) {
+                lagSeconds.set(0);
+                return idleIntervalMs;
+            }
+        }
+
+        RetentionPolicy.Segment segment = segments.get(segmentIndex);
+        // 是否追平按本块实际使用的块大小判断，块大小随后才按耗时调整
+        int limit = chunkSize;
+        long start = System.nanoTime();
+        WebhookEventStore.PurgeResult result = eventStore.purgeChunk(segment, limit);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        int deleted = result.deleted();
+        chunkTimer.record(elapsedMs, TimeUnit.MILLISECONDS);
+        purgedCounter.increment(deleted);
+        passPurged += deleted;
+        if (result.oldestReceivedAt() != null) {
+            lagSeconds.set(Math.max(0, Duration.between(result.oldestReceivedAt(), segment.cutoff()).toSeconds()));
+        }
+
+        adaptChunkSize(elapsedMs);
+        if (deleted < limit) {
+            // 当前分段已追平，立即处理下一个分段
+            segmentIndex++;
+            if (segmentIndex < segments.size()) {
+                return deleted > 0 ? throttle(deleted, elapsedMs) : 0;
+            }
+            segments = null;
+            lagSeconds.set(0);
+            if (passPurged > 0) {
+                // 空闲检查不写库，保留上一轮的清理数
+                reportProgress();
+                log.info("[Purger] Caught up: purged {} expired events", passPurged);
+                passPurged = 0;
+            }
+            return idleIntervalMs;
+        }
+        if (System.currentTimeMillis() - lastProgressAt >= PROGRESS_INTERVAL_MS) {
+            reportProgress();
+        }
+        return throttle(deleted, elapsedMs);
+    }
+
+    /**
+     * 开始新一轮清理：读取配置与保留规则并生成清理分段。
+     *
+     * @return false 表示清理已关闭或无需按行删除
+     */
+    private boolean startPass() {
+        config = configRepository.findAll().stream().findFirst().orElse(null);
+        if (config == null || !Boolean.TRUE.equals(config.getEnabled())) {
+            return false;
+        }
+        List<RetentionRule> rules = ruleRepository.findAll();
+        if (partitionManager.isActive() && rules.isEmpty()) {
+            return false;
+        }
+        List<String> sources = rules.isEmpty() ? List.of() : eventStore.findDistinctSources();
+        segments = RetentionPolicy.plan(rules, config.getRetentionDays(), sources, LocalDateTime.now());
+        segmentIndex = 0;
+        if (segments.isEmpty()) {
+            segments = null;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 块间等待时间。
+     */
+    private long throttle(int deleted, long elapsedMs) {
+        // 行数预算：本块应占用的时长减去已耗时；删除变慢时至少再等同样长的时间让数据库喘息
+        long budgetMs = rowsPerSecond > 0 ? deleted * 1000L / rowsPerSecond : 0;
+        long pauseMs = Math.max(0, budgetMs - elapsedMs);
+        if (elapsedMs > targetChunkLatencyMs) {
+            pauseMs = Math.max(pauseMs, elapsedMs);
+        }
+        return pauseMs;
+    }
+
+    /**
+     * 删除耗时超过目标时块大小减半，低于目标一半时逐步恢复到配置值。
+     */
+    private void adaptChunkSize(long elapsedMs) {
+        if (elapsedMs > targetChunkLatencyMs) {
+            chunkSize = Math.max(10, chunkSize / 2);
+        } else if (elapsedMs < targetChunkLatencyMs / 2 && chunkSize < maxChunkSize) {
+            chunkSize = Math.min(maxChunkSize, chunkSize + Math.max(10, chunkSize / 4));
+        }
+    }
+
+    private void reportProgress() {
+        lastProgressAt = System.currentTimeMillis();
+        configRepository.updateProgress(config.getId(), LocalDateTime.now(), passPurged, lagSeconds.get());
+    }
+}
@@ -0,0 +1,405 @@
+package com.example.hookgateway.service;
+
+import com.example.hookgateway.model.DeliveryAttempt;
+import com.example.hookgateway.model.EventRollup;
+import com.example.hookgateway.model.EventRollup.Granularity;
+import com.example.hookgateway.repository.EventLatencyRollupRepository;
+import com.example.hookgateway.repository.EventRollupRepository;
+import com.example.hookgateway.repository.WebhookEventRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 维护分钟 / 小时 / 天三级事件汇总（event_rollup 与 event_latency_rollup），供监控概览与趋势图使用。
+ * 入库、投递结果与隧道 ACK 只在内存中按（粒度, 时间桶, 来源, 状态）累加，定时合并为增量 UPDATE 批量写库；
+ * 多个节点各自累加增量，互不覆盖。过期的汇总按粒度定时删除。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EventRollupTracker {
+
+    /**
+     * 投递耗时区间上界（毫秒），超过最后一个上界的耗时计入最后一个区间。
+     */
+    static final int[] LATENCY_BOUNDS_MS = { 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000 };
+
+    // 结果以客户端 ACK 为准的隧道投递尝试状态
+    private static final Set<String> AWAITING_ACK_STATUSES = Set.of("DISPATCHED", "BUFFERED");
+
+    // 计入耗时分布的 HTTP 投递尝试状态（跳过的订阅没有耗时）
+    private static final Set<String> DELIVERED_STATUSES = Set.of("SUCCESS", "FAILED");
+
+    private static final String ADD_ROLLUP = "UPDATE event_rollup SET event_count = event_count + ?, "
+            + "total_bytes = total_bytes + ? WHERE granularity = ? AND bucket_start = ? AND source = ? AND status = ?";
+
+    private static final String INSERT_ROLLUP = "INSERT INTO event_rollup (event_count, total_bytes, granularity, "
+            + "bucket_start, source, status) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final int[] ROLLUP_TYPES = { Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.TIMESTAMP,
+            Types.VARCHAR, Types.VARCHAR };
+
+    private static final String ADD_LATENCY = "UPDATE event_latency_rollup SET sample_count = sample_count + ? "
+            + "WHERE granularity = ? AND bucket_start = ? AND source = ? AND status = ? AND upper_ms = ?";
+
+    private static final String INSERT_LATENCY = "INSERT INTO event_latency_rollup (sample_count, granularity, "
+            + "bucket_start, source, status, upper_ms) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final int[] LATENCY_TYPES = { Types.BIGINT, Types.VARCHAR, Types.TIMESTAMP, Types.VARCHAR,
+            Types.VARCHAR, Types.INTEGER };
+
+    private final EventRollupRepository rollupRepository;
+    private final EventLatencyRollupRepository latencyRepository;
+    private final WebhookEventRepository eventRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // 尚未写库的增量（只在 ConcurrentHashMap 的 compute / merge 中修改）
+    private final Map<RollupKey, Delta> pending = new ConcurrentHashMap<>();
+
+    // 分钟汇总保留小时数
+    @Value("${app.rollups.minute-retention-hours:48}")
+    private int minuteRetentionHours;
+
+    // 小时汇总保留天数
+    @Value("${app.rollups.hour-retention-days:90}")
+    private int hourRetentionDays;
+
+    // 天汇总保留天数
+    @Value("${app.rollups.day-retention-days:730}")
+    private int dayRetentionDays;
+
+    /**
+     * 累加一次统计（到达或投递结果）。
+     *
+     * @param source    来源
+     * @param status    状态，到达为 {@link EventRollup#RECEIVED}
+     * @param at        发生时间
+     * @param bytes     请求体字节数
+     * @param latencies 投递耗时（毫秒），可为空
+     */
+    public void record(String source, String status, LocalDateTime at, long bytes, List<Long> latencies) {
+        if (source == null || status == null) {
+            return;
+        }
+        long[] histogram = new long[LATENCY_BOUNDS_MS.length];
+        for (Long latency : latencies) {
+            if (latency != null) {
+                histogram[latencyBucket(latency)]++;
+            }
+        }
+        for (Granularity granularity : Granularity.values()) {
+            RollupKey key = new RollupKey(granularity, granularity.bucketOf(at), source, status);
+            pending.compute(key, (k, delta) -> (delta != null ? delta : new Delta()).add(1, bytes, histogram));
+        }
+    }
+
+    /**
+     * 累加一次投递或重放结果。有隧道投递已下发（或已缓冲）时按 {@link EventRollup#PENDING} 计入，
+     * 最终结果只在 ACK 到达时由 {@link #recordAcks} 计一次；耗时只取 HTTP 请求的尝试，隧道下发与跳过的订阅不计入。
+     *
+     * @param source   来源
+     * @param status   投递后的事件状态
+     * @param at       发生时间
+     * @param bytes    请求体字节数
+     * @param attempts 本次的投递尝试
+     */
+    public void recordDelivery(String source, String status, LocalDateTime at, long bytes,
+            List<DeliveryAttempt> attempts) {
+        boolean awaitingAck = false;
+        List<Long> latencies = new ArrayList<>();
+        for (DeliveryAttempt attempt : attempts) {
+            if (WebhookEventStore.isTunnelTarget(attempt.getTarget())) {
+                awaitingAck |= AWAITING_ACK_STATUSES.contains(attempt.getStatus());
+            } else if (DELIVERED_STATUSES.contains(attempt.getStatus())) {
+                latencies.add(attempt.getLatencyMs());
+            }
+        }
+        record(source, awaitingAck ? EventRollup.PENDING : status, at, bytes, latencies);
+    }
+
+    /**
+     * 累加一批隧道 ACK 的投递结果（来源按事件 ID 批量查询，ACK 不计字节数）。
+     *
+     * @param statuses  事件 ID -> ACK 状态
+     * @param latencies 事件 ID -> 投递耗时（毫秒）
+     */
+    public void recordAcks(Map<Long, String> statuses, Map<Long, Long> latencies) {
+        LocalDateTime now = LocalDateTime.now();
+        for (Object[] row : eventRepository.findSourcesByIdIn(statuses.keySet())) {
+            Long id = (Long) row[0];
+            Long latency = latencies.get(id);
+            record((String) row[1], statuses.get(id), now, 0, latency != null ? List.of(latency) : List.of());
+        }
+    }
+
+    /**
+     * 定时写入增量。
+     */
+    @Scheduled(fixedDelayString = "${app.rollups.flush-interval-ms:5000}")
+    public void flush() {
+        Map<RollupKey, Delta> drained = new LinkedHashMap<>();
+        for (RollupKey key : pending.keySet()) {
+            Delta delta = pending.remove(key);
+            if (delta != null) {
+                drained.put(key, delta);
+            }
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(tx -> write(drained));
+        } catch (Exception e) {
+            // 放回增量，下次重试
+            drained.forEach((key, delta) -> pending.merge(key, delta, Delta::plus));
+            log.error("[Rollup] Failed to flush {} rollup rows", drained.size(), e);
+        }
+    }
+
+    /**
+     * 按粒度删除过期汇总。
+     */
+    @Scheduled(cron = "${app.rollups.prune-cron:0 20 * * * ?}")
+    public void prune() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Granularity, LocalDateTime> cutoffs = Map.of(
+                Granularity.MINUTE, now.minusHours(minuteRetentionHours),
+                Granularity.HOUR, now.minusDays(hourRetentionDays),
+                Granularity.DAY, now.minusDays(dayRetentionDays));
+        int deleted = transactionTemplate.execute(tx -> {
+            int rows = 0;
+            for (Map.Entry<Granularity, LocalDateTime> cutoff : cutoffs.entrySet()) {
+                rows += rollupRepository.deleteOlderThan(cutoff.getKey(), cutoff.getValue());
+                rows += latencyRepository.deleteOlderThan(cutoff.getKey(), cutoff.getValue());
+            }
+            return rows;
+        });
+        if (deleted > 0) {
+            log.info("[Rollup] Pruned {} expired rollup rows", deleted);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * 各状态的事件数。
+     *
+     * @param granularity 粒度
+     * @param from        起始时间（所在时间桶起算）
+     * @return 状态 -> 事件数
+     */
+    public Map<String, Long> statusTotals(Granularity granularity, LocalDateTime from) {
+        Map<String, Long> totals = new HashMap<>();
+        for (Object[] row : rollupRepository.sumByStatus(granularity, granularity.bucketOf(from))) {
+            totals.put((String) row[0], ((Number) row[1]).longValue());
+        }
+        return totals;
+    }
+
+    /**
+     * 时间序列：区间内每个时间桶一个点，没有数据的时间桶计数为 0。
+     *
+     * @param granularity 粒度
+     * @param from        起始时间（所在时间桶起算）
+     * @param to          结束时间（不含）
+     * @param source      来源，为 null 时汇总全部来源
+     * @return 按时间升序的数据点
+     */
+    public List<RollupPoint> series(Granularity granularity, LocalDateTime from, LocalDateTime to, String source) {
+        LocalDateTime start = granularity.bucketOf(from);
+        Map<LocalDateTime, Map<String, Long>> counts = new HashMap<>();
+        Map<LocalDateTime, Long> bytes = new HashMap<>();
+        for (Object[] row : rollupRepository.sumByBucketAndStatus(granularity, start, to, source)) {
+            LocalDateTime bucket = (LocalDateTime) row[0];
+            counts.computeIfAbsent(bucket, b -> new LinkedHashMap<>()).put((String) row[1],
+                    ((Number) row[2]).longValue());
+            bytes.merge(bucket, ((Number) row[3]).longValue(), Long::sum);
+        }
+        Map<LocalDateTime, long[]> histograms = new HashMap<>();
+        for (Object[] row : latencyRepository.sumByBucket(granularity, start, to, source)) {
+            int index = Arrays.binarySearch(LATENCY_BOUNDS_MS, (Integer) row[1]);
+            if (index >= 0) {
+                histograms.computeIfAbsent((LocalDateTime) row[0], b -> new long[LATENCY_BOUNDS_MS.length])[index] +=
+                        ((Number) row[2]).longValue();
+            }
+        }
+
+        List<RollupPoint> points = new ArrayList<>();
+        for (LocalDateTime bucket = start; bucket.isBefore(to); bucket = bucket.plus(1, granularity.unit())) {
+            long[] histogram = histograms.get(bucket);
+            points.add(new RollupPoint(bucket, counts.getOrDefault(bucket, Map.of()), bytes.getOrDefault(bucket, 0L),
+                    histogram != null ? percentile(histogram, 0.5) : null,
+                    histogram != null ? percentile(histogram, 0.99) : null));
+        }
+        return points;
+    }
+
+    /**
+     * 文本按 UTF-8 编码的字节数（不分配字节数组）。
+     *
+     * @param text 文本，可为 null
+     * @return 字节数
+     */
+    public static long utf8Length(String text) {
+        if (text == null) {
+            return 0;
+        }
+        long length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * 耗时所在区间的下标。
+     */
+    static int latencyBucket(long latencyMs) {
+        for (int i = 0; i < LATENCY_BOUNDS_MS.length; i++) {
+            if (latencyMs <= LATENCY_BOUNDS_MS[i]) {
+                return i;
+            }
+        }
+        return LATENCY_BOUNDS_MS.length - 1;
+    }
+
+    /**
+     * 由直方图估算分位数：返回累计数达到该分位的区间上界。
+     *
+     * @param histogram 各区间的样本数
+     * @param quantile  分位（0-1）
+     * @return 耗时上界（毫秒），没有样本时为 null
+     */
+    static Integer percentile(long[] histogram, double quantile) {
+        long total = Arrays.stream(histogram).sum();
+        if (total == 0) {
+            return null;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long cumulative = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            cumulative += histogram[i];
+            if (cumulative >= rank) {
+                return LATENCY_BOUNDS_MS[i];
+            }
+        }
+        return LATENCY_BOUNDS_MS[LATENCY_BOUNDS_MS.length - 1];
+    }
+
+    /**
+     * 批量写入：先按主键累加，不存在的行再插入。
+     */
+    private void write(Map<RollupKey, Delta> drained) {
+        List<Object[]> rollupRows = new ArrayList<>(drained.size());
+        List<Object[]> latencyRows = new ArrayList<>();
+        drained.forEach((key, delta) -> {
+            String granularity = key.granularity().name();
+            Timestamp bucket = Timestamp.valueOf(key.bucketStart());
+            rollupRows.add(new Object[] { delta.count, delta.bytes, granularity, bucket, key.source(), key.status() });
+            for (int i = 0; i < delta.latency.length; i++) {
+                if (delta.latency[i] > 0) {
+                    latencyRows.add(new Object[] { delta.latency[i], granularity, bucket, key.source(), key.status(),
+                            LATENCY_BOUNDS_MS[i] });
+                }
+            }
+        });
+        upsert(ADD_ROLLUP, INSERT_ROLLUP, ROLLUP_TYPES, rollupRows);
+        upsert(ADD_LATENCY, INSERT_LATENCY, LATENCY_TYPES, latencyRows);
+    }
+
+    /**
+     * UPDATE 与 INSERT 使用相同的参数顺序：增量在前，主键在后。
+     */
+    private void upsert(String update, String insert, int[] types, List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        int[] updated = jdbcTemplate.batchUpdate(update, rows, types);
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] != 0) {
+                continue;
+            }
+            try {
+                jdbcTemplate.update(insert, rows.get(i), types);
+            } catch (DuplicateKeyException e) {
+                // 其他节点刚插入了该行
+                jdbcTemplate.update(update, rows.get(i), types);
+            }
+        }
+    }
+
+    /**
+     * 汇总维度。
+     */
+    record RollupKey(Granularity granularity, LocalDateTime bucketStart, String source, String status) {
+    }
+
+    /**
+     * 未写库的增量。
+     */
+    static final class Delta {
+        long count;
+        long bytes;
+        final long[] latency = new long[LATENCY_BOUNDS_MS.length];
+
+        Delta add(long count, long bytes, long[] histogram) {
+            this.count += count;
+            this.bytes += bytes;
+            for (int i = 0; i < histogram.length; i++) {
+                latency[i] += histogram[i];
+            }
+            return this;
+        }
+
+        Delta plus(Delta other) {
+            return add(other.count, other.bytes, other.latency);
+        }
+    }
+
+    /**
+     * 时间序列数据点。
+     *
+     * @param bucketStart 时间桶起点
+     * @param counts      状态 -> 事件数
+     * @param totalBytes  请求体字节数
+     * @param p50Ms       投递耗时 P50（毫秒，按区间上界估算），没有投递时为 null
+     * @param p99Ms       投递耗时 P99（毫秒，按区间上界估算），没有投递时为 null
+     */
+    public record RollupPoint(LocalDateTime bucketStart, Map<String, Long> counts, long totalBytes, Integer p50Ms,
+            Integer p99Ms) {
+    }
+}
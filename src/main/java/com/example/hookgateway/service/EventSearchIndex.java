@@ -0,0 +1,306 @@
+package com.example.hookgateway.service;
+
+import com.example.hookgateway.config.InstanceIdentity;
+import com.example.hookgateway.model.EventSearchToken;
+import com.example.hookgateway.model.WebhookEvent;
+import com.example.hookgateway.model.WebhookEventBody;
+import com.example.hookgateway.repository.EventSearchTokenRepository;
+import com.example.hookgateway.repository.WebhookEventBodyRepository;
+import com.example.hookgateway.repository.WebhookEventRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 事件搜索索引：入库时把来源、方法与请求体分词写入倒排表 event_search_token（与事件同一事务），
+ * 仪表盘按词前缀查索引，不再对请求体做 LIKE 全表扫描。
+ * 索引随事件一起清理（逐块删除或分区删除）；升级前的旧事件由后台线程从新到旧回填，
+ * 多节点部署时通过 Redis 锁只由一个节点回填。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EventSearchIndex {
+
+    private static final String INSERT_TOKEN =
+            "INSERT INTO event_search_token (token, event_id, received_at) VALUES (?, ?, ?)";
+
+    // 查询最多使用的词数
+    private static final int MAX_QUERY_TOKENS = 8;
+
+    // 回填锁：值为持有锁的节点 ID，回填期间每批续期，节点宕机后自动过期由其他节点接手
+    private static final String BACKFILL_LOCK_KEY = "webhook:search:backfill:lock";
+    private static final Duration BACKFILL_LOCK_TTL = Duration.ofMinutes(2);
+
+    // 仅当锁仍由自己持有时才续期 / 释放
+    private static final DefaultRedisScript<Long> RENEW_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('PEXPIRE', KEYS[1], ARGV[2]) "
+                    + "else return 0 end",
+            Long.class);
+    private static final DefaultRedisScript<Long> RELEASE_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final EventSearchTokenRepository tokenRepository;
+    private final WebhookEventRepository eventRepository;
+    private final WebhookEventBodyRepository bodyRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final InstanceIdentity instanceIdentity;
+
+    @Autowired(required = false)
+    private StringRedisTemplate redisTemplate;
+
+    // 每个事件最多索引的词数
+    @Value("${app.search.max-tokens-per-event:256}")
+    private int maxTokensPerEvent;
+
+    // 请求体最多扫描的字符数
+    @Value("${app.search.max-scan-chars:65536}")
+    private int maxScanChars;
+
+    // 回填旧事件的每批事件数，0 表示不回填
+    @Value("${app.search.backfill-batch-size:500}")
+    private int backfillBatchSize;
+
+    private Thread backfillWorker;
+    private volatile boolean running;
+
+    /**
+     * 为新事件建立索引（需在保存事件的事务中调用）。
+     *
+     * @param events 已保存的事件（带 ID，请求体在瞬时字段中）
+     */
+    public void index(List<WebhookEvent> events) {
+        List<Object[]> rows = new ArrayList<>();
+        for (WebhookEvent event : events) {
+            Timestamp receivedAt = event.getReceivedAt() != null ? Timestamp.valueOf(event.getReceivedAt()) : null;
+            for (String token : tokensOf(event)) {
+                rows.add(new Object[] { token, event.getId(), receivedAt });
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_TOKEN, rows);
+        }
+    }
+
+    /**
+     * 删除事件的索引。
+     *
+     * @param eventIds 事件 ID 列表
+     */
+    public void remove(List<Long> eventIds) {
+        tokenRepository.deleteByEventIdIn(eventIds);
+    }
+
+    /**
+     * 关键字匹配条件：关键字中的每个词都需命中（按词前缀匹配）。
+     *
+     * @param query 关键字
+     * @return 查询条件，关键字中没有可搜索的词时为 null
+     */
+    public Specification<WebhookEvent> matching(String query) {
+        Set<String> tokens = SearchTokenizer.tokenizeQuery(query, MAX_QUERY_TOKENS);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        return (root, criteria, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            for (String token : tokens) {
+                // 词只含字母数字与中日韩文字，无需转义 LIKE 通配符
+                Subquery<Long> hits = criteria.subquery(Long.class);
+                Root<EventSearchToken> t = hits.from(EventSearchToken.class);
+                hits.select(t.get("eventId")).where(cb.like(t.get("token"), token + "%"));
+                predicates.add(root.get("id").in(hits));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * 应用就绪后启动旧事件回填线程。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBackfill() {
+        if (backfillBatchSize <= 0) {
+            return;
+        }
+        running = true;
+        backfillWorker = new Thread(this::backfill, "Search-Backfill");
+        backfillWorker.setDaemon(true);
+        backfillWorker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (backfillWorker != null) {
+            backfillWorker.interrupt();
+        }
+    }
+
+    /**
+     * 获得回填锁后回填；锁由其他节点持有时按锁的有效期等待，持有节点完成或宕机后再检查。
+     */
+    private void backfill() {
+        while (running && !Thread.currentThread().isInterrupted()) {
+            if (acquireBackfillLock()) {
+                try {
+                    backfillBelowIndexed();
+                } finally {
+                    releaseBackfillLock();
+                }
+                return;
+            }
+            log.debug("[Search] Search backfill is held by another node, retrying in {}", BACKFILL_LOCK_TTL);
+            try {
+                Thread.sleep(BACKFILL_LOCK_TTL.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 从已索引的最小事件 ID 向下回填：新事件入库即建索引，且每个事件至少有来源这个词，
+     * 因此比最小已索引 ID 更小的事件都是尚未索引的旧事件。
+     * 索引为空时会扫到回填期间新入库的事件，已有索引的事件跳过；单批失败记录日志后继续下一批。
+     */
+    private void backfillBelowIndexed() {
+        Long minIndexed = tokenRepository.findMinEventId();
+        long below = minIndexed != null ? minIndexed : Long.MAX_VALUE;
+        long indexed = 0;
+        while (running && !Thread.currentThread().isInterrupted()) {
+            List<Long> ids;
+            try {
+                ids = eventRepository.findIdsBelow(below, PageRequest.of(0, backfillBatchSize));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                if (!renewBackfillLock()) {
+                    log.warn("[Search] Lost search backfill lock, stopping at event {}", below);
+                    break;
+                }
+            } catch (Exception e) {
+                log.error("[Search] Failed to load search backfill batch below event {}", below, e);
+                pause(BACKFILL_LOCK_TTL.toMillis() / 4);
+                continue;
+            }
+            try {
+                indexed += transactionTemplate.execute(tx -> {
+                    List<Long> pending = new ArrayList<>(ids);
+                    pending.removeAll(tokenRepository.findIndexedEventIds(ids));
+                    if (!pending.isEmpty()) {
+                        index(load(pending));
+                    }
+                    return pending.size();
+                });
+            } catch (Exception e) {
+                log.error("[Search] Failed to backfill search index for events {}..{}, skipping", ids.get(0),
+                        ids.get(ids.size() - 1), e);
+            }
+            below = ids.get(ids.size() - 1);
+            // 让出数据库给在线流量
+            pause(100);
+        }
+        if (indexed > 0) {
+            log.info("[Search] Backfilled search index for {} existing events", indexed);
+        }
+    }
+
+    private void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 获取回填锁。未配置 Redis（单节点）时直接回填；Redis 不可用时视为未获得锁，稍后重试。
+     */
+    private boolean acquireBackfillLock() {
+        if (redisTemplate == null) {
+            return true;
+        }
+        try {
+            return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(BACKFILL_LOCK_KEY,
+                    instanceIdentity.getInstanceId(), BACKFILL_LOCK_TTL));
+        } catch (Exception e) {
+            log.warn("[Search] Failed to acquire search backfill lock: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean renewBackfillLock() {
+        if (redisTemplate == null) {
+            return true;
+        }
+        Long renewed = redisTemplate.execute(RENEW_LOCK_SCRIPT, List.of(BACKFILL_LOCK_KEY),
+                instanceIdentity.getInstanceId(), String.valueOf(BACKFILL_LOCK_TTL.toMillis()));
+        return renewed != null && renewed > 0;
+    }
+
+    private void releaseBackfillLock() {
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            redisTemplate.execute(RELEASE_LOCK_SCRIPT, List.of(BACKFILL_LOCK_KEY), instanceIdentity.getInstanceId());
+        } catch (Exception e) {
+            log.warn("[Search] Failed to release search backfill lock: {}", e.getMessage());
+        }
+    }
+
+    private List<WebhookEvent> load(List<Long> ids) {
+        Map<Long, WebhookEventBody> bodies = bodyRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(WebhookEventBody::getEventId, Function.identity()));
+        List<WebhookEvent> events = eventRepository.findAllById(ids);
+        for (WebhookEvent event : events) {
+            WebhookEventBody body = bodies.get(event.getId());
+            if (body != null) {
+                event.setPayload(body.getPayload());
+            }
+        }
+        return events;
+    }
+
+    private Set<String> tokensOf(WebhookEvent event) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (event.getSource() != null && !event.getSource().isBlank()) {
+            // 完整来源也作为一个词，保证每个事件至少有一个词（回填依赖这一点）
+            String source = event.getSource().toLowerCase();
+            tokens.add(source.length() > EventSearchToken.MAX_TOKEN_LENGTH
+                    ? source.substring(0, EventSearchToken.MAX_TOKEN_LENGTH)
+                    : source);
+        }
+        SearchTokenizer.tokenize(event.getSource(), maxScanChars, maxTokensPerEvent, tokens);
+        SearchTokenizer.tokenize(event.getMethod(), maxScanChars, maxTokensPerEvent, tokens);
+        SearchTokenizer.tokenize(event.getPayload(), maxScanChars, maxTokensPerEvent, tokens);
+        return tokens;
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.hookgateway.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 事件状态写合并：投递结果与客户端 ACK 只提交状态、投递次数与最近投递时间，
+ * 后台线程按事件合并（同一事件在一个刷写周期内只保留最后的状态），
+ * 再以窄 UPDATE（不加载、不回写整个实体）按 JDBC 批量写库。
+ *
+ * <p>状态最多延迟一个刷写周期落库；未落库的状态在 {@link WebhookEventStore#findWithBody} 中叠加返回。
+ */
+@Component
+@Slf4j
+public class EventStatusWriter {
+
+    private static final String UPDATE_STATUS = "UPDATE webhook_event SET status = ?, "
+            + "delivery_count = COALESCE(?, delivery_count), last_delivery_at = COALESCE(?, last_delivery_at) "
+            + "WHERE id = ?";
+
+    private static final int[] UPDATE_STATUS_TYPES = { Types.VARCHAR, Types.INTEGER, Types.TIMESTAMP, Types.BIGINT };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Counter submittedCounter;
+    private final Counter writtenCounter;
+
+    // 按事件 ID 合并的待写状态
+    private final Map<Long, StatusUpdate> pending = new ConcurrentHashMap<>();
+
+    // 每批最多写入的事件数，待写数达到该值时立即刷写
+    @Value("${app.events.status-writer.batch-size:500}")
+    private int batchSize;
+
+    // 刷写间隔（毫秒），即状态落库的最大延迟
+    @Value("${app.events.status-writer.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    private final Object flushLock = new Object();
+    private Thread worker;
+    private volatile boolean running;
+
+    public EventStatusWriter(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.submittedCounter = Counter.builder("webhook.status.updates")
+                .tag("result", "submitted")
+                .description("Event status updates submitted for writing")
+                .register(meterRegistry);
+        this.writtenCounter = Counter.builder("webhook.status.updates")
+                .tag("result", "written")
+                .description("Event status rows written after coalescing")
+                .register(meterRegistry);
+        Gauge.builder("webhook.status.updates.pending", pending, Map::size)
+                .description("Events with a status update waiting to be written")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 应用就绪后启动写库线程。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        worker = new Thread(this::runLoop, "Event-Status-Writer");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("[StatusWriter] Started status writer (batchSize={}, flushInterval={}ms)", batchSize,
+                flushIntervalMs);
+    }
+
+    /**
+     * 停机时唤醒写库线程，由它写完剩余的状态后退出（不在调用线程中并发刷写）。
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker == null) {
+            // 写库线程未启动，没有并发刷写
+            flushOnShutdown();
+            return;
+        }
+        synchronized (flushLock) {
+            flushLock.notifyAll();
+        }
+        try {
+            worker.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            log.warn("[StatusWriter] Status writer did not stop in time, {} event statuses may not be written",
+                    pending.size());
+        }
+    }
+
+    /**
+     * 提交事件状态，与同一事件尚未落库的状态合并。
+     *
+     * @param eventId        事件 ID
+     * @param status         新状态
+     * @param deliveryCount  投递次数，为 null 时不修改
+     * @param lastDeliveryAt 最近投递时间，为 null 时不修改
+     */
+    public void submit(Long eventId, String status, Integer deliveryCount, LocalDateTime lastDeliveryAt) {
+        pending.merge(eventId, new StatusUpdate(status, deliveryCount, lastDeliveryAt), StatusUpdate::then);
+        submittedCounter.increment();
+        if (pending.size() >= batchSize) {
+            synchronized (flushLock) {
+                flushLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 尚未落库的状态。
+     *
+     * @param eventId 事件 ID
+     * @return 待写状态，没有时为 null
+     */
+    public StatusUpdate pendingUpdate(Long eventId) {
+        return pending.get(eventId);
+    }
+
+    private void runLoop() {
+        while (running && !Thread.currentThread().isInterrupted()) {
+            try {
+                synchronized (flushLock) {
+                    if (pending.size() < batchSize) {
+                        flushLock.wait(flushIntervalMs);
+                    }
+                }
+                flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("[StatusWriter] Failed to write event statuses", e);
+            }
+        }
+        flushOnShutdown();
+        log.info("[StatusWriter] Status writer stopped");
+    }
+
+    private void flushOnShutdown() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("[StatusWriter] Failed to write {} event statuses on shutdown", pending.size(), e);
+        }
+    }
+
+    /**
+     * 按批写出全部待写状态。状态写库成功后才移出待写表，期间读取仍能叠加未落库的状态；
+     * 写库期间同一事件到达的新状态不会被移除，留到下一批写出。
+     */
+    void flush() {
+        while (!pending.isEmpty()) {
+            Map<Long, StatusUpdate> batch = new LinkedHashMap<>();
+            List<Object[]> rows = new ArrayList<>();
+            Iterator<Map.Entry<Long, StatusUpdate>> it = pending.entrySet().iterator();
+            while (it.hasNext() && rows.size() < batchSize) {
+                Map.Entry<Long, StatusUpdate> entry = it.next();
+                StatusUpdate update = entry.getValue();
+                batch.put(entry.getKey(), update);
+                rows.add(new Object[] { update.status(), update.deliveryCount(), update.lastDeliveryAt(),
+                        entry.getKey() });
+            }
+            if (rows.isEmpty()) {
+                return;
+            }
+            // 写库失败时状态仍在待写表中，下次重试
+            jdbcTemplate.batchUpdate(UPDATE_STATUS, rows, UPDATE_STATUS_TYPES);
+            writtenCounter.increment(rows.size());
+            batch.forEach(pending::remove);
+        }
+    }
+
+    /**
+     * 待写状态。
+     *
+     * @param status         状态
+     * @param deliveryCount  投递次数，为 null 时不修改
+     * @param lastDeliveryAt 最近投递时间，为 null 时不修改
+     */
+    public record StatusUpdate(String status, Integer deliveryCount, LocalDateTime lastDeliveryAt) {
+
+        /**
+         * 合并后到达的状态：状态取新值，其余字段新值为空时沿用旧值。
+         */
+        StatusUpdate then(StatusUpdate next) {
+            return new StatusUpdate(next.status,
+                    next.deliveryCount != null ? next.deliveryCount : deliveryCount,
+                    next.lastDeliveryAt != null ? next.lastDeliveryAt : lastDeliveryAt);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.hookgateway.service;
 
+import com.example.hookgateway.config.InstanceIdentity;
 import com.example.hookgateway.config.RedisStreamConfig;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -26,6 +27,7 @@ public class PendingMessageRecoveryTask {
     private final StringRedisTemplate redisTemplate;
     private final WebhookStreamConsumer consumer;
     private final DeadLetterService deadLetterService;
+    private final InstanceIdentity instanceIdentity;
 
     // 消息空闲超过此时间视为需要恢复（毫秒）
     private static final long PENDING_IDLE_TIME_MS = 60_000; // 1 分钟
@@ -39,6 +41,8 @@ public class PendingMessageRecoveryTask {
     @Scheduled(fixedDelay = 30_000)
     public void recoverPendingMessages() {
         try {
+            String consumerName = instanceIdentity.consumerName(RedisStreamConfig.CONSUMER_PREFIX);
+
             // 1. 获取 Pending 消息摘要
             PendingMessagesSummary summary = redisTemplate.opsForStream().pending(
                     RedisStreamConfig.STREAM_KEY,
@@ -54,7 +58,7 @@ public class PendingMessageRecoveryTask {
             // 2. 获取详细的 Pending 消息列表
             PendingMessages pendingMessages = redisTemplate.opsForStream().pending(
                     RedisStreamConfig.STREAM_KEY,
-                    Consumer.from(RedisStreamConfig.GROUP_NAME, RedisStreamConfig.CONSUMER_NAME),
+                    Consumer.from(RedisStreamConfig.GROUP_NAME, consumerName),
                     Range.unbounded(),
                     MAX_RECOVER_COUNT);
 
@@ -72,7 +76,7 @@ public class PendingMessageRecoveryTask {
                     List<MapRecord<String, Object, Object>> claimed = redisTemplate.opsForStream().claim(
                             RedisStreamConfig.STREAM_KEY,
                             RedisStreamConfig.GROUP_NAME,
-                            RedisStreamConfig.CONSUMER_NAME,
+                            consumerName,
                             Duration.ofMillis(PENDING_IDLE_TIME_MS),
                             pm.getId());
 
@@ -1,5 +1,6 @@
 package com.example.hookgateway.service;
 
+import com.example.hookgateway.model.DeliveryAttempt;
 import lombok.Builder;
 import lombok.Data;
 
@@ -8,6 +9,9 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 事件重放与重试服务。
@@ -25,6 +29,8 @@ public class ReplayService {
     // V8: 使用 ThreadLocal 收集所有重试尝试的日志
     private static final ThreadLocal<StringBuilder> logAccumulator = ThreadLocal.withInitial(StringBuilder::new);
     private static final ThreadLocal<Integer> attemptCounter = ThreadLocal.withInitial(() -> 0);
+    // 每次实际请求一条投递尝试记录
+    private static final ThreadLocal<List<DeliveryAttempt>> attemptRecords = ThreadLocal.withInitial(ArrayList::new);
 
     private static final java.time.format.DateTimeFormatter LOG_DATE_FORMATTER = java.time.format.DateTimeFormatter
             .ofPattern("yyyy-MM-dd HH:mm:ss");
@@ -47,6 +53,24 @@ public class ReplayService {
     private void clearLog() {
         logAccumulator.get().setLength(0);
         attemptCounter.set(0);
+        attemptRecords.get().clear();
+    }
+
+    /**
+     * 记录一次实际请求的结果。
+     */
+    private void recordAttempt(String targetUrl, LocalDateTime startedAt, long startNanos, Integer statusCode,
+            boolean success, String error) {
+        attemptRecords.get().add(DeliveryAttempt.builder()
+                .target(targetUrl)
+                .attemptNumber(Math.max(1, attemptCounter.get()))
+                .status(success ? "SUCCESS" : "FAILED")
+                .statusCode(statusCode)
+                .latencyMs((System.nanoTime() - startNanos) / 1_000_000)
+                .error(DeliveryAttempt.truncate(error))
+                .startedAt(startedAt)
+                .finishedAt(LocalDateTime.now())
+                .build());
     }
 
     @Data
@@ -58,6 +82,9 @@ public class ReplayService {
         private String targetUrl;
         @Builder.Default
         private String log = "";
+        // 各次请求的投递尝试记录（未填写事件与订阅）
+        @Builder.Default
+        private List<DeliveryAttempt> attempts = List.of();
     }
 
     /**
@@ -89,6 +116,7 @@ public class ReplayService {
 
         // 成功时返回累计日志
         result.setLog(logAccumulator.get().toString());
+        result.setAttempts(List.copyOf(attemptRecords.get()));
         return result;
     }
 
@@ -112,6 +140,7 @@ public class ReplayService {
                 .message("All retries failed: " + e.getMessage())
                 .targetUrl(targetUrl)
                 .log(finalLog)
+                .attempts(List.copyOf(attemptRecords.get()))
                 .build();
     }
 
@@ -135,6 +164,8 @@ public class ReplayService {
      * @return 重放结果
      */
     public ReplayResult replay(String method, String headersRaw, String payload, String targetUrl) {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long startNanos = System.nanoTime();
         try {
             // V13: SSRF 防护（第二轮：DNS 固定）
             com.example.hookgateway.utils.UrlValidator.ValidatedTarget validatedTarget;
@@ -143,6 +174,7 @@ public class ReplayService {
             } catch (Exception e) {
                 String errorMsg = "Blocked potential SSRF target: " + targetUrl + " Reason: " + e.getMessage();
                 appendLog(errorMsg);
+                recordAttempt(targetUrl, startedAt, startNanos, null, false, errorMsg);
                 return ReplayResult.builder()
                         .success(false)
                         .statusCode(-1)
@@ -185,6 +217,8 @@ public class ReplayService {
 
             boolean success = response.statusCode() >= 200 && response.statusCode() < 300;
             appendLog(targetUrl + " -> HTTP " + response.statusCode() + (success ? " (SUCCESS)" : " (FAILED)"));
+            recordAttempt(targetUrl, startedAt, startNanos, response.statusCode(), success,
+                    success ? null : response.body());
 
             return ReplayResult.builder()
                     .success(success)
@@ -196,6 +230,7 @@ public class ReplayService {
 
         } catch (Exception e) {
             appendLog(targetUrl + " -> Error: " + e.getMessage());
+            recordAttempt(targetUrl, startedAt, startNanos, null, false, e.toString());
             return ReplayResult.builder()
                     .success(false)
                     .statusCode(-1)
@@ -0,0 +1,102 @@
+package com.example.hookgateway.service;
+
+import com.example.hookgateway.model.RetentionRule;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 保留策略：把全局保留天数与按来源/状态的保留规则展开为一组清理分段。
+ * 每个分段限定单个来源（配合 (source, received_at) 索引按时间范围扫描），再按状态过滤，
+ * 同一来源下保留时长相同的状态合并为一个分段。
+ *
+ * <p>规则优先级：来源+状态 > 仅来源 > 仅状态 > 全局。
+ */
+public final class RetentionPolicy {
+
+    private RetentionPolicy() {
+    }
+
+    /**
+     * 清理分段：删除满足条件且接收时间早于 cutoff 的事件。
+     *
+     * @param source          来源，null 表示所有来源（仅在没有任何规则时使用）
+     * @param statuses        状态列表
+     * @param excludeStatuses true 表示排除 statuses 中的状态（列表为空即不限状态），false 表示只包含这些状态
+     * @param cutoff          截止时间
+     */
+    public record Segment(String source, List<String> statuses, boolean excludeStatuses, LocalDateTime cutoff) {
+    }
+
+    /**
+     * 生成清理分段。
+     *
+     * @param rules        保留规则
+     * @param globalDays   全局保留天数
+     * @param sources      现有事件的全部来源
+     * @param now          当前时间
+     * @return 清理分段
+     */
+    public static List<Segment> plan(List<RetentionRule> rules, int globalDays, Collection<String> sources,
+            LocalDateTime now) {
+        LocalDateTime globalCutoff = now.minusDays(globalDays);
+        if (rules.isEmpty()) {
+            return List.of(new Segment(null, List.of(), true, globalCutoff));
+        }
+
+        Map<String, LocalDateTime> sourceCutoffs = new HashMap<>();
+        Map<String, LocalDateTime> statusCutoffs = new LinkedHashMap<>();
+        Map<String, Map<String, LocalDateTime>> exactCutoffs = new HashMap<>();
+        for (RetentionRule rule : rules) {
+            LocalDateTime cutoff = now.minusHours(rule.getRetentionHours());
+            if (rule.getSource() != null && rule.getStatus() != null) {
+                exactCutoffs.computeIfAbsent(rule.getSource(), s -> new LinkedHashMap<>()).put(rule.getStatus(), cutoff);
+            } else if (rule.getSource() != null) {
+                sourceCutoffs.put(rule.getSource(), cutoff);
+            } else if (rule.getStatus() != null) {
+                statusCutoffs.put(rule.getStatus(), cutoff);
+            }
+        }
+
+        List<Segment> segments = new ArrayList<>();
+        for (String source : sources) {
+            if (source == null) {
+                continue;
+            }
+            LocalDateTime defaultCutoff = sourceCutoffs.getOrDefault(source, globalCutoff);
+
+            // 该来源下保留时长与默认值不同的状态
+            Map<String, LocalDateTime> overrides = new LinkedHashMap<>();
+            if (!sourceCutoffs.containsKey(source)) {
+                overrides.putAll(statusCutoffs);
+            }
+            overrides.putAll(exactCutoffs.getOrDefault(source, Map.of()));
+
+            Map<LocalDateTime, List<String>> byCutoff = new LinkedHashMap<>();
+            overrides.forEach((status, cutoff) -> byCutoff.computeIfAbsent(cutoff, c -> new ArrayList<>()).add(status));
+            byCutoff.forEach((cutoff, statuses) -> segments.add(new Segment(source, statuses, false, cutoff)));
+            segments.add(new Segment(source, List.copyOf(overrides.keySet()), true, defaultCutoff));
+        }
+        return segments;
+    }
+
+    /**
+     * 所有规则与全局配置中最长的保留时长（小时），按分区删除时不能早于它。
+     *
+     * @param rules      保留规则
+     * @param globalDays 全局保留天数
+     * @return 最长保留时长（小时）
+     */
+    public static long longestRetentionHours(List<RetentionRule> rules, int globalDays) {
+        long longest = globalDays * 24L;
+        for (RetentionRule rule : rules) {
+            longest = Math.max(longest, rule.getRetentionHours());
+        }
+        return longest;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.hookgateway.service;
+
+import com.example.hookgateway.model.EventSearchToken;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 搜索分词：入库建索引与查询使用同一规则。
+ * 字母数字连续段转小写后作为一个词（至少 2 个字符）；中日韩文字没有空格分隔，按相邻两字（bigram）切分，
+ * 单独一个字时保留单字。
+ */
+public final class SearchTokenizer {
+
+    private static final int MIN_WORD_LENGTH = 2;
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * 提取文本中的词。
+     *
+     * @param text      文本，可为 null
+     * @param maxChars  最多扫描的字符数
+     * @param maxTokens 结果集合的最大大小
+     * @param tokens    结果集合（去重，按出现顺序）
+     */
+    public static void tokenize(String text, int maxChars, int maxTokens, Set<String> tokens) {
+        if (text == null) {
+            return;
+        }
+        int end = Math.min(text.length(), maxChars);
+        StringBuilder word = new StringBuilder();
+        int cjkPrevious = -1;
+        int cjkRun = 0;
+        int i = 0;
+        while (i < end && tokens.size() < maxTokens) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            if (isCjk(cp)) {
+                emitWord(word, maxTokens, tokens);
+                if (cjkPrevious >= 0) {
+                    add(new StringBuilder().appendCodePoint(cjkPrevious).appendCodePoint(cp).toString(), maxTokens,
+                            tokens);
+                }
+                cjkPrevious = cp;
+                cjkRun++;
+                continue;
+            }
+            emitSingleCjk(cjkPrevious, cjkRun, maxTokens, tokens);
+            cjkPrevious = -1;
+            cjkRun = 0;
+            if (Character.isLetterOrDigit(cp)) {
+                word.appendCodePoint(Character.toLowerCase(cp));
+            } else {
+                emitWord(word, maxTokens, tokens);
+            }
+        }
+        emitSingleCjk(cjkPrevious, cjkRun, maxTokens, tokens);
+        emitWord(word, maxTokens, tokens);
+    }
+
+    /**
+     * 提取查询关键字中的词。
+     *
+     * @param query     查询关键字
+     * @param maxTokens 最多返回的词数
+     * @return 词集合
+     */
+    public static Set<String> tokenizeQuery(String query, int maxTokens) {
+        Set<String> tokens = new LinkedHashSet<>();
+        tokenize(query, Integer.MAX_VALUE, maxTokens, tokens);
+        return tokens;
+    }
+
+    private static void emitWord(StringBuilder word, int maxTokens, Set<String> tokens) {
+        if (word.length() >= MIN_WORD_LENGTH) {
+            add(word.toString(), maxTokens, tokens);
+        }
+        word.setLength(0);
+    }
+
+    private static void emitSingleCjk(int cp, int run, int maxTokens, Set<String> tokens) {
+        if (run == 1) {
+            add(new String(Character.toChars(cp)), maxTokens, tokens);
+        }
+    }
+
+    private static void add(String token, int maxTokens, Set<String> tokens) {
+        if (tokens.size() >= maxTokens) {
+            return;
+        }
+        tokens.add(token.length() > EventSearchToken.MAX_TOKEN_LENGTH
+                ? token.substring(0, EventSearchToken.MAX_TOKEN_LENGTH)
+                : token);
+    }
+
+    private static boolean isCjk(int cp) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return script == Character.UnicodeScript.HAN || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA || script == Character.UnicodeScript.HANGUL;
+    }
+}
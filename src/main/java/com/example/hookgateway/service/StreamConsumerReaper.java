@@ -0,0 +1,173 @@
+package com.example.hookgateway.service;
+
+import com.example.hookgateway.config.InstanceIdentity;
+import com.example.hookgateway.config.RedisStreamConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamInfo;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 定时任务：清理消费组中长时间不活跃的消费者。
+ * 先将失效消费者的待确认消息转移（XCLAIM JUSTID）给当前实例，
+ * 再执行 XGROUP DELCONSUMER，使消费组元数据在多次部署后仍保持精简。
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class StreamConsumerReaper {
+
+    private final InstanceIdentity instanceIdentity;
+    private final ObjectProvider<EventPersister> eventPersisterProvider;
+
+    @Autowired(required = false)
+    private StringRedisTemplate redisTemplate;
+
+    @Value("${app.distribution.mode:async}")
+    private String distributionMode;
+
+    @Value("${app.ingest.mode:sync}")
+    private String ingestMode;
+
+    @Value("${app.ingest.stream.key:webhook:events:ingest}")
+    private String ingestStreamKey;
+
+    // 消费者空闲超过此时间视为已失效（毫秒）
+    @Value("${app.redis.consumer-reaper.idle-timeout-ms:600000}")
+    private long idleTimeoutMs;
+
+    // 每次转移的待确认消息数量
+    private static final int HANDOVER_BATCH_SIZE = 500;
+
+    /**
+     * 默认每 5 分钟执行一次失效消费者清理
+     */
+    @Scheduled(fixedDelayString = "${app.redis.consumer-reaper.interval-ms:300000}", initialDelay = 60_000)
+    public void reapIdleConsumers() {
+        if (redisTemplate == null) {
+            return;
+        }
+
+        if ("redis".equalsIgnoreCase(distributionMode)) {
+            reapGroup(RedisStreamConfig.STREAM_KEY, RedisStreamConfig.GROUP_NAME,
+                    instanceIdentity.consumerName(RedisStreamConfig.CONSUMER_PREFIX));
+        }
+
+        if ("redis".equalsIgnoreCase(ingestMode)) {
+            EventPersister persister = eventPersisterProvider.getIfAvailable();
+            if (persister != null) {
+                int handedOver = reapGroup(ingestStreamKey, EventPersister.GROUP_NAME, persister.getConsumerName());
+                if (handedOver > 0) {
+                    // 接管的消息位于本实例待确认列表中，通知持久化服务优先消费
+                    persister.markBacklogPending();
+                }
+            }
+        }
+    }
+
+    /**
+     * 清理指定消费组中的失效消费者。
+     *
+     * @param streamKey 流 Key
+     * @param group     消费组
+     * @param self      当前实例的消费者名称
+     * @return 转移给当前实例的待确认消息数
+     */
+    int reapGroup(String streamKey, String group, String self) {
+        int handedOver = 0;
+        try {
+            StreamInfo.XInfoConsumers consumers = redisTemplate.opsForStream().consumers(streamKey, group);
+            if (consumers == null) {
+                return 0;
+            }
+
+            for (StreamInfo.XInfoConsumer info : consumers) {
+                if (self.equals(info.consumerName()) || info.idleTimeMs() < idleTimeoutMs) {
+                    continue;
+                }
+
+                int moved = handOverPending(streamKey, group, info.consumerName(), self, info.idleTime());
+                if (moved < 0) {
+                    // 未能完整转移，保留该消费者以免 DELCONSUMER 丢弃其待确认消息
+                    continue;
+                }
+                handedOver += moved;
+
+                redisTemplate.opsForStream().deleteConsumer(streamKey, Consumer.from(group, info.consumerName()));
+                log.info("[Reaper] Removed idle consumer {} from group {} (idle={}ms, handedOver={})",
+                        info.consumerName(), group, info.idleTimeMs(), moved);
+            }
+        } catch (Exception e) {
+            // 流或消费组尚不存在时会抛出异常，下一轮再试
+            log.debug("[Reaper] Skipped group {} on stream {}: {}", group, streamKey, e.getMessage());
+        }
+        return handedOver;
+    }
+
+    /**
+     * 将失效消费者的待确认消息转移给当前实例。
+     * 使用 JUSTID 不增加投递计数，并保留原空闲时间，以便恢复任务尽快处理。
+     *
+     * @param streamKey 流 Key
+     * @param group     消费组
+     * @param deadOwner 失效消费者
+     * @param self      当前实例的消费者名称
+     * @param idleTime  失效消费者的空闲时间
+     * @return 转移的消息数；无法完整转移时返回 -1
+     */
+    private int handOverPending(String streamKey, String group, String deadOwner, String self, Duration idleTime) {
+        int moved = 0;
+        boolean stalled = false;
+        byte[] rawKey = streamKey.getBytes(StandardCharsets.UTF_8);
+
+        while (true) {
+            PendingMessages pending = redisTemplate.opsForStream().pending(
+                    streamKey, Consumer.from(group, deadOwner), Range.unbounded(), HANDOVER_BATCH_SIZE);
+            if (pending == null || pending.isEmpty()) {
+                return moved;
+            }
+
+            List<RecordId> ids = new ArrayList<>(pending.size());
+            for (PendingMessage pm : pending) {
+                ids.add(pm.getId());
+            }
+
+            RedisStreamCommands.XClaimOptions options = RedisStreamCommands.XClaimOptions
+                    .minIdle(Duration.ZERO)
+                    .ids(ids)
+                    .idle(idleTime);
+
+            List<RecordId> claimed = redisTemplate.execute((RedisCallback<List<RecordId>>) connection -> connection
+                    .streamCommands().xClaimJustId(rawKey, group, self, options));
+
+            if (claimed == null || claimed.isEmpty()) {
+                // Redis 7+ 会把已被 XDEL 的条目直接移出待确认列表，复查一次确认是否已清空
+                if (stalled) {
+                    log.warn("[Reaper] Failed to hand over pending messages of {} in group {}", deadOwner, group);
+                    return -1;
+                }
+                stalled = true;
+                continue;
+            }
+            stalled = false;
+            moved += claimed.size();
+        }
+    }
+}
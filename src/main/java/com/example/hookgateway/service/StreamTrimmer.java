@@ -0,0 +1,143 @@
+package com.example.hookgateway.service;
+
+import com.example.hookgateway.config.RedisStreamConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.stream.PendingMessagesSummary;
+import org.springframework.data.redis.connection.stream.StreamInfo;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 定时任务：按 XTRIM MINID 裁剪 Redis 流。
+ * 裁剪边界取「保留时长对应的 ID」与「各消费组最早未确认 / 最后投递 ID」中的较小者，
+ * 因此不会删除仍在待确认列表中或尚未投递的消息，也不再在每次摄入时额外执行 XTRIM。
+ */
+@Component
+@Slf4j
+public class StreamTrimmer {
+
+    @Autowired(required = false)
+    private StringRedisTemplate redisTemplate;
+
+    @Value("${app.distribution.mode:async}")
+    private String distributionMode;
+
+    @Value("${app.ingest.mode:sync}")
+    private String ingestMode;
+
+    @Value("${app.ingest.stream.key:webhook:events:ingest}")
+    private String ingestStreamKey;
+
+    // 各流的保留时长（毫秒）
+    @Value("${app.redis.stream-trim.ingest-retention-ms:3600000}")
+    private long ingestRetentionMs;
+
+    @Value("${app.redis.stream-trim.distribution-retention-ms:86400000}")
+    private long distributionRetentionMs;
+
+    @Value("${app.redis.stream-trim.dlq-retention-ms:604800000}")
+    private long dlqRetentionMs;
+
+    /**
+     * 默认每分钟裁剪一次
+     */
+    @Scheduled(fixedDelayString = "${app.redis.stream-trim.interval-ms:60000}", initialDelay = 30_000)
+    public void trimStreams() {
+        if (redisTemplate == null) {
+            return;
+        }
+
+        if ("redis".equalsIgnoreCase(ingestMode)) {
+            trim(ingestStreamKey, ingestRetentionMs);
+        }
+
+        if ("redis".equalsIgnoreCase(distributionMode)) {
+            trim(RedisStreamConfig.STREAM_KEY, distributionRetentionMs);
+            trim(DeadLetterService.DLQ_STREAM_KEY, dlqRetentionMs);
+        }
+    }
+
+    /**
+     * 裁剪单个流。
+     *
+     * @param streamKey   流 Key
+     * @param retentionMs 保留时长（毫秒）
+     */
+    void trim(String streamKey, long retentionMs) {
+        try {
+            String ageBoundary = (System.currentTimeMillis() - retentionMs) + "-0";
+            String groupBoundary = safeGroupBoundary(streamKey);
+            String minId = groupBoundary == null || compareIds(ageBoundary, groupBoundary) <= 0
+                    ? ageBoundary
+                    : groupBoundary;
+
+            Object trimmed = redisTemplate.execute((RedisCallback<Object>) connection -> connection.execute(
+                    "XTRIM",
+                    streamKey.getBytes(StandardCharsets.UTF_8),
+                    "MINID".getBytes(StandardCharsets.UTF_8),
+                    "~".getBytes(StandardCharsets.UTF_8),
+                    minId.getBytes(StandardCharsets.UTF_8)));
+
+            if (trimmed instanceof Long count && count > 0) {
+                log.info("[StreamTrimmer] Trimmed {} entries from {} (minId={})", count, streamKey, minId);
+            }
+        } catch (Exception e) {
+            // 流尚不存在时会抛出异常，下一轮再试
+            log.debug("[StreamTrimmer] Skipped trimming {}: {}", streamKey, e.getMessage());
+        }
+    }
+
+    /**
+     * 计算所有消费组都已处理完毕的安全边界：
+     * 有待确认消息时取最早的待确认 ID，否则取最后投递 ID。
+     *
+     * @param streamKey 流 Key
+     * @return 安全边界 ID；无消费组时返回 null
+     */
+    private String safeGroupBoundary(String streamKey) {
+        StreamInfo.XInfoGroups groups = redisTemplate.opsForStream().groups(streamKey);
+        if (groups == null || groups.isEmpty()) {
+            return null;
+        }
+
+        String boundary = null;
+        for (StreamInfo.XInfoGroup group : groups) {
+            String candidate = group.lastDeliveredId();
+            if (group.pendingCount() != null && group.pendingCount() > 0) {
+                PendingMessagesSummary summary = redisTemplate.opsForStream().pending(streamKey, group.groupName());
+                if (summary != null && summary.minMessageId() != null) {
+                    candidate = summary.minMessageId();
+                }
+            }
+            if (candidate != null && (boundary == null || compareIds(candidate, boundary) < 0)) {
+                boundary = candidate;
+            }
+        }
+        return boundary;
+    }
+
+    /**
+     * 比较两个流 ID（格式 毫秒时间戳-序号）。
+     *
+     * @param a ID a
+     * @param b ID b
+     * @return 比较结果
+     */
+    static int compareIds(String a, String b) {
+        String[] pa = a.split("-", 2);
+        String[] pb = b.split("-", 2);
+        int cmp = Long.compareUnsigned(Long.parseUnsignedLong(pa[0]), Long.parseUnsignedLong(pb[0]));
+        if (cmp != 0) {
+            return cmp;
+        }
+        long sa = pa.length > 1 ? Long.parseUnsignedLong(pa[1]) : 0;
+        long sb = pb.length > 1 ? Long.parseUnsignedLong(pb[1]) : 0;
+        return Long.compareUnsigned(sa, sb);
+    }
+}
@@ -0,0 +1,335 @@
+package com.example.hookgateway.service;
+
+import com.example.hookgateway.model.DeliveryAttempt;
+import com.example.hookgateway.model.EventRollup;
+import com.example.hookgateway.model.WebhookEvent;
+import com.example.hookgateway.model.WebhookEventBody;
+import com.example.hookgateway.repository.DeliveryAttemptRepository;
+import com.example.hookgateway.repository.WebhookEventBodyRepository;
+import com.example.hookgateway.repository.WebhookEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Webhook 事件存取：元数据（webhook_event）与大字段（webhook_event_body）冷热分离。
+ * 新建事件时两张表同一事务写入；状态更新经 {@link EventStatusWriter} 合并后以窄 UPDATE 写元数据行；
+ * 大字段只在查看详情或投递时按事件 ID 加载。
+ * 投递结果按次追加到 delivery_attempt，不再改写大字段行。
+ * 来源计数与监控汇总的内存增量在事务提交后才计入，回滚的写入不会被统计。
+ */
+@Service
+@RequiredArgsConstructor
+public class WebhookEventStore {
+
+    private final WebhookEventRepository eventRepository;
+    private final WebhookEventBodyRepository bodyRepository;
+    private final DeliveryAttemptRepository attemptRepository;
+    private final EventStatusWriter statusWriter;
+    private final EventCountTracker countTracker;
+    private final EventSearchIndex searchIndex;
+    private final EventFieldIndex fieldIndex;
+    private final EventRollupTracker rollupTracker;
+    private final JdbcTemplate jdbcTemplate;
+
+    private static final String TUNNEL_TARGET_PREFIX = "tunnel:";
+
+    // received_at 取自事件行，调用方无需加载事件
+    private static final String INSERT_ATTEMPT = "INSERT INTO delivery_attempt (event_id, received_at, "
+            + "subscription_id, target, attempt_number, status, status_code, latency_ms, error, started_at, "
+            + "finished_at) VALUES (?, (SELECT w.received_at FROM webhook_event w WHERE w.id = ?), "
+            + "?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int[] INSERT_ATTEMPT_TYPES = { Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.VARCHAR,
+            Types.INTEGER, Types.VARCHAR, Types.INTEGER, Types.BIGINT, Types.VARCHAR, Types.TIMESTAMP,
+            Types.TIMESTAMP };
+
+    /**
+     * 保存新事件（元数据与大字段）。
+     *
+     * @param event 事件
+     * @return 已保存的事件（带 ID，大字段保留在瞬时字段中）
+     */
+    @Transactional
+    public WebhookEvent create(WebhookEvent event) {
+        WebhookEvent saved = eventRepository.save(event);
+        bodyRepository.save(toBody(saved, event));
+        afterCommit(() -> {
+            countTracker.add(saved.getSource(), 1);
+            recordReceived(saved);
+        });
+        searchIndex.index(List.of(saved));
+        fieldIndex.index(List.of(saved));
+        return saved;
+    }
+
+    /**
+     * 批量保存新事件（元数据与大字段）。
+     *
+     * @param events 事件列表
+     * @return 已保存的事件（与入参一一对应）
+     */
+    @Transactional
+    public List<WebhookEvent> createAll(List<WebhookEvent> events) {
+        List<WebhookEvent> saved = eventRepository.saveAll(events);
+        List<WebhookEventBody> bodies = new java.util.ArrayList<>(saved.size());
+        for (int i = 0; i < saved.size(); i++) {
+            bodies.add(toBody(saved.get(i), events.get(i)));
+        }
+        bodyRepository.saveAll(bodies);
+        afterCommit(() -> saved.forEach(event -> {
+            countTracker.add(event.getSource(), 1);
+            recordReceived(event);
+        }));
+        searchIndex.index(saved);
+        fieldIndex.index(saved);
+        return saved;
+    }
+
+    /**
+     * 加载事件及其大字段（投递明细仅旧版本事件才有，新事件见 {@link #findAttempts}）。
+     *
+     * @param id 事件 ID
+     * @return 事件，不存在时为空
+     */
+    @Transactional(readOnly = true)
+    public Optional<WebhookEvent> findWithBody(Long id) {
+        return eventRepository.findById(id).map(event -> {
+            bodyRepository.findById(id).ifPresent(body -> {
+                event.setHeaders(body.getHeaders());
+                event.setPayload(body.getPayload());
+                event.setDeliveryDetails(body.getDeliveryDetails());
+            });
+            // 叠加尚未落库的状态
+            EventStatusWriter.StatusUpdate update = statusWriter.pendingUpdate(id);
+            if (update != null) {
+                event.setStatus(update.status());
+                if (update.deliveryCount() != null) {
+                    event.setDeliveryCount(update.deliveryCount());
+                }
+                if (update.lastDeliveryAt() != null) {
+                    event.setLastDeliveryAt(update.lastDeliveryAt());
+                }
+            }
+            return event;
+        });
+    }
+
+    /**
+     * 加载投递所需的事件：来源与方法由调用方提供（分发消息中已携带），只读取大字段行。
+     *
+     * @param id     事件 ID
+     * @param source 来源
+     * @param method HTTP 方法
+     * @return 事件，大字段不存在（事件已被清理）时为空
+     */
+    @Transactional(readOnly = true)
+    public Optional<WebhookEvent> findForDelivery(Long id, String source, String method) {
+        return bodyRepository.findById(id).map(body -> WebhookEvent.builder()
+                .id(id)
+                .source(source)
+                .method(method)
+                .headers(body.getHeaders())
+                .payload(body.getPayload())
+                .receivedAt(body.getReceivedAt())
+                .build());
+    }
+
+    /**
+     * 保存投递或重放结果：追加本次的投递尝试，状态、投递次数与投递时间交给状态写合并，并计入监控汇总。
+     *
+     * @param event    已处理的事件
+     * @param attempts 本次的投递尝试
+     */
+    @Transactional
+    public void saveDeliveryResult(WebhookEvent event, List<DeliveryAttempt> attempts) {
+        recordAttempts(attempts);
+        statusWriter.submit(event.getId(), event.getStatus(), event.getDeliveryCount(), event.getLastDeliveryAt());
+        String source = event.getSource();
+        String status = event.getStatus();
+        LocalDateTime at = LocalDateTime.now();
+        long bytes = EventRollupTracker.utf8Length(event.getPayload());
+        afterCommit(() -> rollupTracker.recordDelivery(source, status, at, bytes, attempts));
+    }
+
+    /**
+     * 应用一批客户端 ACK：只覆盖状态（经状态写合并），并计入监控汇总。
+     * ACK 本身由调用方通过 {@link #recordAttempts} 批量记录。
+     *
+     * @param statuses  事件 ID -> 新状态
+     * @param latencies 事件 ID -> 投递耗时（毫秒）
+     */
+    public void applyDeliveryAcks(Map<Long, String> statuses, Map<Long, Long> latencies) {
+        statuses.forEach((id, status) -> statusWriter.submit(id, status, null, null));
+        rollupTracker.recordAcks(statuses, latencies);
+    }
+
+    /**
+     * 批量追加投递尝试（单条 JDBC 批量插入）。需在调用方事务中执行以与状态更新一起提交。
+     *
+     * @param attempts 投递尝试
+     */
+    public void recordAttempts(List<DeliveryAttempt> attempts) {
+        if (attempts.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new java.util.ArrayList<>(attempts.size());
+        for (DeliveryAttempt a : attempts) {
+            rows.add(new Object[] { a.getEventId(), a.getEventId(), a.getSubscriptionId(), a.getTarget(),
+                    a.getAttemptNumber(), a.getStatus(), a.getStatusCode(), a.getLatencyMs(),
+                    DeliveryAttempt.truncate(a.getError()), a.getStartedAt(), a.getFinishedAt() });
+        }
+        jdbcTemplate.batchUpdate(INSERT_ATTEMPT, rows, INSERT_ATTEMPT_TYPES);
+    }
+
+    /**
+     * 分页查询事件的投递尝试（最新在前）。
+     *
+     * @param eventId  事件 ID
+     * @param pageable 分页参数
+     * @return 投递尝试分页
+     */
+    public Page<DeliveryAttempt> findAttempts(Long eventId, Pageable pageable) {
+        return attemptRepository.findByEventIdOrderByIdDesc(eventId, pageable);
+    }
+
+    /**
+     * 事件最近一次隧道投递的隧道 Key。
+     *
+     * @param eventId 事件 ID
+     * @return 隧道 Key，未经隧道投递时为空
+     */
+    public Optional<String> findLastTunnelKey(Long eventId) {
+        return attemptRepository.findFirstByEventIdAndTargetStartingWithOrderByIdDesc(eventId, TUNNEL_TARGET_PREFIX)
+                .map(attempt -> attempt.getTarget().substring(TUNNEL_TARGET_PREFIX.length()));
+    }
+
+    /**
+     * 隧道投递尝试的目标。
+     *
+     * @param tunnelKey 隧道 Key
+     * @return tunnel:&lt;tunnelKey&gt;
+     */
+    public static String tunnelTarget(String tunnelKey) {
+        return TUNNEL_TARGET_PREFIX + tunnelKey;
+    }
+
+    /**
+     * 是否为隧道投递尝试的目标。
+     *
+     * @param target 投递尝试的目标
+     * @return 以 tunnel: 开头时为 true
+     */
+    public static boolean isTunnelTarget(String target) {
+        return target != null && target.startsWith(TUNNEL_TARGET_PREFIX);
+    }
+
+    /**
+     * 删除清理分段中的一块过期事件（按接收时间从早到晚，最多 limit 条），单独一个事务提交。
+     *
+     * @param segment 清理分段
+     * @param limit   本块最多删除的事件数
+     * @return 删除结果，删除数小于 limit 表示该分段已没有过期事件
+     */
+    @Transactional
+    public PurgeResult purgeChunk(RetentionPolicy.Segment segment, int limit) {
+        PageRequest chunk = PageRequest.of(0, limit);
+        List<Long> ids;
+        if (segment.source() == null) {
+            ids = eventRepository.findIdsReceivedBefore(segment.cutoff(), chunk);
+        } else if (segment.statuses().isEmpty()) {
+            ids = eventRepository.findIdsBySourceReceivedBefore(segment.source(), segment.cutoff(), chunk);
+        } else if (segment.excludeStatuses()) {
+            ids = eventRepository.findIdsBySourceAndStatusNotInReceivedBefore(segment.source(), segment.statuses(),
+                    segment.cutoff(), chunk);
+        } else {
+            ids = eventRepository.findIdsBySourceAndStatusInReceivedBefore(segment.source(), segment.statuses(),
+                    segment.cutoff(), chunk);
+        }
+        if (ids.isEmpty()) {
+            return new PurgeResult(0, null);
+        }
+        // 本块中最早的事件即该分段当前最早的过期事件，用于计算清理滞后；同时按来源扣减计数
+        LocalDateTime oldest = null;
+        List<Object[]> summary = eventRepository.summarizeBySourceIn(ids);
+        for (Object[] row : summary) {
+            LocalDateTime rowOldest = (LocalDateTime) row[2];
+            if (oldest == null || rowOldest.isBefore(oldest)) {
+                oldest = rowOldest;
+            }
+        }
+        attemptRepository.deleteByEventIdIn(ids);
+        searchIndex.remove(ids);
+        fieldIndex.remove(ids);
+        bodyRepository.deleteByEventIdIn(ids);
+        int deleted = eventRepository.deleteByIdIn(ids);
+        afterCommit(() -> {
+            for (Object[] row : summary) {
+                countTracker.add((String) row[0], -((Number) row[1]).longValue());
+            }
+        });
+        return new PurgeResult(deleted, oldest);
+    }
+
+    /**
+     * 在当前事务提交后执行内存增量，回滚时丢弃；没有活动事务时立即执行。
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void recordReceived(WebhookEvent event) {
+        rollupTracker.record(event.getSource(), EventRollup.RECEIVED,
+                event.getReceivedAt() != null ? event.getReceivedAt() : LocalDateTime.now(),
+                EventRollupTracker.utf8Length(event.getPayload()), List.of());
+    }
+
+    /**
+     * 事件的全部来源。
+     *
+     * @return 来源列表
+     */
+    public List<String> findDistinctSources() {
+        return eventRepository.findDistinctSources();
+    }
+
+    /**
+     * 一块清理的结果。
+     *
+     * @param deleted          删除的事件数
+     * @param oldestReceivedAt 本块中最早的接收时间，未删除时为 null
+     */
+    public record PurgeResult(int deleted, LocalDateTime oldestReceivedAt) {
+    }
+
+    private static WebhookEventBody toBody(WebhookEvent saved, WebhookEvent source) {
+        return WebhookEventBody.builder()
+                .eventId(saved.getId())
+                .receivedAt(saved.getReceivedAt())
+                .headers(source.getHeaders())
+                .payload(source.getPayload())
+                .deliveryDetails(source.getDeliveryDetails())
+                .build();
+    }
+}
@@ -1,9 +1,9 @@
 package com.example.hookgateway.service;
 
+import com.example.hookgateway.model.DeliveryAttempt;
 import com.example.hookgateway.model.Subscription;
 import com.example.hookgateway.model.WebhookEvent;
 import com.example.hookgateway.repository.SubscriptionRepository;
-import com.example.hookgateway.repository.WebhookEventRepository;
 import com.example.hookgateway.security.VerifierFactory;
 import com.example.hookgateway.security.VerifierStrategy;
 import com.example.hookgateway.websocket.TunnelSessionManager;
@@ -13,6 +13,7 @@ import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -23,7 +24,7 @@ import java.util.List;
 @Slf4j
 public class WebhookProcessingService {
 
-    private final WebhookEventRepository eventRepository;
+    private final WebhookEventStore eventStore;
     private final SubscriptionRepository subscriptionRepository;
     private final ReplayService replayService;
     private final VerifierFactory verifierFactory;
@@ -49,11 +50,11 @@ public class WebhookProcessingService {
 
         if (subs.isEmpty()) {
             event.setStatus("NO_MATCH");
-            eventRepository.save(event);
+            eventStore.saveDeliveryResult(event, List.of());
             return;
         }
 
-        StringBuilder report = new StringBuilder();
+        List<DeliveryAttempt> attempts = new ArrayList<>();
         int successCount = 0;
 
         for (Subscription sub : subs) {
@@ -79,8 +80,7 @@ public class WebhookProcessingService {
             }
 
             if (!isVerified) {
-                report.append("--- Verification Failed for ").append(sub.getTargetUrl()).append(" ---\n")
-                        .append(verificationLog).append("\n\n");
+                attempts.add(skipped(event, sub, "VERIFY_FAILED", verificationLog));
                 continue;
             }
 
@@ -122,15 +122,25 @@ public class WebhookProcessingService {
             }
 
             if (!shouldSend) {
-                report.append("--- Filtered for ").append(sub.getTargetUrl()).append(" ---\n")
-                        .append(filterLog).append("\n\n");
+                attempts.add(skipped(event, sub, "FILTERED", filterLog));
                 continue;
             }
 
             if ("TUNNEL".equalsIgnoreCase(sub.getDestinationType())) {
+                LocalDateTime startedAt = LocalDateTime.now();
+                long startNanos = System.nanoTime();
                 String deliveryLog = tunnelSessionManager.routeEvent(event, sub.getTunnelKey());
-                report.append("--- Delivery Report for TUNNEL (").append(sub.getTunnelKey()).append(") ---\n")
-                        .append(deliveryLog).append("\n\n");
+                String status = tunnelAttemptStatus(deliveryLog);
+                attempts.add(DeliveryAttempt.builder()
+                        .eventId(event.getId())
+                        .subscriptionId(sub.getId())
+                        .target(WebhookEventStore.tunnelTarget(sub.getTunnelKey()))
+                        .status(status)
+                        .latencyMs((System.nanoTime() - startNanos) / 1_000_000)
+                        .error("FAILED".equals(status) ? deliveryLog : null)
+                        .startedAt(startedAt)
+                        .finishedAt(LocalDateTime.now())
+                        .build());
                 continue;
             }
 
@@ -146,8 +156,11 @@ public class WebhookProcessingService {
                 successCount++;
             }
 
-            report.append("--- Delivery Report for ").append(sub.getTargetUrl()).append(" ---\n")
-                    .append(result.getLog()).append("\n\n");
+            for (DeliveryAttempt attempt : result.getAttempts()) {
+                attempt.setEventId(event.getId());
+                attempt.setSubscriptionId(sub.getId());
+                attempts.add(attempt);
+            }
         }
 
         if (successCount == subs.size()) {
@@ -159,10 +172,40 @@ public class WebhookProcessingService {
         }
 
         event.setDeliveryCount(subs.size());
-        event.setDeliveryDetails(report.toString());
         event.setLastDeliveryAt(LocalDateTime.now());
-        eventRepository.save(event);
+        eventStore.saveDeliveryResult(event, attempts);
 
         log.info("Event {} processed: {}/{} success", event.getId(), successCount, subs.size());
     }
+
+    /**
+     * 隧道路由结果对应的投递尝试状态：已下发或转发时最终结果以客户端 ACK 为准。
+     *
+     * @param deliveryLog 路由结果
+     * @return 投递尝试状态
+     */
+    public static String tunnelAttemptStatus(String deliveryLog) {
+        if (deliveryLog.startsWith("SUCCESS") || deliveryLog.startsWith("FORWARDED")) {
+            return "DISPATCHED";
+        }
+        return deliveryLog.startsWith("BUFFERED") ? "BUFFERED" : "FAILED";
+    }
+
+    /**
+     * 验签失败或被过滤而未投递的订阅。
+     */
+    private static DeliveryAttempt skipped(WebhookEvent event, Subscription sub, String status, String reason) {
+        LocalDateTime now = LocalDateTime.now();
+        return DeliveryAttempt.builder()
+                .eventId(event.getId())
+                .subscriptionId(sub.getId())
+                .target("TUNNEL".equalsIgnoreCase(sub.getDestinationType())
+                        ? WebhookEventStore.tunnelTarget(sub.getTunnelKey())
+                        : sub.getTargetUrl())
+                .status(status)
+                .error(reason)
+                .startedAt(now)
+                .finishedAt(now)
+                .build();
+    }
 }
@@ -1,7 +1,6 @@
 package com.example.hookgateway.service;
 
 import com.example.hookgateway.model.WebhookEvent;
-import com.example.hookgateway.repository.WebhookEventRepository;
 import com.example.hookgateway.config.RedisStreamConfig;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -21,7 +20,7 @@ import java.util.Optional;
 @org.springframework.boot.autoconfigure.condition.ConditionalOnProperty(name = "app.distribution.mode", havingValue = "redis")
 public class WebhookStreamConsumer implements StreamListener<String, MapRecord<String, String, String>> {
 
-    private final WebhookEventRepository eventRepository;
+    private final WebhookEventStore eventStore;
     private final WebhookProcessingService processingService;
     private final StringRedisTemplate redisTemplate;
 
@@ -43,7 +42,12 @@ public class WebhookStreamConsumer implements StreamListener<String, MapRecord<S
             Long eventId = Long.parseLong(eventIdStr);
             log.info("Received message from Redis Stream: eventId={}", eventId);
 
-            Optional<WebhookEvent> eventOpt = eventRepository.findById(eventId);
+            // 新版本消息携带来源与方法，无需读取事件元数据行；旧消息或死信重投时回退为完整加载
+            String source = message.getValue().get("source");
+            String method = message.getValue().get("method");
+            Optional<WebhookEvent> eventOpt = source != null && method != null
+                    ? eventStore.findForDelivery(eventId, source, method)
+                    : eventStore.findWithBody(eventId);
             if (eventOpt.isPresent()) {
                 processingService.processEvent(eventOpt.get());
             } else {
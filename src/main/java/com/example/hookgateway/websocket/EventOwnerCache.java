@@ -0,0 +1,47 @@
+package com.example.hookgateway.websocket;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 事件 -> tunnelKey 归属的本地有界缓存（BOLA 校验用），无锁。
+ * 采用直接映射：槽位 = eventId & (容量 - 1)，读写各一次 volatile 访问，不需要全局锁。
+ * 事件 ID 由数据库顺序生成，因此缓存天然等价于“最近 N 个事件”的环形缓冲：
+ * 新事件只会覆盖恰好早 N 个（或其整数倍）的旧事件，被覆盖的映射仍可从 Redis 查询。
+ */
+final class EventOwnerCache {
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+
+    /**
+     * @param capacity 期望容量，向上取整为 2 的幂
+     */
+    EventOwnerCache(int capacity) {
+        int size = Integer.highestOneBit(Math.max(16, Math.min(capacity, 1 << 24)) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    void put(long eventId, String tunnelKey) {
+        slots.set(index(eventId), new Entry(eventId, tunnelKey));
+    }
+
+    /**
+     * @return 事件绑定的 tunnelKey；未缓存或已被覆盖时返回 null
+     */
+    String get(long eventId) {
+        Entry entry = slots.get(index(eventId));
+        return entry != null && entry.eventId == eventId ? entry.tunnelKey : null;
+    }
+
+    int capacity() {
+        return slots.length();
+    }
+
+    private int index(long eventId) {
+        return (int) (eventId & mask);
+    }
+
+    private record Entry(long eventId, String tunnelKey) {
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.hookgateway.websocket;
+
+import com.example.hookgateway.model.DeliveryAttempt;
+import com.example.hookgateway.service.WebhookEventStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 隧道 ACK 异步批处理：WebSocket 线程只做解析与校验并入队，
+ * 后台线程按批次校验事件归属，批量追加投递尝试，状态交给 {@link com.example.hookgateway.service.EventStatusWriter} 合并写库，
+ * 避免逐条 findById + save 阻塞 WebSocket 线程。
+ */
+@Component
+@Slf4j
+public class TunnelAckProcessor {
+
+    private final TunnelSessionManager sessionManager;
+    private final WebhookEventStore eventStore;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter appliedCounter;
+    private final Counter rejectedCounter;
+    private final Counter droppedCounter;
+
+    // 每批最多处理的 ACK 数
+    @Value("${app.tunnel.ack.batch-size:200}")
+    private int batchSize;
+
+    // 队列为空时的最长等待时间（毫秒），即 ACK 写库的最大延迟
+    @Value("${app.tunnel.ack.flush-interval-ms:100}")
+    private long flushIntervalMs;
+
+    private final BlockingQueue<AckUpdate> queue;
+    private Thread worker;
+    private volatile boolean running;
+
+    public TunnelAckProcessor(TunnelSessionManager sessionManager, WebhookEventStore eventStore,
+            TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+            @Value("${app.tunnel.ack.queue-capacity:10000}") int queueCapacity) {
+        this.sessionManager = sessionManager;
+        this.eventStore = eventStore;
+        this.transactionTemplate = transactionTemplate;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.appliedCounter = Counter.builder("webhook.tunnel.acks")
+                .tag("result", "applied")
+                .description("Tunnel ACKs written to the event store")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("webhook.tunnel.acks")
+                .tag("result", "rejected")
+                .description("Tunnel ACKs rejected because the event was not routed to the tunnel")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("webhook.tunnel.acks")
+                .tag("result", "dropped")
+                .description("Tunnel ACKs dropped because the ACK queue was full")
+                .register(meterRegistry);
+        Gauge.builder("webhook.tunnel.ack.queue.size", queue, BlockingQueue::size)
+                .description("Tunnel ACKs waiting to be written")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 应用就绪后启动写库线程。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        worker = new Thread(this::runLoop, "Tunnel-Ack");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("[TunnelAck] Started ACK writer (batchSize={}, flushInterval={}ms)", batchSize, flushIntervalMs);
+    }
+
+    /**
+     * 停机时写完队列中剩余的 ACK。
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker == null) {
+            return;
+        }
+        worker.interrupt();
+        try {
+            worker.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<AckUpdate> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            applyBatch(remaining);
+        }
+    }
+
+    /**
+     * 提交一条已通过格式校验的 ACK。
+     *
+     * @param ack ACK
+     * @return false 表示队列已满被丢弃
+     */
+    public boolean submit(AckUpdate ack) {
+        if (queue.offer(ack)) {
+            return true;
+        }
+        droppedCounter.increment();
+        log.warn("[TunnelAck] ACK queue full, dropped ACK for event {} from tunnel", ack.eventId());
+        return false;
+    }
+
+    /**
+     * 写库线程主循环：阻塞等待首条 ACK，然后尽量凑满一批再写库。
+     */
+    private void runLoop() {
+        List<AckUpdate> batch = new ArrayList<>(batchSize);
+        while (running && !Thread.currentThread().isInterrupted()) {
+            try {
+                AckUpdate first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                applyBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("[TunnelAck] Failed to apply ACK batch of {}", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+        log.info("[TunnelAck] ACK writer stopped");
+    }
+
+    /**
+     * 校验事件归属并批量写库。同一事件的多条 ACK 合并为一次状态更新（取最后一条），每条 ACK 各记一次投递尝试。
+     *
+     * @param batch ACK 批次
+     */
+    void applyBatch(List<AckUpdate> batch) {
+        // 安全加固 (BOLA): 批量获取事件绑定的 tunnelKey，映射缺失或不匹配时拒绝（fail closed）
+        Map<Long, String> owners = sessionManager.getTunnelKeysForEvents(
+                batch.stream().map(AckUpdate::eventId).distinct().toList());
+
+        Map<Long, String> statuses = new LinkedHashMap<>();
+        Map<Long, Long> latencies = new HashMap<>();
+        List<DeliveryAttempt> attempts = new ArrayList<>();
+        for (AckUpdate ack : batch) {
+            String expectedTunnelKey = owners.get(ack.eventId());
+            if (expectedTunnelKey == null || !expectedTunnelKey.equals(ack.tunnelKey())) {
+                rejectedCounter.increment();
+                log.warn("[TunnelAck] BOLA ATTEMPT OR MAPPING EXPIRED! Tunnel tried to ACK event {} which is not routed to it",
+                        ack.eventId());
+                continue;
+            }
+            statuses.put(ack.eventId(), ack.status());
+            if (ack.latencyMs() != null) {
+                latencies.put(ack.eventId(), ack.latencyMs());
+            }
+            attempts.add(DeliveryAttempt.builder()
+                    .eventId(ack.eventId())
+                    .target(WebhookEventStore.tunnelTarget(ack.tunnelKey()))
+                    .status(ack.status())
+                    .latencyMs(ack.latencyMs())
+                    .error("SUCCESS".equals(ack.status()) ? null : ack.detail())
+                    .startedAt(ack.ackedAt())
+                    .finishedAt(ack.ackedAt())
+                    .build());
+        }
+        if (statuses.isEmpty()) {
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(tx -> eventStore.recordAttempts(attempts));
+        eventStore.applyDeliveryAcks(statuses, latencies);
+        appliedCounter.increment(statuses.size());
+        log.debug("[TunnelAck] Applied {} ACKs for {} events", batch.size(), statuses.size());
+    }
+
+    /**
+     * 待写库的 ACK。
+     *
+     * @param tunnelKey 发送 ACK 的隧道 Key
+     * @param eventId   事件 ID
+     * @param status    投递状态
+     * @param detail    投递明细（已截断）
+     * @param latencyMs 从发送到 ACK 的耗时（毫秒），未知时为 null
+     * @param ackedAt   收到 ACK 的时间
+     */
+    public record AckUpdate(String tunnelKey, Long eventId, String status, String detail, Long latencyMs,
+            LocalDateTime ackedAt) {
+    }
+}
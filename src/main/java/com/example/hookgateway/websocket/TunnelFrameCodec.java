@@ -0,0 +1,119 @@
+package com.example.hookgateway.websocket;
+
+import com.example.hookgateway.model.TunnelBroadcastMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * 隧道 v2 二进制帧编码（网关 -> Agent）。
+ *
+ * <pre>
+ * 帧头:   version(1B)=2 | type(1B)=1 WEBHOOKS | flags(1B) bit0=DEFLATE | count(4B)
+ * 帧体:   flags 含 DEFLATE 时为 rawLength(4B) + deflate(原始帧体)，否则为原始帧体
+ * 原始帧体中每个事件:
+ *         headerLength(4B) | header | payloadLength(4B) | payload(原始字节)
+ * header: eventId(8B) | source | method | headers，字符串均为 length(4B) + UTF-8
+ * </pre>
+ *
+ * 所有整数均为大端序。v1（JSON 文本帧）保留给旧版 Agent。
+ */
+final class TunnelFrameCodec {
+
+    static final int PROTOCOL_V1 = 1;
+    static final int PROTOCOL_V2 = 2;
+
+    static final byte TYPE_WEBHOOKS = 1;
+    static final byte FLAG_DEFLATE = 1;
+
+    private TunnelFrameCodec() {
+    }
+
+    /**
+     * 将一批事件编码为一个 v2 帧。
+     *
+     * @param messages          事件列表
+     * @param compressThreshold 原始帧体达到该字节数时启用 DEFLATE 压缩，小于等于 0 表示不压缩
+     * @return 帧数据
+     */
+    static ByteBuffer encode(List<TunnelBroadcastMessage> messages, int compressThreshold) {
+        byte[] body = encodeBody(messages);
+        byte flags = 0;
+        if (compressThreshold > 0 && body.length >= compressThreshold) {
+            byte[] compressed = deflate(body);
+            // 压缩收益不足时（如已压缩的二进制负载）直接发送原始帧体
+            if (compressed.length + 4 < body.length) {
+                flags = FLAG_DEFLATE;
+                body = ByteBuffer.allocate(4 + compressed.length)
+                        .putInt(body.length)
+                        .put(compressed)
+                        .array();
+            }
+        }
+
+        return ByteBuffer.allocate(7 + body.length)
+                .put((byte) PROTOCOL_V2)
+                .put(TYPE_WEBHOOKS)
+                .put(flags)
+                .putInt(messages.size())
+                .put(body)
+                .flip();
+    }
+
+    private static byte[] encodeBody(List<TunnelBroadcastMessage> messages) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            for (TunnelBroadcastMessage msg : messages) {
+                ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+                DataOutputStream header = new DataOutputStream(headerBytes);
+                header.writeLong(msg.getEventId() != null ? msg.getEventId() : 0L);
+                writeString(header, msg.getSource());
+                writeString(header, msg.getMethod());
+                writeString(header, msg.getHeaders());
+
+                out.writeInt(headerBytes.size());
+                headerBytes.writeTo(out);
+                byte[] payload = utf8(msg.getPayload());
+                out.writeInt(payload.length);
+                out.write(payload);
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // 内存流不会抛出 IOException
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] data = utf8(value);
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    private static byte[] utf8(String value) {
+        return (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+}
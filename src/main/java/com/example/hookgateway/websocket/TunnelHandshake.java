@@ -0,0 +1,11 @@
+package com.example.hookgateway.websocket;
+
+/**
+ * 隧道连接握手时协商的参数。
+ *
+ * @param protocolVersion 协议版本（1: JSON 文本帧，2: 二进制帧）
+ * @param agentId         Agent 实例 ID（X-Tunnel-Agent-Id），旧版 Agent 为 null
+ * @param resumeAfter     续传游标（X-Tunnel-Resume-After）：该 Agent 已确认的最大连续 eventId，首次连接为 null
+ */
+public record TunnelHandshake(int protocolVersion, String agentId, Long resumeAfter) {
+}
@@ -0,0 +1,211 @@
+package com.example.hookgateway.websocket;
+
+import com.example.hookgateway.model.TunnelBroadcastMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 隧道持久缓冲：每个 tunnelKey 一个 Redis Stream（tunnel:buffer:{tunnelKey}）。
+ * 客户端未确认事件过多或隧道离线时，新事件按顺序写入缓冲，
+ * 额度释放或客户端重连后再按限速依次发送。缓冲同时受条数与时长限制。
+ */
+@Component
+@Slf4j
+public class TunnelOverflowBuffer {
+
+    private static final String BUFFER_PREFIX = "tunnel:buffer:";
+
+    @Autowired(required = false)
+    private StringRedisTemplate redisTemplate;
+
+    // 单个隧道缓冲的最大条数（近似裁剪）
+    @Value("${app.tunnel.buffer.max-length:10000}")
+    private long maxLength;
+
+    // 缓冲事件的最长保留时间（毫秒），超时的事件不再投递
+    @Value("${app.tunnel.buffer.max-age-ms:86400000}")
+    private long maxAgeMs;
+
+    /**
+     * 缓冲是否可用（需要 Redis）。
+     *
+     * @return true 表示可用
+     */
+    public boolean isAvailable() {
+        return redisTemplate != null;
+    }
+
+    /**
+     * 追加一条待发送事件。
+     *
+     * @param msg 隧道消息
+     * @return true 表示写入成功
+     */
+    public boolean append(TunnelBroadcastMessage msg) {
+        return append(msg, null, false);
+    }
+
+    /**
+     * 追加一条断线时未确认、需要重发的事件。
+     *
+     * @param msg             隧道消息
+     * @param agentId         原先发送到的 Agent 实例 ID，可为 null
+     * @param receivedByAgent 是否确定已被该 Agent 收到
+     * @return true 表示写入成功
+     */
+    public boolean appendRedelivery(TunnelBroadcastMessage msg, String agentId, boolean receivedByAgent) {
+        return append(msg, agentId, receivedByAgent);
+    }
+
+    private boolean append(TunnelBroadcastMessage msg, String agentId, boolean receivedByAgent) {
+        if (redisTemplate == null) {
+            return false;
+        }
+        try {
+            Map<byte[], byte[]> fields = new HashMap<>();
+            if (agentId != null) {
+                fields.put(bytes("agentId"), bytes(agentId));
+                fields.put(bytes("received"), bytes(receivedByAgent ? "1" : "0"));
+            }
+            fields.put(bytes("eventId"), bytes(String.valueOf(msg.getEventId())));
+            fields.put(bytes("source"), bytes(msg.getSource()));
+            fields.put(bytes("method"), bytes(msg.getMethod()));
+            fields.put(bytes("headers"), bytes(msg.getHeaders()));
+            fields.put(bytes("payload"), bytes(msg.getPayload()));
+
+            // XADD MAXLEN ~ 限制条数，PEXPIRE 让长期无人连接的隧道缓冲整体过期；管道一次往返
+            byte[] rawKey = bytes(key(msg.getTunnelKey()));
+            RedisStreamCommands.XAddOptions options = RedisStreamCommands.XAddOptions.maxlen(maxLength)
+                    .approximateTrimming(true);
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.streamCommands().xAdd(StreamRecords.rawBytes(fields).withStreamKey(rawKey), options);
+                connection.keyCommands().pExpire(rawKey, maxAgeMs);
+                return null;
+            });
+            return true;
+        } catch (Exception e) {
+            log.error("[TunnelBuffer] Failed to buffer event {} for tunnel", msg.getEventId(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 按顺序读取最早的若干条缓冲事件（不删除），顺带清理超过保留时间的事件。
+     *
+     * @param tunnelKey 隧道 Key
+     * @param count     最大条数
+     * @return 缓冲事件列表
+     */
+    public List<BufferedMessage> peek(String tunnelKey, int count) {
+        List<BufferedMessage> result = new ArrayList<>();
+        if (redisTemplate == null || count <= 0) {
+            return result;
+        }
+        List<MapRecord<String, Object, Object>> records = redisTemplate.opsForStream()
+                .range(key(tunnelKey), Range.unbounded(), Limit.limit().count(count));
+        if (records == null) {
+            return result;
+        }
+        long oldestAllowed = System.currentTimeMillis() - maxAgeMs;
+        for (MapRecord<String, Object, Object> record : records) {
+            if (record.getId().getTimestamp() < oldestAllowed) {
+                // 超过最长保留时间，丢弃
+                log.warn("[TunnelBuffer] Dropping expired buffered event {} for tunnel",
+                        record.getValue().get("eventId"));
+                remove(tunnelKey, record.getId().getValue());
+                continue;
+            }
+            Map<Object, Object> body = record.getValue();
+            TunnelBroadcastMessage msg = TunnelBroadcastMessage.builder()
+                    .tunnelKey(tunnelKey)
+                    .eventId(Long.parseLong(String.valueOf(body.get("eventId"))))
+                    .source((String) body.get("source"))
+                    .method((String) body.get("method"))
+                    .headers((String) body.get("headers"))
+                    .payload((String) body.get("payload"))
+                    .build();
+            result.add(new BufferedMessage(record.getId().getValue(), msg, (String) body.get("agentId"),
+                    "1".equals(body.get("received"))));
+        }
+        return result;
+    }
+
+    /**
+     * 删除已发送的缓冲事件。
+     *
+     * @param tunnelKey 隧道 Key
+     * @param recordId  缓冲记录 ID
+     */
+    public void remove(String tunnelKey, String recordId) {
+        if (redisTemplate == null) {
+            return;
+        }
+        redisTemplate.opsForStream().delete(key(tunnelKey), recordId);
+    }
+
+    /**
+     * 批量删除已发送的缓冲事件（一次 XDEL）。
+     *
+     * @param tunnelKey 隧道 Key
+     * @param recordIds 缓冲记录 ID 列表
+     */
+    public void remove(String tunnelKey, List<String> recordIds) {
+        if (redisTemplate == null || recordIds.isEmpty()) {
+            return;
+        }
+        redisTemplate.opsForStream().delete(key(tunnelKey), recordIds.toArray(String[]::new));
+    }
+
+    /**
+     * 获取缓冲中的事件数。
+     *
+     * @param tunnelKey 隧道 Key
+     * @return 事件数
+     */
+    public long size(String tunnelKey) {
+        if (redisTemplate == null) {
+            return 0;
+        }
+        try {
+            Long size = redisTemplate.opsForStream().size(key(tunnelKey));
+            return size != null ? size : 0;
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String key(String tunnelKey) {
+        return BUFFER_PREFIX + tunnelKey;
+    }
+
+    /**
+     * 缓冲中的一条事件。
+     *
+     * @param recordId        缓冲记录 ID
+     * @param message         隧道消息
+     * @param agentId         重发事件原先发送到的 Agent 实例 ID，普通缓冲事件为 null
+     * @param receivedByAgent 重发事件是否确定已被该 Agent 收到
+     */
+    public record BufferedMessage(String recordId, TunnelBroadcastMessage message, String agentId,
+            boolean receivedByAgent) {
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.hookgateway.websocket;
+
+import com.example.hookgateway.model.TunnelBroadcastMessage;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 同一 tunnelKey 下的全部本地连接（多个 Agent 副本）。
+ * 每个连接有独立的信用额度，发送时按策略在有额度的连接中选择；
+ * 溢出缓冲按 tunnelKey 共享，因此缓冲计数与排空标志放在组上，保证补发顺序。
+ */
+class TunnelSessionGroup {
+
+    /**
+     * 连接选择策略。
+     */
+    enum BalanceStrategy {
+        // 轮询
+        ROUND_ROBIN,
+        // 未确认事件最少的连接优先
+        LEAST_IN_FLIGHT
+    }
+
+    private final String tunnelKey;
+    private final List<TunnelSessionState> sessions = new CopyOnWriteArrayList<>();
+    private final AtomicInteger nextIndex = new AtomicInteger();
+
+    // 溢出缓冲中等待发送的事件数（近似值）
+    private final AtomicLong buffered = new AtomicLong();
+
+    // 同一时间只允许一个线程排空缓冲，保证顺序
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    // Agent 重连时上报的续传游标：agentId -> 已确认的最大连续 eventId
+    private final Map<String, Long> resumeCursors = new ConcurrentHashMap<>();
+
+    // 投递到 ACK 时延的隧道级计时器，指标注册后设置
+    private volatile Timer ackLatencyTimer;
+
+    TunnelSessionGroup(String tunnelKey) {
+        this.tunnelKey = tunnelKey;
+    }
+
+    String getTunnelKey() {
+        return tunnelKey;
+    }
+
+    List<TunnelSessionState> getSessions() {
+        return sessions;
+    }
+
+    void add(TunnelSessionState state) {
+        sessions.add(state);
+    }
+
+    boolean remove(TunnelSessionState state) {
+        return sessions.remove(state);
+    }
+
+    boolean isEmpty() {
+        return sessions.isEmpty();
+    }
+
+    int size() {
+        return sessions.size();
+    }
+
+    /**
+     * 按策略选择一个有额度的打开连接，并为事件占用额度。
+     *
+     * @param msg      隧道消息
+     * @param strategy 选择策略
+     * @return 已占用额度的连接；所有连接额度都已用尽时返回 null
+     */
+    TunnelSessionState acquire(TunnelBroadcastMessage msg, BalanceStrategy strategy) {
+        List<TunnelSessionState> snapshot = List.copyOf(sessions);
+        if (snapshot.isEmpty()) {
+            return null;
+        }
+
+        if (strategy == BalanceStrategy.LEAST_IN_FLIGHT) {
+            // 额度可能被并发占用，按未确认数从少到多依次尝试
+            List<TunnelSessionState> ordered = snapshot.stream()
+                    .filter(TunnelSessionState::isOpen)
+                    .sorted(Comparator.comparingInt(TunnelSessionState::getInFlightCount))
+                    .toList();
+            for (TunnelSessionState state : ordered) {
+                if (state.tryAcquireCredit(msg)) {
+                    return state;
+                }
+            }
+            return null;
+        }
+
+        int start = Math.floorMod(nextIndex.getAndIncrement(), snapshot.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            TunnelSessionState state = snapshot.get((start + i) % snapshot.size());
+            if (state.isOpen() && state.tryAcquireCredit(msg)) {
+                return state;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 所有打开连接的剩余额度之和。
+     */
+    int getAvailableCredits() {
+        int total = 0;
+        for (TunnelSessionState state : sessions) {
+            if (state.isOpen()) {
+                total += state.getAvailableCredits();
+            }
+        }
+        return total;
+    }
+
+    boolean hasOpenSession() {
+        for (TunnelSessionState state : sessions) {
+            if (state.isOpen()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 记录 Agent 的续传游标。
+     *
+     * @param agentId     Agent 实例 ID
+     * @param resumeAfter 已确认的最大连续 eventId
+     */
+    void setResumeCursor(String agentId, long resumeAfter) {
+        resumeCursors.merge(agentId, resumeAfter, Math::max);
+    }
+
+    /**
+     * 判断重发事件是否已被原 Agent 处理：确定已送达该 Agent，且不超过其续传游标。
+     *
+     * @param buffered 缓冲事件
+     * @return true 表示无需重发
+     */
+    boolean isCoveredByResumeCursor(TunnelOverflowBuffer.BufferedMessage buffered) {
+        if (buffered.agentId() == null || !buffered.receivedByAgent()) {
+            return false;
+        }
+        Long cursor = resumeCursors.get(buffered.agentId());
+        return cursor != null && buffered.message().getEventId() <= cursor;
+    }
+
+    Timer getAckLatencyTimer() {
+        return ackLatencyTimer;
+    }
+
+    void setAckLatencyTimer(Timer ackLatencyTimer) {
+        this.ackLatencyTimer = ackLatencyTimer;
+    }
+
+    AtomicLong getBuffered() {
+        return buffered;
+    }
+
+    boolean tryStartDrain() {
+        return draining.compareAndSet(false, true);
+    }
+
+    void finishDrain() {
+        draining.set(false);
+    }
+}
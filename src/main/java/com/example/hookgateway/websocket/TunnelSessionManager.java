@@ -1,23 +1,48 @@
 package com.example.hookgateway.websocket;
 
+import com.example.hookgateway.config.InstanceIdentity;
+import com.example.hookgateway.config.RedisPubSubConfig;
 import com.example.hookgateway.model.TunnelBroadcastMessage;
 import com.example.hookgateway.model.WebhookEvent;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 隧道会话管理器
- * 管理活跃的 WebSocket 隧道连接，支持分布式环境下的消息路由
+ * 管理活跃的 WebSocket 隧道连接，支持分布式环境下的消息路由。
+ * 集群模式下通过 Redis 注册表（tunnelKey -> 持有连接的节点集合，每个节点带心跳续期的过期时间）定位持有连接的节点，
+ * 仅向其中一个存活节点的专属频道定向转发，而不是向所有节点广播。
+ * 本地发送经每会话的并发装饰器排队，并按客户端 ACK 做信用额度流控，超出额度的事件进入溢出缓冲。
+ * 同一 tunnelKey 允许多个 Agent 同时连接，事件按轮询或最少未确认策略分配给其中之一。
+ * 服务端定时发送 Ping，连续多个 Ping 未收到 Pong 的半开连接会被主动剔除。
+ * 隧道的定时任务运行在独立的调度线程池（tunnelTaskScheduler）上，不受其他定时任务阻塞。
  */
 @Component
 @Slf4j
@@ -25,209 +50,968 @@ import java.util.concurrent.ConcurrentHashMap;
 public class TunnelSessionManager {
 
     private final ObjectMapper objectMapper;
+    private final InstanceIdentity instanceIdentity;
+    private final TunnelOverflowBuffer overflowBuffer;
+    private final MeterRegistry meterRegistry;
     private static final String EVENT_TUNNEL_PREFIX = "webhook:event:tunnel:";
 
+    // 隧道注册表：tunnelKey -> 持有连接的节点集合（ZSET，成员为节点 ID，分数为该成员的过期时间戳）。
+    // 同一隧道的多个 Agent 可能连接到不同节点，各节点只续期、释放自己的成员
+    private static final String TUNNEL_OWNERS_PREFIX = "tunnel:owners:";
+    // 成员有效期，需大于心跳间隔，节点宕机后其成员自动过期；整个键的 TTL 相同，所有节点都离开后自动删除
+    private static final java.time.Duration OWNER_TTL = java.time.Duration.ofSeconds(30);
+
     @org.springframework.beans.factory.annotation.Autowired(required = false)
     private StringRedisTemplate redisTemplate;
 
-    // 键：tunnelKey，值：WebSocketSession
-    private final Map<String, WebSocketSession> activeSessions = new ConcurrentHashMap<>();
+    // 单次发送的最长耗时（毫秒），超时后关闭会话
+    @Value("${app.tunnel.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
 
-    // V14: BOLA 保护的本地兜底缓存（限制大小）
-    private final Map<Long, String> localEventTunnelMap = java.util.Collections
-            .synchronizedMap(new java.util.LinkedHashMap<Long, String>() {
-                protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
-                    return size() > 5000;
-                }
-            });
+    // 单会话发送缓冲区上限（字节），超出后关闭会话
+    @Value("${app.tunnel.send-buffer-size-limit:1048576}")
+    private int sendBufferSizeLimit;
+
+    // 单个连接最多未确认事件数（信用额度）
+    @Value("${app.tunnel.max-unacked:100}")
+    private int maxUnacked;
+
+    // 事件发送后超过该时长未收到 ACK 则释放额度
+    @Value("${app.tunnel.ack-timeout-ms:60000}")
+    private long ackTimeoutMs;
+
+    // v2 协议帧体达到该字节数时启用 DEFLATE 压缩
+    @Value("${app.tunnel.v2.compress-threshold-bytes:1024}")
+    private int compressThresholdBytes;
+
+    // 缓冲事件补发速率（条/秒），避免重连后瞬间压垮本地服务
+    @Value("${app.tunnel.buffer.replay-rate:50}")
+    private int replayRatePerSecond;
+
+    // 同一隧道多个连接之间的分配策略：least-in-flight（默认）或 round-robin
+    @Value("${app.tunnel.balance-strategy:least-in-flight}")
+    private String balanceStrategy;
+
+    // 单个隧道在本节点允许的最大连接数
+    @Value("${app.tunnel.max-sessions-per-key:10}")
+    private int maxSessionsPerKey;
+
+    // 心跳间隔（毫秒），0 表示关闭心跳
+    @Value("${app.tunnel.heartbeat.interval-ms:15000}")
+    private long heartbeatIntervalMs;
+
+    // 已发出但未收到 Pong 的 Ping 数达到该值时剔除连接
+    @Value("${app.tunnel.heartbeat.max-missed:3}")
+    private int heartbeatMaxMissed;
+
+    // 下一次发送心跳的时间（毫秒）
+    private volatile long nextHeartbeatAt;
+
+    // 本节点的隧道连接总数
+    private final AtomicInteger activeConnections = new AtomicInteger();
+
+    // 键：tunnelKey，值：该隧道在本节点的全部连接
+    private final Map<String, TunnelSessionGroup> activeSessions = new ConcurrentHashMap<>();
+
+    // 监控指标：键为会话 ID（连接级）或 tunnelKey（隧道级），会话或隧道移除时注销
+    private final Map<String, List<Meter>> sessionMeters = new ConcurrentHashMap<>();
+
+    // 事件归属映射在 Redis 中的保留时间
+    private static final java.time.Duration EVENT_TUNNEL_TTL = java.time.Duration.ofHours(24);
+
+    // 本地事件归属缓存容量（条），向上取整为 2 的幂
+    @Value("${app.tunnel.event-mapping.cache-size:65536}")
+    private int eventMappingCacheSize;
+
+    // 待批量写入 Redis 的事件归属映射上限，超出时由调用线程同步刷写
+    @Value("${app.tunnel.event-mapping.queue-capacity:10000}")
+    private int eventMappingQueueCapacity;
+
+    // V14: BOLA 保护的本地有界缓存（无锁，按事件 ID 直接映射）
+    private EventOwnerCache eventOwnerCache;
+
+    // 待写入 Redis 的事件归属映射，由 flushEventMappings 管道批量写入
+    private java.util.concurrent.BlockingQueue<Map.Entry<Long, String>> pendingEventMappings;
+
+    @PostConstruct
+    public void init() {
+        eventOwnerCache = new EventOwnerCache(eventMappingCacheSize);
+        pendingEventMappings = new java.util.concurrent.LinkedBlockingQueue<>(Math.max(1, eventMappingQueueCapacity));
+        log.info("[TunnelManager] Event mapping cache capacity: {}", eventOwnerCache.capacity());
+    }
 
     /**
      * 将 Webhook 事件路由到正确的隧道客户端
-     * 本地无连接时通过 Redis 广播到集群其他节点
+     * 本地无连接时查询注册表，定向转发给持有连接的节点
      */
     public String routeEvent(WebhookEvent event, String tunnelKey) {
         // V13: BOLA 保护 - 路由前先登记映射
         registerEventTunnelMapping(event.getId(), tunnelKey);
 
-        WebSocketSession session = getSession(tunnelKey);
+        TunnelSessionGroup group = getGroup(tunnelKey);
 
-        if (session != null && session.isOpen()) {
-            return deliverToLocal(event, tunnelKey, session);
+        if (group != null) {
+            return dispatch(group, toTunnelMessage(event, tunnelKey));
         }
 
-        // 本地没有活跃连接，尝试广播到集群
-        if (redisTemplate != null) {
-            log.info("[TunnelManager] Local session missing for {}, broadcasting to cluster", tunnelKey);
-            broadcastToCluster(event, tunnelKey);
-            return "QUEUED: Broadcasted to cluster at " + LocalDateTime.now();
+        if (redisTemplate == null) {
+            return "ERROR: Tunnel not connected and Redis not available";
+        }
+
+        List<String> ownerNodes = lookupOwners(tunnelKey);
+        if (ownerNodes.isEmpty()) {
+            // 注册表中没有其他存活节点（本节点的成员是本地已无连接时的过期数据）
+            log.info("[TunnelManager] Tunnel {} is not connected to any node", tunnelKey);
+            return bufferOffline(event, tunnelKey, "not connected to any node");
         }
 
-        return "ERROR: Tunnel not connected and Redis not available";
+        // 依次尝试持有连接的节点，直到有节点收到转发
+        for (String ownerNode : ownerNodes) {
+            Long receivers = forwardToNode(event, tunnelKey, ownerNode);
+            if (receivers != null && receivers > 0) {
+                return "FORWARDED: Routed to node " + ownerNode + " at " + LocalDateTime.now();
+            }
+            log.warn("[TunnelManager] Owner node {} of tunnel {} is unreachable", ownerNode, tunnelKey);
+        }
+        return bufferOffline(event, tunnelKey, "owner nodes " + ownerNodes + " unreachable");
     }
 
     /**
-     * 处理来自集群其他节点的广播消息
+     * 隧道离线时写入持久缓冲，客户端重连后按顺序补发。
+     *
+     * @param event     事件
+     * @param tunnelKey 隧道 Key
+     * @param reason    离线原因
+     * @return 结果描述
+     */
+    private String bufferOffline(WebhookEvent event, String tunnelKey, String reason) {
+        if (overflowBuffer.append(toTunnelMessage(event, tunnelKey))) {
+            return "BUFFERED: Tunnel " + reason + ", queued for replay on reconnect at " + LocalDateTime.now();
+        }
+        return "ERROR: Tunnel " + reason;
+    }
+
+    /**
+     * 处理来自集群其他节点的定向转发消息
      */
     public void handleBroadcast(TunnelBroadcastMessage msg) {
-        WebSocketSession session = getSession(msg.getTunnelKey());
-        if (session != null && session.isOpen()) {
+        TunnelSessionGroup group = getGroup(msg.getTunnelKey());
+        if (group != null) {
             log.info("[TunnelManager] Handling cluster broadcast for tunnel: {}", msg.getTunnelKey());
-            try {
-                java.util.Map<String, Object> tunnelMessage = new java.util.HashMap<>();
-                tunnelMessage.put("type", "WEBHOOK");
-                tunnelMessage.put("eventId", msg.getEventId());
-                tunnelMessage.put("source", msg.getSource());
-                tunnelMessage.put("method", msg.getMethod());
-                tunnelMessage.put("headers", msg.getHeaders() != null ? msg.getHeaders() : "");
-                tunnelMessage.put("payload", msg.getPayload() != null ? msg.getPayload() : "");
-
-                String jsonMessage = objectMapper.writeValueAsString(tunnelMessage);
-                session.sendMessage(new TextMessage(jsonMessage));
-            } catch (Exception e) {
-                log.error("[TunnelManager] Failed to deliver broadcasted message to local tunnel", e);
+            String result = dispatch(group, msg);
+            if (result.startsWith("ERROR")) {
+                log.error("[TunnelManager] Failed to deliver broadcasted message to local tunnel: {}", result);
             }
+        } else {
+            log.warn("[TunnelManager] Received event {} for tunnel {} but it is no longer connected here",
+                    msg.getEventId(), msg.getTunnelKey());
         }
     }
 
     /**
-     * 将事件发送到本地隧道会话。
+     * 处理客户端 ACK：释放发送该事件的连接上的额度。
      *
-     * @param event     事件
      * @param tunnelKey 隧道 Key
-     * @param session   会话
+     * @param eventId   事件 ID
+     * @return 从发送到 ACK 的耗时（毫秒），事件不在本节点在途时为 null
+     */
+    public Long onAck(String tunnelKey, Long eventId) {
+        TunnelSessionGroup group = activeSessions.get(tunnelKey);
+        if (group == null) {
+            return null;
+        }
+        // 释放的额度由 replayBuffered 按限速补发缓冲事件时使用
+        for (TunnelSessionState state : group.getSessions()) {
+            long latencyNanos = state.acknowledge(eventId);
+            if (latencyNanos >= 0) {
+                Timer timer = group.getAckLatencyTimer();
+                if (timer != null && latencyNanos > 0) {
+                    timer.record(latencyNanos, TimeUnit.NANOSECONDS);
+                }
+                return latencyNanos > 0 ? TimeUnit.NANOSECONDS.toMillis(latencyNanos) : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 本地发送入口：缓冲为空且有连接有额度时直接发送，否则按顺序写入溢出缓冲。
+     *
+     * @param group 隧道连接组
+     * @param msg   隧道消息
+     * @return 发送结果描述
+     */
+    private String dispatch(TunnelSessionGroup group, TunnelBroadcastMessage msg) {
+        TunnelSessionState state = group.getBuffered().get() > 0 ? null
+                : group.acquire(msg, getBalanceStrategy());
+        if (state == null) {
+            if (overflowBuffer.append(msg)) {
+                group.getBuffered().incrementAndGet();
+                log.info("[Tunnel] All {} session(s) of tunnel {} are busy, buffered webhook {}",
+                        group.size(), group.getTunnelKey(), msg.getEventId());
+                return "BUFFERED: Tunnel busy, queued for delivery at " + LocalDateTime.now();
+            }
+            return "ERROR: Tunnel busy (" + group.size() + " session(s) at max unacked) and buffer unavailable";
+        }
+        return send(state, msg);
+    }
+
+    private TunnelSessionGroup.BalanceStrategy getBalanceStrategy() {
+        return "round-robin".equalsIgnoreCase(balanceStrategy)
+                ? TunnelSessionGroup.BalanceStrategy.ROUND_ROBIN
+                : TunnelSessionGroup.BalanceStrategy.LEAST_IN_FLIGHT;
+    }
+
+    /**
+     * 在已占用额度的前提下发送一条事件，失败时归还额度。
+     *
+     * @param state 会话发送状态
+     * @param msg   隧道消息
+     * @return 发送结果描述
+     */
+    private String send(TunnelSessionState state, TunnelBroadcastMessage msg) {
+        return send(state, List.of(msg));
+    }
+
+    /**
+     * 在已占用额度的前提下发送一批事件，失败时归还全部额度。
+     * v2 连接将整批事件合并为一个二进制帧，v1 连接逐条发送 JSON 文本帧。
+     *
+     * @param state    会话发送状态
+     * @param messages 隧道消息
      * @return 发送结果描述
      */
-    private String deliverToLocal(WebhookEvent event, String tunnelKey, WebSocketSession session) {
+    private String send(TunnelSessionState state, List<TunnelBroadcastMessage> messages) {
+        // 发送节点记录归属：集群转发或缓冲补发的事件，其 ACK 在本节点校验时无需查询 Redis
+        messages.forEach(msg -> {
+            if (msg.getEventId() != null) {
+                eventOwnerCache.put(msg.getEventId(), state.getTunnelKey());
+            }
+        });
         try {
-            java.util.Map<String, Object> tunnelMessage = new java.util.HashMap<>();
-            tunnelMessage.put("type", "WEBHOOK");
-            tunnelMessage.put("eventId", event.getId());
-            tunnelMessage.put("source", event.getSource());
-            tunnelMessage.put("method", event.getMethod());
-            tunnelMessage.put("headers", event.getHeaders() != null ? event.getHeaders() : "");
-            tunnelMessage.put("payload", event.getPayload() != null ? event.getPayload() : "");
-
-            String jsonMessage = objectMapper.writeValueAsString(tunnelMessage);
-            session.sendMessage(new TextMessage(jsonMessage));
-
-            log.info("[Tunnel] Sent webhook {} to local tunnel {}", event.getId(), tunnelKey);
+            // 先编码再持锁：锁内只分配发送序号并写入发送会话，序号顺序即实际发送顺序
+            if (state.getProtocolVersion() >= TunnelFrameCodec.PROTOCOL_V2) {
+                BinaryMessage frame = new BinaryMessage(TunnelFrameCodec.encode(messages, compressThresholdBytes));
+                synchronized (state.getSendLock()) {
+                    messages.forEach(msg -> state.markSending(msg.getEventId()));
+                    state.getSession().sendMessage(frame);
+                }
+            } else {
+                for (TunnelBroadcastMessage msg : messages) {
+                    TextMessage frame = new TextMessage(toJsonFrame(msg));
+                    synchronized (state.getSendLock()) {
+                        state.markSending(msg.getEventId());
+                        state.getSession().sendMessage(frame);
+                    }
+                }
+            }
+
+            log.info("[Tunnel] Sent {} webhook(s) to local tunnel {} (session {}, protocol v{})", messages.size(),
+                    state.getTunnelKey(), state.getSessionId(), state.getProtocolVersion());
             return "SUCCESS: Delivered to local tunnel at " + LocalDateTime.now();
         } catch (Exception e) {
-            log.error("[Tunnel] Failed to send to local tunnel {}", tunnelKey, e);
+            messages.forEach(msg -> state.releaseCredit(msg.getEventId()));
+            log.error("[Tunnel] Failed to send to local tunnel {}", state.getTunnelKey(), e);
             return "ERROR: WebSocket delivery failed - " + e.getMessage();
         }
     }
 
     /**
-     * 将事件广播给集群其他节点。
+     * v1 协议的 JSON 文本帧。
+     *
+     * @param msg 隧道消息
+     * @return JSON 字符串
+     * @throws IOException 序列化失败
+     */
+    private String toJsonFrame(TunnelBroadcastMessage msg) throws IOException {
+        java.util.Map<String, Object> tunnelMessage = new java.util.HashMap<>();
+        tunnelMessage.put("type", "WEBHOOK");
+        tunnelMessage.put("eventId", msg.getEventId());
+        tunnelMessage.put("source", msg.getSource());
+        tunnelMessage.put("method", msg.getMethod());
+        tunnelMessage.put("headers", msg.getHeaders() != null ? msg.getHeaders() : "");
+        tunnelMessage.put("payload", msg.getPayload() != null ? msg.getPayload() : "");
+        return objectMapper.writeValueAsString(tunnelMessage);
+    }
+
+    /**
+     * 按顺序发送缓冲中的事件，直到达到本轮配额、所有连接额度用尽或缓冲为空。
+     * 每批事件按分配到的连接分组，v2 连接一组只发送一个帧。
+     *
+     * @param group    隧道连接组
+     * @param maxCount 本轮最多发送条数
+     * @return 本轮发送条数
+     */
+    private int drainBuffer(TunnelSessionGroup group, int maxCount) {
+        if (group.getBuffered().get() <= 0 || !group.tryStartDrain()) {
+            return 0;
+        }
+        int sent = 0;
+        try {
+            while (group.hasOpenSession() && group.getBuffered().get() > 0 && sent < maxCount
+                    && group.getAvailableCredits() > 0) {
+                List<TunnelOverflowBuffer.BufferedMessage> batch = overflowBuffer.peek(group.getTunnelKey(),
+                        Math.min(maxCount - sent, group.getAvailableCredits()));
+                if (batch.isEmpty()) {
+                    // 缓冲已被裁剪、过期或清空，按实际长度校正计数
+                    group.getBuffered().set(overflowBuffer.size(group.getTunnelKey()));
+                    break;
+                }
+
+                Map<TunnelSessionState, List<TunnelOverflowBuffer.BufferedMessage>> assigned =
+                        new java.util.LinkedHashMap<>();
+                List<String> skipped = new java.util.ArrayList<>();
+                for (TunnelOverflowBuffer.BufferedMessage buffered : batch) {
+                    if (group.isCoveredByResumeCursor(buffered)) {
+                        // Agent 重连时上报已处理过该事件（ACK 在断线时丢失），不再重发
+                        skipped.add(buffered.recordId());
+                        continue;
+                    }
+                    TunnelSessionState state = group.acquire(buffered.message(), getBalanceStrategy());
+                    if (state == null) {
+                        break;
+                    }
+                    assigned.computeIfAbsent(state, k -> new java.util.ArrayList<>()).add(buffered);
+                }
+                if (!skipped.isEmpty()) {
+                    overflowBuffer.remove(group.getTunnelKey(), skipped);
+                    group.getBuffered().addAndGet(-skipped.size());
+                    log.info("[Tunnel] Skipped {} redelivered events already processed by agent for tunnel {}",
+                            skipped.size(), group.getTunnelKey());
+                }
+                if (assigned.isEmpty()) {
+                    if (skipped.isEmpty()) {
+                        break;
+                    }
+                    continue;
+                }
+
+                boolean failed = false;
+                for (Map.Entry<TunnelSessionState, List<TunnelOverflowBuffer.BufferedMessage>> entry
+                        : assigned.entrySet()) {
+                    List<TunnelOverflowBuffer.BufferedMessage> items = entry.getValue();
+                    if (failed || send(entry.getKey(), items.stream()
+                            .map(TunnelOverflowBuffer.BufferedMessage::message).toList()).startsWith("ERROR")) {
+                        // 后续分组不再发送，归还已占用的额度，保留缓冲记录下一轮重试
+                        failed = true;
+                        items.forEach(item -> entry.getKey().releaseCredit(item.message().getEventId()));
+                        continue;
+                    }
+                    overflowBuffer.remove(group.getTunnelKey(), items.stream()
+                            .map(TunnelOverflowBuffer.BufferedMessage::recordId).toList());
+                    group.getBuffered().addAndGet(-items.size());
+                    sent += items.size();
+                }
+                if (failed) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("[Tunnel] Failed to drain buffer for tunnel {}", group.getTunnelKey(), e);
+        } finally {
+            group.finishDrain();
+        }
+        return sent;
+    }
+
+    /**
+     * 每 250ms 按限速补发各隧道缓冲中的事件（重连补发与流控溢出共用）
+     */
+    @Scheduled(fixedDelay = 250, scheduler = "tunnelTaskScheduler")
+    public void replayBuffered() {
+        int quota = Math.max(1, replayRatePerSecond / 4);
+        for (TunnelSessionGroup group : activeSessions.values()) {
+            if (group.getBuffered().get() > 0) {
+                int sent = drainBuffer(group, quota);
+                if (sent > 0) {
+                    log.debug("[Tunnel] Replayed {} buffered events to tunnel {}, {} remaining",
+                            sent, group.getTunnelKey(), group.getBuffered().get());
+                }
+            }
+        }
+    }
+
+    /**
+     * 定时释放超时未确认的额度，超时事件重新写入缓冲补发
+     */
+    @Scheduled(fixedDelay = 5_000, scheduler = "tunnelTaskScheduler")
+    public void expireUnackedCredits() {
+        for (TunnelSessionGroup group : activeSessions.values()) {
+            for (TunnelSessionState state : group.getSessions()) {
+                List<TunnelSessionState.Unacked> expired = state.expireCredits(ackTimeoutMs);
+                if (!expired.isEmpty()) {
+                    int rebuffered = rebuffer(state, expired);
+                    log.warn("[Tunnel] Released {} unacked credits for tunnel {} (session {}) after {}ms, "
+                            + "re-buffered {} for redelivery", expired.size(), state.getTunnelKey(),
+                            state.getSessionId(), ackTimeoutMs, rebuffered);
+                }
+            }
+        }
+    }
+
+    /**
+     * 定时心跳：向所有连接发送 Ping（负载为发送时间，用于计算往返时延），
+     * 并剔除连续多个 Ping 未回复 Pong 的连接，未确认事件随之重新写入缓冲。
+     * 按实际发出且未回复的 Ping 计数而不是距上次 Pong 的时长：调度延迟期间没有发出 Ping，不会误判连接失联。
+     */
+    @Scheduled(fixedDelay = 1_000, initialDelay = 5_000, scheduler = "tunnelTaskScheduler")
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        if (heartbeatIntervalMs <= 0 || now < nextHeartbeatAt) {
+            return;
+        }
+        nextHeartbeatAt = now + heartbeatIntervalMs;
+        int maxMissed = Math.max(1, heartbeatMaxMissed);
+        for (TunnelSessionGroup group : activeSessions.values()) {
+            for (TunnelSessionState state : group.getSessions()) {
+                if (!state.isOpen() || state.getUnansweredPings() >= maxMissed) {
+                    evictSession(state);
+                    continue;
+                }
+                try {
+                    ByteBuffer payload = ByteBuffer.allocate(Long.BYTES).putLong(System.nanoTime()).flip();
+                    state.getSession().sendMessage(new PingMessage(payload));
+                    state.onPingSent();
+                } catch (Exception e) {
+                    log.warn("[Tunnel] Failed to ping session {} of tunnel {}: {}", state.getSessionId(),
+                            state.getTunnelKey(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * 处理客户端回复的 Pong。
+     *
+     * @param tunnelKey 隧道 Key
+     * @param session   原始会话
+     * @param payload   Pong 负载（原样返回的 Ping 负载）
+     */
+    public void onPong(String tunnelKey, WebSocketSession session, ByteBuffer payload) {
+        TunnelSessionGroup group = activeSessions.get(tunnelKey);
+        if (group == null) {
+            return;
+        }
+        long sentNanos = payload != null && payload.remaining() == Long.BYTES ? payload.getLong(payload.position()) : 0;
+        for (TunnelSessionState state : group.getSessions()) {
+            if (state.getRawSession() == session) {
+                state.onPong(sentNanos);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 剔除失去响应的连接：先从连接组移除（未确认事件重新缓冲），再关闭底层会话。
+     * 半开连接的关闭握手可能无法完成，因此不依赖关闭回调做清理。
+     *
+     * @param state 会话发送状态
+     */
+    private void evictSession(TunnelSessionState state) {
+        log.warn("[Tunnel] Evicting unresponsive session {} of tunnel {} ({} pings unanswered, last pong {}ms ago)",
+                state.getSessionId(), state.getTunnelKey(), state.getUnansweredPings(),
+                System.currentTimeMillis() - state.getLastPongAt());
+        removeSession(state.getTunnelKey(), state.getRawSession());
+        try {
+            state.getRawSession().close(CloseStatus.SESSION_NOT_RELIABLE.withReason("Heartbeat timeout"));
+        } catch (Exception e) {
+            log.debug("[Tunnel] Failed to close evicted session {}", state.getSessionId(), e);
+        }
+    }
+
+    /**
+     * 将事件转换为隧道消息。
+     *
+     * @param event     事件
+     * @param tunnelKey 隧道 Key
+     * @return 隧道消息
+     */
+    private TunnelBroadcastMessage toTunnelMessage(WebhookEvent event, String tunnelKey) {
+        return TunnelBroadcastMessage.builder()
+                .tunnelKey(tunnelKey)
+                .eventId(event.getId())
+                .source(event.getSource())
+                .method(event.getMethod())
+                .headers(event.getHeaders())
+                .payload(event.getPayload())
+                .build();
+    }
+
+    /**
+     * 将事件定向发送到持有连接的节点专属频道。
      *
      * @param event     事件
      * @param tunnelKey 隧道 Key
+     * @param ownerNode 目标节点 ID
+     * @return 接收到消息的订阅者数量；失败时返回 null
      */
-    private void broadcastToCluster(WebhookEvent event, String tunnelKey) {
+    private Long forwardToNode(WebhookEvent event, String tunnelKey, String ownerNode) {
         try {
-            TunnelBroadcastMessage msg = TunnelBroadcastMessage.builder()
-                    .tunnelKey(tunnelKey)
-                    .eventId(event.getId())
-                    .source(event.getSource())
-                    .method(event.getMethod())
-                    .headers(event.getHeaders())
-                    .payload(event.getPayload())
-                    .build();
-
-            String json = objectMapper.writeValueAsString(msg);
-            redisTemplate.convertAndSend(com.example.hookgateway.config.RedisPubSubConfig.TUNNEL_CHANNEL, json);
+            TunnelBroadcastMessage msg = toTunnelMessage(event, tunnelKey);
+
+            byte[] channel = RedisPubSubConfig.nodeChannel(ownerNode).getBytes(StandardCharsets.UTF_8);
+            byte[] body = objectMapper.writeValueAsBytes(msg);
+            return redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(channel, body));
         } catch (Exception e) {
-            log.error("[TunnelManager] Failed to broadcast tunnel message", e);
+            log.error("[TunnelManager] Failed to forward tunnel message to node {}", ownerNode, e);
+            return null;
         }
     }
 
     /**
-     * 注册新的隧道连接
+     * 查询持有隧道连接的存活节点（不含本节点），顺序随机以分摊转发流量。
+     *
+     * @param tunnelKey 隧道 Key
+     * @return 节点 ID 列表；未注册时为空
      */
-    public void registerSession(String tunnelKey, WebSocketSession session) {
-        // 如果已存在，先关闭旧连接
-        WebSocketSession oldSession = activeSessions.get(tunnelKey);
-        if (oldSession != null && oldSession.isOpen()) {
-            try {
-                log.info("[TunnelSessionManager] Closing old session for tunnelKey: {}", tunnelKey);
-                oldSession.close();
-            } catch (IOException e) {
-                log.error("[TunnelSessionManager] Error closing old session", e);
+    private List<String> lookupOwners(String tunnelKey) {
+        try {
+            java.util.Set<String> members = redisTemplate.opsForZSet().rangeByScore(TUNNEL_OWNERS_PREFIX + tunnelKey,
+                    System.currentTimeMillis(), Double.POSITIVE_INFINITY);
+            if (members == null || members.isEmpty()) {
+                return List.of();
+            }
+            List<String> owners = new java.util.ArrayList<>(members);
+            owners.remove(instanceIdentity.getInstanceId());
+            java.util.Collections.shuffle(owners);
+            return owners;
+        } catch (Exception e) {
+            log.warn("[TunnelManager] Failed to read tunnel registry for {}", tunnelKey, e);
+            return List.of();
+        }
+    }
+
+    /**
+     * 在注册表中声明本节点持有该隧道连接（只写入 / 续期本节点的成员）。
+     *
+     * @param tunnelKey 隧道 Key
+     */
+    private void claimOwnership(String tunnelKey) {
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            String key = TUNNEL_OWNERS_PREFIX + tunnelKey;
+            redisTemplate.opsForZSet().add(key, instanceIdentity.getInstanceId(),
+                    System.currentTimeMillis() + OWNER_TTL.toMillis());
+            redisTemplate.expire(key, OWNER_TTL);
+        } catch (Exception e) {
+            log.warn("[TunnelManager] Failed to register tunnel {} in registry", tunnelKey, e);
+        }
+    }
+
+    /**
+     * 释放注册表中本节点对隧道的持有记录，其他节点的成员不受影响。
+     *
+     * @param tunnelKey 隧道 Key
+     */
+    private void releaseOwnership(String tunnelKey) {
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            redisTemplate.opsForZSet().remove(TUNNEL_OWNERS_PREFIX + tunnelKey, instanceIdentity.getInstanceId());
+        } catch (Exception e) {
+            log.warn("[TunnelManager] Failed to release tunnel {} from registry", tunnelKey, e);
+        }
+    }
+
+    /**
+     * 心跳：每 10 秒以管道方式续期本节点在所有隧道注册表中的成员，并清除已过期的成员。
+     * 同一隧道的 Agent 可能连接到不同节点，其他节点写入的缓冲事件在此同步到本地计数后补发。
+     */
+    @Scheduled(fixedDelay = 10_000, scheduler = "tunnelTaskScheduler")
+    public void refreshRegistry() {
+        if (redisTemplate == null || activeSessions.isEmpty()) {
+            return;
+        }
+        for (TunnelSessionGroup group : activeSessions.values()) {
+            if (group.getBuffered().get() == 0) {
+                group.getBuffered().compareAndSet(0, overflowBuffer.size(group.getTunnelKey()));
+            }
+        }
+        byte[] nodeId = instanceIdentity.getInstanceId().getBytes(StandardCharsets.UTF_8);
+        long now = System.currentTimeMillis();
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Map.Entry<String, TunnelSessionGroup> entry : activeSessions.entrySet()) {
+                    if (entry.getValue().hasOpenSession()) {
+                        byte[] key = (TUNNEL_OWNERS_PREFIX + entry.getKey()).getBytes(StandardCharsets.UTF_8);
+                        connection.zSetCommands().zAdd(key, now + OWNER_TTL.toMillis(), nodeId);
+                        connection.zSetCommands().zRemRangeByScore(key, Double.NEGATIVE_INFINITY, now);
+                        connection.keyCommands().pExpire(key, OWNER_TTL.toMillis());
+                    }
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("[TunnelManager] Failed to refresh tunnel registry", e);
+        }
+    }
+
+    /**
+     * 注册新的隧道连接。同一 tunnelKey 的已有连接保持不变，新连接加入负载均衡。
+     *
+     * @param tunnelKey       隧道 Key
+     * @param session         原始会话
+     * @param handshake       握手协商的参数（协议版本、Agent ID、续传游标）
+     * @return 线程安全的发送会话，后续所有发送都应通过它进行；超过单隧道连接数上限时返回 null
+     */
+    public WebSocketSession registerSession(String tunnelKey, WebSocketSession session, TunnelHandshake handshake) {
+        TunnelSessionState state = new TunnelSessionState(tunnelKey, session, sendTimeLimitMs, sendBufferSizeLimit,
+                maxUnacked, handshake.protocolVersion(), handshake.agentId());
+
+        // compute 在同一 key 上串行执行，与 removeSession 互斥
+        boolean[] created = new boolean[1];
+        boolean[] accepted = new boolean[1];
+        List<TunnelSessionState> pruned = new java.util.ArrayList<>();
+        TunnelSessionGroup group = activeSessions.compute(tunnelKey, (key, existing) -> {
+            TunnelSessionGroup target = existing;
+            if (target == null) {
+                target = new TunnelSessionGroup(key);
+                created[0] = true;
+            }
+            // 顺带清理已关闭但尚未收到关闭回调的连接
+            for (TunnelSessionState s : target.getSessions()) {
+                if (!s.isOpen() && target.remove(s)) {
+                    pruned.add(s);
+                }
             }
+            if (target.size() < maxSessionsPerKey) {
+                if (handshake.agentId() != null && handshake.resumeAfter() != null) {
+                    // 断线期间已处理但 ACK 未送达的事件不再重发
+                    target.setResumeCursor(handshake.agentId(), handshake.resumeAfter());
+                }
+                target.add(state);
+                accepted[0] = true;
+            }
+            return target;
+        });
+
+        for (TunnelSessionState s : pruned) {
+            onSessionRemoved(s);
+            rebufferUnacked(s);
+        }
+        if (!accepted[0]) {
+            log.warn("[TunnelSessionManager] Rejected session for tunnelKey {}: {} sessions already connected",
+                    tunnelKey, group.size());
+            return null;
         }
 
-        activeSessions.put(tunnelKey, session);
-        log.info("[TunnelSessionManager] Registered new session for tunnelKey: {}, Total active: {}",
-                tunnelKey, activeSessions.size());
+        if (created[0]) {
+            // 接续离线期间及上一个连接遗留在缓冲中的事件，由 replayBuffered 按顺序限速补发
+            group.getBuffered().set(overflowBuffer.size(tunnelKey));
+            if (group.getBuffered().get() > 0) {
+                log.info("[TunnelSessionManager] Tunnel {} reconnected with {} buffered events to replay",
+                        tunnelKey, group.getBuffered().get());
+            }
+            registerGroupMeters(group);
+        }
+        activeConnections.incrementAndGet();
+        registerSessionMeters(state);
+        claimOwnership(tunnelKey);
+        log.info("[TunnelSessionManager] Registered session {} (protocol v{}) for tunnelKey: {} ({} session(s) on this tunnel)",
+                session.getId(), handshake.protocolVersion(), tunnelKey, group.size());
+        return state.getSession();
     }
 
     /**
-     * 移除指定隧道连接，增加 session 校验避免竞态
+     * 移除指定隧道连接。按原始会话匹配，只移除该连接本身；
+     * 在 compute 中原子完成移除与空组删除，避免与并发注册的新连接互相覆盖。
      */
     public void removeSession(String tunnelKey, WebSocketSession session) {
         if (tunnelKey == null || session == null)
             return;
 
-        // 只有当 Map 中的 session 是当前要移除的那个 session 时才移除
-        // 防止：新连接 A 覆盖了旧连接 B 后，B 的 onClose 触发误删了 A
-        boolean removed = activeSessions.remove(tunnelKey, session);
-        if (removed) {
-            log.info("[TunnelSessionManager] Removed session for tunnelKey: {}, Total active: {}",
-                    tunnelKey, activeSessions.size());
+        TunnelSessionState[] removed = new TunnelSessionState[1];
+        boolean[] groupRemoved = new boolean[1];
+        activeSessions.computeIfPresent(tunnelKey, (key, group) -> {
+            for (TunnelSessionState state : group.getSessions()) {
+                if (state.getRawSession() == session && group.remove(state)) {
+                    removed[0] = state;
+                    break;
+                }
+            }
+            if (group.isEmpty()) {
+                groupRemoved[0] = true;
+                return null;
+            }
+            return group;
+        });
+
+        if (removed[0] != null) {
+            onSessionRemoved(removed[0]);
+            rebufferUnacked(removed[0]);
+            log.info("[TunnelSessionManager] Removed session {} for tunnelKey: {}", session.getId(), tunnelKey);
+        }
+        if (groupRemoved[0]) {
+            onGroupRemoved(tunnelKey);
         }
     }
 
     /**
-     * 根据 tunnelKey 获取 WebSocket 会话
+     * 根据 tunnelKey 获取一个打开的 WebSocket 会话（线程安全的发送会话）
      */
     public WebSocketSession getSession(String tunnelKey) {
-        WebSocketSession session = activeSessions.get(tunnelKey);
-        if (session != null && !session.isOpen()) {
-            // 清理已关闭的连接
-            activeSessions.remove(tunnelKey);
+        TunnelSessionGroup group = getGroup(tunnelKey);
+        if (group == null) {
+            return null;
+        }
+        for (TunnelSessionState state : group.getSessions()) {
+            if (state.isOpen()) {
+                return state.getSession();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取至少有一个打开连接的隧道连接组，顺带清理已关闭的连接。
+     *
+     * @param tunnelKey 隧道 Key
+     * @return 隧道连接组；不存在或全部已关闭时返回 null
+     */
+    private TunnelSessionGroup getGroup(String tunnelKey) {
+        TunnelSessionGroup group = activeSessions.get(tunnelKey);
+        if (group == null) {
             return null;
         }
-        return session;
+        for (TunnelSessionState state : group.getSessions()) {
+            if (!state.isOpen()) {
+                // 清理已关闭的连接
+                removeSession(tunnelKey, state.getRawSession());
+            }
+        }
+        return group.hasOpenSession() ? group : null;
     }
 
     /**
      * 检查隧道是否在线
      */
     public boolean isConnected(String tunnelKey) {
-        WebSocketSession session = getSession(tunnelKey);
-        return session != null && session.isOpen();
+        return getGroup(tunnelKey) != null;
+    }
+
+    /**
+     * 获取隧道在本节点的连接数
+     */
+    public int getSessionCount(String tunnelKey) {
+        TunnelSessionGroup group = getGroup(tunnelKey);
+        return group != null ? group.size() : 0;
     }
 
     /**
-     * 获取活跃连接数
+     * 获取活跃连接数（本节点所有隧道的连接总数）。
+     * 已关闭的连接由关闭回调与心跳剔除及时移除，这里直接返回计数，不再扫描全部隧道。
      */
     public int getActiveConnectionCount() {
-        // 清理已关闭的连接
-        activeSessions.entrySet().removeIf(entry -> !entry.getValue().isOpen());
+        return activeConnections.get();
+    }
+
+    /**
+     * 获取本节点在线的隧道数
+     */
+    public int getActiveTunnelCount() {
         return activeSessions.size();
     }
 
     /**
-     * V13: 将事件 ID 与允许处理该事件的 tunnelKey 绑定到 Redis 与本地缓存
+     * 获取隧道在本节点各连接的运行指标：未确认事件数、心跳往返时延、投递到 ACK 时延等。
+     *
+     * @param tunnelKey 隧道 Key
+     * @return 连接指标列表，隧道不在本节点时为空
+     */
+    public List<TunnelSessionStats> getSessionStats(String tunnelKey) {
+        TunnelSessionGroup group = activeSessions.get(tunnelKey);
+        if (group == null) {
+            return List.of();
+        }
+        long now = System.currentTimeMillis();
+        return group.getSessions().stream()
+                .map(state -> new TunnelSessionStats(
+                        state.getSessionId(),
+                        state.getAgentId(),
+                        state.getProtocolVersion(),
+                        state.getInFlightCount(),
+                        state.getAvailableCredits(),
+                        state.getRttMs(),
+                        Math.round(state.getAckLatencyMs()),
+                        now - state.getLastPongAt()))
+                .toList();
+    }
+
+    /**
+     * 连接断开后将已发送但未确认的事件重新写入缓冲，由隧道的其他连接或重连后的 Agent 重新接收。
+     *
+     * @param state 已移除的会话发送状态
+     */
+    private void rebufferUnacked(TunnelSessionState state) {
+        List<TunnelSessionState.Unacked> unacked = state.drainUnacked();
+        if (unacked.isEmpty()) {
+            return;
+        }
+        int rebuffered = rebuffer(state, unacked);
+        log.info("[TunnelSessionManager] Re-buffered {}/{} unacked events of closed session {} for redelivery",
+                rebuffered, unacked.size(), state.getSessionId());
+    }
+
+    /**
+     * 将未确认事件写入隧道缓冲，由补发任务重新投递。
+     *
+     * @param state   事件所在的会话发送状态
+     * @param unacked 未确认事件
+     * @return 成功写入缓冲的事件数
+     */
+    private int rebuffer(TunnelSessionState state, List<TunnelSessionState.Unacked> unacked) {
+        int rebuffered = 0;
+        for (TunnelSessionState.Unacked item : unacked) {
+            if (overflowBuffer.appendRedelivery(item.message(), state.getAgentId(), item.receivedByAgent())) {
+                rebuffered++;
+            }
+        }
+        TunnelSessionGroup group = activeSessions.get(state.getTunnelKey());
+        if (group != null) {
+            group.getBuffered().addAndGet(rebuffered);
+        }
+        return rebuffered;
+    }
+
+    /**
+     * 单个连接移除后的清理：注销连接级监控指标。
+     *
+     * @param state 会话发送状态
+     */
+    private void onSessionRemoved(TunnelSessionState state) {
+        activeConnections.decrementAndGet();
+        removeMeters(state.getSessionId());
+    }
+
+    /**
+     * 隧道在本节点的最后一个连接移除后的清理：释放注册表并注销隧道级监控指标。
+     *
+     * @param tunnelKey 隧道 Key
+     */
+    private void onGroupRemoved(String tunnelKey) {
+        releaseOwnership(tunnelKey);
+        if (activeSessions.containsKey(tunnelKey)) {
+            // 释放期间又有新连接注册，重新声明持有
+            claimOwnership(tunnelKey);
+            return;
+        }
+        removeMeters(tunnelKey);
+    }
+
+    private void removeMeters(String key) {
+        List<Meter> meters = sessionMeters.remove(key);
+        if (meters != null) {
+            meters.forEach(meterRegistry::remove);
+        }
+    }
+
+    /**
+     * 注册隧道级的缓冲深度指标。tunnelKey 属于密钥，只使用前 8 位作为标签。
+     *
+     * @param group 隧道连接组
+     */
+    private void registerGroupMeters(TunnelSessionGroup group) {
+        // 先注销旧连接组的指标，否则同名同标签的 Gauge 会复用旧对象
+        removeMeters(group.getTunnelKey());
+        String tag = tunnelTag(group.getTunnelKey());
+        Timer ackLatency = Timer.builder("tunnel.ack.latency")
+                .tag("tunnel", tag)
+                .description("Time from sending an event to the tunnel agent until its ACK arrives")
+                .register(meterRegistry);
+        group.setAckLatencyTimer(ackLatency);
+        sessionMeters.put(group.getTunnelKey(), List.of(
+                Gauge.builder("tunnel.session.buffered", group, g -> g.getBuffered().get())
+                        .tag("tunnel", tag)
+                        .description("Events waiting in the tunnel overflow buffer")
+                        .register(meterRegistry),
+                ackLatency));
+    }
+
+    /**
+     * 注册单个连接的队列深度指标。
+     *
+     * @param state 会话发送状态
+     */
+    private void registerSessionMeters(TunnelSessionState state) {
+        String tag = tunnelTag(state.getTunnelKey());
+        sessionMeters.put(state.getSessionId(), List.of(
+                Gauge.builder("tunnel.session.unacked", state, TunnelSessionState::getInFlightCount)
+                        .tag("tunnel", tag)
+                        .tag("session", state.getSessionId())
+                        .description("Events sent to the tunnel agent but not yet acknowledged")
+                        .register(meterRegistry),
+                Gauge.builder("tunnel.session.send.buffer.bytes", state, TunnelSessionState::getSendBufferSize)
+                        .tag("tunnel", tag)
+                        .tag("session", state.getSessionId())
+                        .description("Bytes queued in the WebSocket send buffer")
+                        .register(meterRegistry),
+                Gauge.builder("tunnel.session.rtt", state, TunnelSessionState::getRttMs)
+                        .tag("tunnel", tag)
+                        .tag("session", state.getSessionId())
+                        .description("Heartbeat round-trip time in milliseconds (-1 until the first pong)")
+                        .baseUnit("milliseconds")
+                        .register(meterRegistry)));
+    }
+
+    private static String tunnelTag(String tunnelKey) {
+        return tunnelKey.length() > 8 ? tunnelKey.substring(0, 8) : tunnelKey;
+    }
+
+    /**
+     * V13: 将事件 ID 与允许处理该事件的 tunnelKey 绑定到本地缓存，并排队批量写入 Redis
      */
     public void registerEventTunnelMapping(Long eventId, String tunnelKey) {
         if (eventId == null || tunnelKey == null)
             return;
 
-        // 先写入本地缓存
-        localEventTunnelMap.put(eventId, tunnelKey);
+        // 先写入本地缓存，本节点收到的 ACK 无需等待 Redis 写入
+        eventOwnerCache.put(eventId, tunnelKey);
 
-        if (redisTemplate != null) {
-            String key = EVENT_TUNNEL_PREFIX + eventId;
+        if (redisTemplate != null && !pendingEventMappings.offer(Map.entry(eventId, tunnelKey))) {
+            // 队列已满（Redis 写入跟不上），由调用线程刷写一批后重试
+            flushEventMappings();
+            if (!pendingEventMappings.offer(Map.entry(eventId, tunnelKey))) {
+                log.warn("[TunnelManager] Event mapping queue is full, event {} is only cached locally", eventId);
+            }
+        }
+    }
+
+    /**
+     * 将排队的事件归属映射以管道方式批量写入 Redis（SET EX），每批一次往返。
+     */
+    @Scheduled(fixedDelayString = "${app.tunnel.event-mapping.flush-interval-ms:100}",
+            scheduler = "tunnelTaskScheduler")
+    public void flushEventMappings() {
+        if (redisTemplate == null || pendingEventMappings == null) {
+            return;
+        }
+        List<Map.Entry<Long, String>> batch = new java.util.ArrayList<>();
+        while (pendingEventMappings.drainTo(batch, 1000) > 0) {
             try {
-                redisTemplate.opsForValue().set(key, tunnelKey, java.time.Duration.ofHours(24));
+                redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    for (Map.Entry<Long, String> mapping : batch) {
+                        connection.stringCommands().setEx(
+                                (EVENT_TUNNEL_PREFIX + mapping.getKey()).getBytes(StandardCharsets.UTF_8),
+                                EVENT_TUNNEL_TTL.toSeconds(),
+                                mapping.getValue().getBytes(StandardCharsets.UTF_8));
+                    }
+                    return null;
+                });
             } catch (Exception e) {
-                log.warn("Failed to cache event map to Redis", e);
+                log.warn("[TunnelManager] Failed to write {} event mappings to Redis", batch.size(), e);
             }
+            batch.clear();
         }
     }
 
+    @PreDestroy
+    public void shutdown() {
+        flushEventMappings();
+    }
+
     /**
      * V13: 从 Redis 或本地缓存获取事件绑定的 tunnelKey
      */
@@ -236,7 +1020,7 @@ public class TunnelSessionManager {
             return null;
 
         // 先查本地（更快且可兜底）
-        String key = localEventTunnelMap.get(eventId);
+        String key = eventOwnerCache.get(eventId);
         if (key != null)
             return key;
 
@@ -249,4 +1033,38 @@ public class TunnelSessionManager {
         }
         return null;
     }
+
+    /**
+     * 批量获取事件绑定的 tunnelKey：先查本地缓存，未命中的用一次 MGET 查询 Redis。
+     *
+     * @param eventIds 事件 ID 列表
+     * @return 事件 ID -> tunnelKey，未找到的事件不包含在结果中
+     */
+    public Map<Long, String> getTunnelKeysForEvents(List<Long> eventIds) {
+        Map<Long, String> result = new java.util.HashMap<>();
+        List<Long> misses = new java.util.ArrayList<>();
+        for (Long eventId : eventIds) {
+            String key = eventId != null ? eventOwnerCache.get(eventId) : null;
+            if (key != null) {
+                result.put(eventId, key);
+            } else if (eventId != null) {
+                misses.add(eventId);
+            }
+        }
+
+        if (!misses.isEmpty() && redisTemplate != null) {
+            try {
+                List<String> values = redisTemplate.opsForValue().multiGet(
+                        misses.stream().map(id -> EVENT_TUNNEL_PREFIX + id).toList());
+                for (int i = 0; values != null && i < values.size(); i++) {
+                    if (values.get(i) != null) {
+                        result.put(misses.get(i), values.get(i));
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("Failed to read event map from Redis", e);
+            }
+        }
+        return result;
+    }
 }
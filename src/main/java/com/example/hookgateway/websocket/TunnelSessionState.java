@@ -0,0 +1,297 @@
+package com.example.hookgateway.websocket;
+
+import com.example.hookgateway.model.TunnelBroadcastMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个隧道连接的发送状态。
+ * 会话经 ConcurrentWebSocketSessionDecorator 包装，保证多线程发送安全并限制发送耗时与缓冲区大小；
+ * 同时基于客户端 ACK 做信用额度流控：同一隧道所有连接的额度都用尽后，新事件转入溢出缓冲。
+ * 在途事件保留消息本身与发送序号，连接断开时未确认的事件可重新写入缓冲。
+ * 另记录心跳（Ping/Pong）往返时延与投递到 ACK 的时延，用于存活检测与监控。
+ */
+class TunnelSessionState {
+
+    private final String tunnelKey;
+    private final WebSocketSession rawSession;
+    private final ConcurrentWebSocketSessionDecorator session;
+    private final int maxUnacked;
+
+    // 握手时协商的协议版本：1 为 JSON 文本帧，2 为二进制帧
+    private final int protocolVersion;
+
+    // Agent 实例 ID（握手头 X-Tunnel-Agent-Id），用于断线重连后的续传，旧版 Agent 为 null
+    private final String agentId;
+
+    // 已发送未确认的事件：eventId -> 在途信息
+    private final Map<Long, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    // 发送序号与已确认事件中的最大发送序号，用于判断断线时在途事件是否一定已被 Agent 收到
+    private final Object sendLock = new Object();
+    private final AtomicLong sendSeq = new AtomicLong();
+    private final AtomicLong maxAckedSeq = new AtomicLong(-1);
+
+    // 最近一次收到 Pong 的时间（毫秒），连接建立时视为存活
+    private volatile long lastPongAt = System.currentTimeMillis();
+
+    // 已发出但尚未收到 Pong 的 Ping 数，收到 Pong 时清零
+    private final AtomicInteger unansweredPings = new AtomicInteger();
+
+    // 最近一次心跳往返时延（毫秒），-1 表示尚未测得
+    private volatile long rttMs = -1;
+
+    // 投递到 ACK 时延的指数移动平均（毫秒），-1 表示尚无 ACK
+    private double ackLatencyEwmaMs = -1;
+
+    TunnelSessionState(String tunnelKey, WebSocketSession rawSession, int sendTimeLimitMs, int bufferSizeLimit,
+            int maxUnacked, int protocolVersion, String agentId) {
+        this.tunnelKey = tunnelKey;
+        this.rawSession = rawSession;
+        this.session = new ConcurrentWebSocketSessionDecorator(rawSession, sendTimeLimitMs, bufferSizeLimit);
+        this.maxUnacked = maxUnacked;
+        this.protocolVersion = protocolVersion;
+        this.agentId = agentId;
+    }
+
+    String getTunnelKey() {
+        return tunnelKey;
+    }
+
+    WebSocketSession getRawSession() {
+        return rawSession;
+    }
+
+    int getProtocolVersion() {
+        return protocolVersion;
+    }
+
+    String getAgentId() {
+        return agentId;
+    }
+
+    String getSessionId() {
+        return rawSession.getId();
+    }
+
+    /**
+     * 线程安全的发送会话。
+     */
+    ConcurrentWebSocketSessionDecorator getSession() {
+        return session;
+    }
+
+    boolean isOpen() {
+        return session.isOpen();
+    }
+
+    /**
+     * 尝试为事件占用一个发送额度。
+     *
+     * @param msg 隧道消息
+     * @return true 表示占用成功（或该事件已在途）
+     */
+    boolean tryAcquireCredit(TunnelBroadcastMessage msg) {
+        synchronized (inFlight) {
+            if (inFlight.containsKey(msg.getEventId())) {
+                return true;
+            }
+            if (inFlight.size() >= maxUnacked) {
+                return false;
+            }
+            inFlight.put(msg.getEventId(), new InFlight(msg));
+            return true;
+        }
+    }
+
+    /**
+     * 发送锁：持有期间分配发送序号并写入发送会话，保证序号顺序与实际发送顺序一致。
+     */
+    Object getSendLock() {
+        return sendLock;
+    }
+
+    /**
+     * 为即将发送的事件分配发送序号，需在持有发送锁时调用。
+     *
+     * @param eventId 事件 ID
+     */
+    void markSending(Long eventId) {
+        InFlight entry = inFlight.get(eventId);
+        if (entry != null) {
+            entry.seq = sendSeq.incrementAndGet();
+            entry.sentNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * 收到客户端 ACK：释放额度，记录已确认的最大发送序号与投递到 ACK 的时延。
+     *
+     * @param eventId 事件 ID
+     * @return 投递到 ACK 的时延（纳秒）；事件不在途时返回 -1
+     */
+    long acknowledge(Long eventId) {
+        InFlight entry = inFlight.remove(eventId);
+        if (entry == null) {
+            return -1;
+        }
+        maxAckedSeq.accumulateAndGet(entry.seq, Math::max);
+        if (entry.sentNanos == 0) {
+            // 额度已占用但发送尚未完成时收到 ACK（极少见），不计入时延
+            return 0;
+        }
+        long latencyNanos = System.nanoTime() - entry.sentNanos;
+        synchronized (this) {
+            double latencyMs = latencyNanos / 1_000_000.0;
+            ackLatencyEwmaMs = ackLatencyEwmaMs < 0 ? latencyMs : ackLatencyEwmaMs * 0.8 + latencyMs * 0.2;
+        }
+        return latencyNanos;
+    }
+
+    /**
+     * 释放事件占用的额度（发送失败或超时）。
+     *
+     * @param eventId 事件 ID
+     * @return true 表示该事件确实在途
+     */
+    boolean releaseCredit(Long eventId) {
+        return inFlight.remove(eventId) != null;
+    }
+
+    /**
+     * 释放超过指定时长仍未确认的额度，防止客户端丢失 ACK 导致隧道永久阻塞。
+     * 超时事件随额度一起取出，由调用方重新写入缓冲补发，不会因之后断线而丢失。
+     *
+     * @param ackTimeoutMs ACK 超时时间
+     * @return 超时未确认的事件（按发送顺序）
+     */
+    List<Unacked> expireCredits(long ackTimeoutMs) {
+        long deadline = System.currentTimeMillis() - ackTimeoutMs;
+        long ackedSeq = maxAckedSeq.get();
+        List<InFlight> expired = new ArrayList<>();
+        synchronized (inFlight) {
+            inFlight.values().removeIf(entry -> {
+                if (entry.sentAt >= deadline) {
+                    return false;
+                }
+                expired.add(entry);
+                return true;
+            });
+        }
+        expired.sort(Comparator.comparingLong(entry -> entry.seq));
+        List<Unacked> result = new ArrayList<>(expired.size());
+        for (InFlight entry : expired) {
+            result.add(new Unacked(entry.message, entry.seq > 0 && entry.seq < ackedSeq));
+        }
+        return result;
+    }
+
+    /**
+     * 连接断开后取出全部已发送但未确认的事件（按发送顺序）。
+     * 发送序号小于已确认最大序号的事件必然先于某个已确认事件到达 Agent（同一连接有序），
+     * 标记为 receivedByAgent，Agent 的续传游标覆盖它们时可以跳过重发。
+     *
+     * @return 未确认事件
+     */
+    List<Unacked> drainUnacked() {
+        long ackedSeq = maxAckedSeq.get();
+        List<Unacked> result = new ArrayList<>();
+        synchronized (inFlight) {
+            inFlight.values().stream()
+                    .filter(entry -> entry.seq > 0)
+                    .sorted(Comparator.comparingLong(entry -> entry.seq))
+                    .forEach(entry -> result.add(new Unacked(entry.message, entry.seq < ackedSeq)));
+            inFlight.clear();
+        }
+        return result;
+    }
+
+    /**
+     * 记录一次已成功发出的 Ping。
+     *
+     * @return 已发出但尚未收到 Pong 的 Ping 数
+     */
+    int onPingSent() {
+        return unansweredPings.incrementAndGet();
+    }
+
+    /**
+     * 收到 Pong：刷新存活时间、清零未回复的 Ping 数并更新往返时延。
+     *
+     * @param sentNanos Ping 负载中携带的发送时间（System.nanoTime），未知时为 0
+     */
+    void onPong(long sentNanos) {
+        lastPongAt = System.currentTimeMillis();
+        unansweredPings.set(0);
+        if (sentNanos != 0) {
+            long rtt = (System.nanoTime() - sentNanos) / 1_000_000;
+            if (rtt >= 0) {
+                rttMs = rtt;
+            }
+        }
+    }
+
+    long getLastPongAt() {
+        return lastPongAt;
+    }
+
+    int getUnansweredPings() {
+        return unansweredPings.get();
+    }
+
+    long getRttMs() {
+        return rttMs;
+    }
+
+    synchronized double getAckLatencyMs() {
+        return ackLatencyEwmaMs;
+    }
+
+    int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    int getAvailableCredits() {
+        return Math.max(0, maxUnacked - inFlight.size());
+    }
+
+    /**
+     * 发送缓冲区中尚未写出的字节数。
+     */
+    int getSendBufferSize() {
+        return session.getBufferSize();
+    }
+
+    /**
+     * 在途事件。
+     */
+    private static class InFlight {
+        private final TunnelBroadcastMessage message;
+        private final long sentAt = System.currentTimeMillis();
+        // 发送序号，0 表示已占用额度但尚未发送
+        private volatile long seq;
+        // 实际写入发送会话的时间（System.nanoTime），0 表示尚未发送
+        private volatile long sentNanos;
+
+        InFlight(TunnelBroadcastMessage message) {
+            this.message = message;
+        }
+    }
+
+    /**
+     * 断线时未确认的事件。
+     *
+     * @param message         隧道消息
+     * @param receivedByAgent 是否确定已被 Agent 收到
+     */
+    record Unacked(TunnelBroadcastMessage message, boolean receivedByAgent) {
+    }
+}
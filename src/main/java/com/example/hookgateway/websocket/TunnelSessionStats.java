@@ -0,0 +1,17 @@
+package com.example.hookgateway.websocket;
+
+/**
+ * 单个隧道连接在本节点的运行指标。
+ *
+ * @param sessionId        会话 ID
+ * @param agentId          Agent 实例 ID，旧版 Agent 为 null
+ * @param protocolVersion  协议版本
+ * @param inFlight         已发送未确认的事件数
+ * @param availableCredits 剩余发送额度
+ * @param rttMs            最近一次心跳往返时延（毫秒），-1 表示尚未测得
+ * @param ackLatencyMs     投递到 ACK 时延的移动平均（毫秒），-1 表示尚无 ACK
+ * @param lastPongAgeMs    距最近一次收到 Pong（或连接建立）的时长（毫秒）
+ */
+public record TunnelSessionStats(String sessionId, String agentId, int protocolVersion, int inFlight,
+        int availableCredits, long rttMs, long ackLatencyMs, long lastPongAgeMs) {
+}
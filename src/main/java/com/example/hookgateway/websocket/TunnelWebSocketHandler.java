@@ -1,17 +1,20 @@
 package com.example.hookgateway.websocket;
 
 import com.example.hookgateway.repository.SubscriptionRepository;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PongMessage;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import java.time.LocalDateTime;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 隧道 WebSocket 处理器
@@ -24,9 +27,15 @@ public class TunnelWebSocketHandler extends TextWebSocketHandler {
 
     private final TunnelSessionManager sessionManager;
     private final SubscriptionRepository subscriptionRepository;
-    private final com.example.hookgateway.repository.WebhookEventRepository eventRepository;
+    private final TunnelAckProcessor ackProcessor;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    private static final Set<String> ALLOWED_ACK_STATUSES = Set.of("SUCCESS", "FAILED", "PARTIAL_SUCCESS",
+            "RECEIVED");
+
+    // 单个 ACK_BATCH 帧最多包含的 ACK 数
+    private static final int MAX_ACKS_PER_BATCH = 100;
+
     /**
      * 建立 WebSocket 连接后进行鉴权并注册会话。
      *
@@ -52,8 +61,14 @@ public class TunnelWebSocketHandler extends TextWebSocketHandler {
             return;
         }
 
-        // 注册会话
-        sessionManager.registerSession(tunnelKey, session);
+        // 注册会话，之后统一通过线程安全的发送会话写出
+        TunnelHandshake handshake = new TunnelHandshake(negotiateProtocol(session), extractAgentId(session),
+                extractResumeAfter(session));
+        WebSocketSession sendSession = sessionManager.registerSession(tunnelKey, session, handshake);
+        if (sendSession == null) {
+            session.close(CloseStatus.POLICY_VIOLATION.withReason("Too many sessions for tunnelKey"));
+            return;
+        }
         log.info("[TunnelWebSocket] Connection established for tunnelKey: {} (Session ID: {})",
                 tunnelKey, session.getId());
 
@@ -62,8 +77,9 @@ public class TunnelWebSocketHandler extends TextWebSocketHandler {
                 "type", "WELCOME",
                 "status", "CONNECTED",
                 "message", "Tunnel connected successfully via Header Auth",
-                "tunnelKey", tunnelKey);
-        session.sendMessage(new TextMessage(objectMapper.writeValueAsString(welcomeMsg)));
+                "tunnelKey", tunnelKey,
+                "protocol", handshake.protocolVersion());
+        sendSession.sendMessage(new TextMessage(objectMapper.writeValueAsString(welcomeMsg)));
     }
 
     /**
@@ -88,57 +104,75 @@ public class TunnelWebSocketHandler extends TextWebSocketHandler {
         log.debug("[TunnelWebSocket] Received message from {}: {}", tunnelKey, payload);
 
         try {
-            Map<String, Object> msg = objectMapper.readValue(payload, new TypeReference<Map<String, Object>>() {
-            });
-            String type = (String) msg.get("type");
+            JsonNode msg = objectMapper.readTree(payload);
+            String type = msg.path("type").asText(null);
 
             if ("ACK".equals(type)) {
-                if (msg.get("eventId") == null)
+                handleAck(tunnelKey, msg);
+            } else if ("ACK_BATCH".equals(type)) {
+                // 批量 ACK：{"type":"ACK_BATCH","acks":[{"eventId":1,"status":"SUCCESS","detail":"..."}, ...]}
+                JsonNode acks = msg.path("acks");
+                if (!acks.isArray() || acks.size() > MAX_ACKS_PER_BATCH) {
+                    log.warn("[TunnelWebSocket] Invalid ACK_BATCH from tunnel {}: {} entries", tunnelKey,
+                            acks.size());
                     return;
+                }
+                for (JsonNode ack : acks) {
+                    handleAck(tunnelKey, ack);
+                }
+            }
+        } catch (Exception e) {
+            log.error("[TunnelWebSocket] Failed to process message from tunnel {}: {}", tunnelKey, payload, e);
+        }
+    }
 
-                Long eventId = ((Number) msg.get("eventId")).longValue();
-                String status = (String) msg.get("status");
-                String detail = (String) msg.get("detail");
+    /**
+     * 校验单条 ACK 并释放流控额度，写库交给 ACK 批处理器异步完成。
+     * 事件归属校验（BOLA）同样在批处理器中批量进行。
+     *
+     * @param tunnelKey 隧道 Key
+     * @param ack       ACK 节点
+     */
+    private void handleAck(String tunnelKey, JsonNode ack) {
+        if (!ack.path("eventId").canConvertToLong()) {
+            return;
+        }
 
-                // 安全加固 (BOLA): 验证该事件是否确实路由给了该隧道
-                String expectedTunnelKey = sessionManager.getTunnelKeyForEvent(eventId);
+        Long eventId = ack.get("eventId").asLong();
+        String status = ack.path("status").asText(null);
+        String detail = ack.path("detail").asText(null);
 
-                // 修复：映射缺失（null）或不匹配时直接拒绝（fail closed）
-                if (expectedTunnelKey == null || !expectedTunnelKey.equals(tunnelKey)) {
-                    log.warn(
-                            "[TunnelWebSocket] BOLA ATTEMPT OR MAPPING EXPIRED! Tunnel {} tried to ACK event {} which belongs to tunnel {} (or null)",
-                            tunnelKey, eventId, expectedTunnelKey);
-                    return;
-                }
+        // 安全加固：状态字段校验（允许系统定义的标准状态）
+        if (!ALLOWED_ACK_STATUSES.contains(status)) {
+            log.warn("[TunnelWebSocket] Invalid ACK status from tunnel {}: {}", tunnelKey, status);
+            return;
+        }
 
-                // 安全加固：状态字段校验（允许系统定义的标准状态）
-                java.util.List<String> allowedStatuses = java.util.Arrays.asList("SUCCESS", "FAILED", "PARTIAL_SUCCESS",
-                        "RECEIVED");
-                if (!allowedStatuses.contains(status)) {
-                    log.warn("[TunnelWebSocket] Invalid ACK status from tunnel {}: {}", tunnelKey, status);
-                    return;
-                }
+        // 安全加固：详情字段截断（增加到 2000 字符，兼顾调试需求）
+        if (detail != null && detail.length() > 2000) {
+            detail = detail.substring(0, 2000) + "...(truncated)";
+        }
 
-                // 安全加固：详情字段截断（增加到 2000 字符，兼顾调试需求）
-                if (detail != null && detail.length() > 2000) {
-                    detail = detail.substring(0, 2000) + "...(truncated)";
-                }
+        log.debug("[TunnelWebSocket] Received ACK for event {}: status={}, detail={}", eventId, status, detail);
 
-                log.info("[TunnelWebSocket] Received ACK for event {}: status={}, detail={}", eventId, status, detail);
-
-                final String finalDetail = detail;
-                eventRepository.findById(eventId).ifPresent(event -> {
-                    event.setStatus(status);
-                    // 拼接报告，带有长度保护
-                    String reportHeader = "\n--- Tunnel Client ACK ---\n";
-                    String oldDetails = event.getDeliveryDetails() != null ? event.getDeliveryDetails() : "";
-                    event.setDeliveryDetails(
-                            oldDetails + reportHeader + (finalDetail != null ? finalDetail : "No details"));
-                    eventRepository.save(event);
-                });
-            }
-        } catch (Exception e) {
-            log.error("[TunnelWebSocket] Failed to process message from tunnel {}: {}", tunnelKey, payload, e);
+        // 释放流控额度：只有确实发往该隧道且在途的事件才会释放
+        Long latencyMs = sessionManager.onAck(tunnelKey, eventId);
+
+        ackProcessor.submit(new TunnelAckProcessor.AckUpdate(tunnelKey, eventId, status, detail, latencyMs,
+                LocalDateTime.now()));
+    }
+
+    /**
+     * 处理客户端对心跳 Ping 的回复，刷新连接存活时间与往返时延。
+     *
+     * @param session 会话
+     * @param message Pong 消息
+     */
+    @Override
+    protected void handlePongMessage(WebSocketSession session, PongMessage message) {
+        String tunnelKey = extractTunnelKey(session);
+        if (tunnelKey != null) {
+            sessionManager.onPong(tunnelKey, session, message.getPayload());
         }
     }
 
@@ -180,6 +214,57 @@ public class TunnelWebSocketHandler extends TextWebSocketHandler {
         }
     }
 
+    /**
+     * 根据握手请求头 X-Tunnel-Protocol 协商协议版本，未声明或无法识别时使用 v1（JSON 文本帧）。
+     *
+     * @param session 会话
+     * @return 协议版本
+     */
+    private int negotiateProtocol(WebSocketSession session) {
+        String requested = session.getHandshakeHeaders().getFirst("X-Tunnel-Protocol");
+        if (requested == null) {
+            return TunnelFrameCodec.PROTOCOL_V1;
+        }
+        try {
+            return Math.max(TunnelFrameCodec.PROTOCOL_V1,
+                    Math.min(Integer.parseInt(requested.trim()), TunnelFrameCodec.PROTOCOL_V2));
+        } catch (NumberFormatException e) {
+            return TunnelFrameCodec.PROTOCOL_V1;
+        }
+    }
+
+    /**
+     * 从握手请求头 X-Tunnel-Agent-Id 提取 Agent 实例 ID，只接受不超过 64 位的字母、数字与连字符。
+     *
+     * @param session 会话
+     * @return Agent 实例 ID；未提供或格式不合法时返回 null
+     */
+    private String extractAgentId(WebSocketSession session) {
+        String agentId = session.getHandshakeHeaders().getFirst("X-Tunnel-Agent-Id");
+        if (agentId == null || agentId.length() > 64 || !agentId.matches("[A-Za-z0-9-]+")) {
+            return null;
+        }
+        return agentId;
+    }
+
+    /**
+     * 从握手请求头 X-Tunnel-Resume-After 提取续传游标。
+     *
+     * @param session 会话
+     * @return 续传游标；未提供或格式不合法时返回 null
+     */
+    private Long extractResumeAfter(WebSocketSession session) {
+        String resumeAfter = session.getHandshakeHeaders().getFirst("X-Tunnel-Resume-After");
+        if (resumeAfter == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(resumeAfter.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     /**
      * V11.1: 从 WebSocket 握手请求头中提取 tunnelKey
      * 生产环境下建议通过请求头传输，避免在日志中暴露 URL 参数
@@ -0,0 +1,67 @@
+package com.example.hookgateway.service;
+
+import com.example.hookgateway.model.WebhookEvent;
+import com.example.hookgateway.repository.WebhookEventRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+@Import(EventFieldIndex.class)
+class EventFieldIndexJpaTest {
+
+    @Autowired
+    private EventFieldIndex fieldIndex;
+
+    @Autowired
+    private WebhookEventRepository eventRepository;
+
+    @Test
+    void indexesExtractedFieldsAndMatchesByExactAndPrefix() {
+        fieldIndex.addExtractor("shop", "orderId", EventFieldIndex.TYPE_JSON_PATH, "$.order.id");
+        fieldIndex.addExtractor("shop", "type", EventFieldIndex.TYPE_HEADER, "X-Event-Type");
+        WebhookEvent paid = save("{\"order\":{\"id\":\"A-1024\"}}", "X-Event-Type: order.paid\n");
+        WebhookEvent refunded = save("{\"order\":{\"id\":\"A-1025\"}}", "X-Event-Type: order.refunded\n");
+        WebhookEvent underscore = save("{\"order\":{\"id\":\"B_1\"}}", "X-Event-Type: order.paid\n");
+        WebhookEvent wildcard = save("{\"order\":{\"id\":\"Bx1\"}}", "X-Event-Type: order.paid\n");
+        fieldIndex.index(List.of(paid, refunded, underscore, wildcard));
+
+        assertEquals(Set.of(paid.getId()), search("orderId:A-1024"));
+        assertEquals(Set.of(paid.getId(), refunded.getId()), search("orderId:A-*"));
+        assertEquals(Set.of(refunded.getId()), search("orderId:A-*", "type:order.refunded"));
+        // 前缀中的 _ 按字面匹配，不是 LIKE 通配符
+        assertEquals(Set.of(underscore.getId()), search("orderId:B_*"));
+        assertEquals(Set.of(), search("orderId:A-1024", "type:order.refunded"));
+
+        Map<Long, Map<String, List<String>>> fields = fieldIndex.fieldsOf(List.of(paid.getId()));
+        assertEquals(Map.of("orderId", List.of("A-1024"), "type", List.of("order.paid")), fields.get(paid.getId()));
+    }
+
+    private WebhookEvent save(String payload, String headers) {
+        return eventRepository.save(WebhookEvent.builder()
+                .source("shop")
+                .method("POST")
+                .headers(headers)
+                .payload(payload)
+                .receivedAt(LocalDateTime.now())
+                .build());
+    }
+
+    private Set<Long> search(String... filters) {
+        List<EventFieldIndex.FieldFilter> parsed = Arrays.stream(filters).map(EventFieldIndex.FieldFilter::parse)
+                .toList();
+        return eventRepository.findAll(fieldIndex.matching(parsed)).stream()
+                .map(WebhookEvent::getId)
+                .collect(Collectors.toSet());
+    }
+}
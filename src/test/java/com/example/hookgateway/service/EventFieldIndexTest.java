@@ -0,0 +1,77 @@
+package com.example.hookgateway.service;
+
+import com.example.hookgateway.model.FieldExtractor;
+import com.example.hookgateway.model.WebhookEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventFieldIndexTest {
+
+    private static EventFieldIndex.Extractor rule(String field, String type, String expression) {
+        return EventFieldIndex.Extractor.compile(FieldExtractor.builder()
+                .source("github")
+                .field(field)
+                .type(type)
+                .expression(expression)
+                .build());
+    }
+
+    @Test
+    void extractsJsonPathAndHeaderValues() {
+        WebhookEvent event = WebhookEvent.builder()
+                .source("github")
+                .headers("content-type: application/json\nX-GitHub-Event: push\n")
+                .payload("{\"repository\":{\"full_name\":\"acme/api\"},\"commits\":[{\"id\":\"a1\"},{\"id\":\"b2\"}],"
+                        + "\"sender\":{\"login\":\"octo\"}}")
+                .build();
+
+        Map<String, Set<String>> fields = EventFieldIndex.extract(event, List.of(
+                rule("repo", EventFieldIndex.TYPE_JSON_PATH, "$.repository.full_name"),
+                rule("commit", EventFieldIndex.TYPE_JSON_PATH, "$.commits[*].id"),
+                rule("missing", EventFieldIndex.TYPE_JSON_PATH, "$.pull_request.number"),
+                rule("sender", EventFieldIndex.TYPE_JSON_PATH, "$.sender"),
+                rule("type", EventFieldIndex.TYPE_HEADER, "x-github-event")));
+
+        assertEquals(Set.of("acme/api"), fields.get("repo"));
+        assertEquals(List.of("a1", "b2"), List.copyOf(fields.get("commit")));
+        assertEquals(Set.of("push"), fields.get("type"));
+        // 路径不存在或命中对象时不写字段
+        assertNull(fields.get("missing"));
+        assertNull(fields.get("sender"));
+    }
+
+    @Test
+    void skipsJsonPathRulesForNonJsonPayload() {
+        WebhookEvent event = WebhookEvent.builder()
+                .source("github")
+                .headers("X-Request-Id: r-1\n")
+                .payload("a=1&b=2")
+                .build();
+
+        Map<String, Set<String>> fields = EventFieldIndex.extract(event, List.of(
+                rule("a", EventFieldIndex.TYPE_JSON_PATH, "$.a"),
+                rule("requestId", EventFieldIndex.TYPE_HEADER, "X-Request-Id")));
+
+        assertEquals(Map.of("requestId", Set.of("r-1")), fields);
+    }
+
+    @Test
+    void parsesExactAndPrefixFilters() {
+        assertEquals(new EventFieldIndex.FieldFilter("orderId", "A-1024", false),
+                EventFieldIndex.FieldFilter.parse("orderId:A-1024"));
+        assertEquals(new EventFieldIndex.FieldFilter("repo", "acme/", true),
+                EventFieldIndex.FieldFilter.parse("repo:acme/*"));
+        assertNull(EventFieldIndex.FieldFilter.parse("repo:*"));
+        assertNull(EventFieldIndex.FieldFilter.parse("orderId"));
+        assertTrue(EventFieldIndex.isValidExpression(EventFieldIndex.TYPE_JSON_PATH, "$.order.id"));
+        assertFalse(EventFieldIndex.isValidExpression("XPATH", "/order/id"));
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.hookgateway.service;
+
+import com.example.hookgateway.config.InstanceIdentity;
+import com.example.hookgateway.model.WebhookEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 使用本地 Redis 替身（模拟连接）验证持久化批次的管道往返次数。
+ */
+class EventPersisterTest {
+
+    private RedisConnection connection;
+    private EventPersister persister;
+
+    @BeforeEach
+    void setup() {
+        RedisConnectionFactory factory = mock(RedisConnectionFactory.class);
+        connection = mock(RedisConnection.class);
+        when(factory.getConnection()).thenReturn(connection);
+        when(connection.closePipeline()).thenReturn(List.of());
+
+        StringRedisTemplate template = new StringRedisTemplate(factory);
+        persister = new EventPersister(template, mock(WebhookEventStore.class),
+                mock(WebhookProcessingService.class), new InstanceIdentity("test-node"));
+        ReflectionTestUtils.setField(persister, "ingestStreamKey", "webhook:events:ingest");
+        ReflectionTestUtils.setField(persister, "distributionMode", "redis");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushOf500EventsUsesSinglePipeline() {
+        List<WebhookEvent> saved = new ArrayList<>();
+        List<String> recordIds = new ArrayList<>();
+        for (int i = 1; i <= 500; i++) {
+            saved.add(WebhookEvent.builder().id((long) i).build());
+            recordIds.add("1700000000000-" + i);
+        }
+
+        persister.forwardAndAcknowledge(saved, recordIds);
+
+        verify(connection, times(1)).openPipeline();
+        verify(connection, times(1)).closePipeline();
+        verify(connection, times(500)).xAdd(any(MapRecord.class), any(RedisStreamCommands.XAddOptions.class));
+        verify(connection, times(1)).xAck(any(byte[].class), eq(EventPersister.GROUP_NAME),
+                any(RecordId[].class));
+        verify(connection, times(1)).xDel(any(byte[].class), any(RecordId[].class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void asyncDistributionOnlyAcknowledges() {
+        persister.forwardAndAcknowledge(List.of(), List.of("1700000000000-1", "1700000000000-2"));
+
+        verify(connection, times(1)).openPipeline();
+        verify(connection, never()).xAdd(any(MapRecord.class), any(RedisStreamCommands.XAddOptions.class));
+        verify(connection, times(1)).xAck(any(byte[].class), eq(EventPersister.GROUP_NAME),
+                any(RecordId[].class));
+        verify(connection, times(1)).xDel(any(byte[].class), any(RecordId[].class));
+    }
+}
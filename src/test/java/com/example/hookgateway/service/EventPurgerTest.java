@@ -0,0 +1,47 @@
+package com.example.hookgateway.service;
+
+import com.example.hookgateway.model.CleanupConfig;
+import com.example.hookgateway.repository.CleanupConfigRepository;
+import com.example.hookgateway.repository.RetentionRuleRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class EventPurgerTest {
+
+    @Test
+    void fullChunkAfterSlowdownIsNotTreatedAsCaughtUp() {
+        CleanupConfigRepository configRepository = mock(CleanupConfigRepository.class);
+        when(configRepository.findAll()).thenReturn(List.of(CleanupConfig.builder().enabled(true).build()));
+        RetentionRuleRepository ruleRepository = mock(RetentionRuleRepository.class);
+        WebhookEventStore eventStore = mock(WebhookEventStore.class);
+        EventPurger purger = new EventPurger(configRepository, ruleRepository, eventStore,
+                mock(EventPartitionManager.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(purger, "maxChunkSize", 1000);
+        ReflectionTestUtils.setField(purger, "chunkSize", 400);
+        ReflectionTestUtils.setField(purger, "targetChunkLatencyMs", 10_000L);
+        ReflectionTestUtils.setField(purger, "idleIntervalMs", 60_000L);
+
+        // 删满一块且很快：块大小随后增大，但仍有过期事件，不能判定为追平
+        LocalDateTime oldest = LocalDateTime.now().minusDays(40);
+        when(eventStore.purgeChunk(any(), anyInt()))
+                .thenAnswer(invocation -> new WebhookEventStore.PurgeResult(invocation.getArgument(1), oldest));
+
+        assertNotEquals(60_000L, purger.purgeOnce());
+        assertNotEquals(0L, purger.getLagSeconds());
+        purger.purgeOnce();
+
+        verify(eventStore).purgeChunk(any(), eq(400));
+        verify(eventStore).purgeChunk(any(), eq(500));
+        assertEquals(900, purger.getPassPurged());
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.hookgateway.service;
+
+import com.example.hookgateway.model.DeliveryAttempt;
+import com.example.hookgateway.model.EventRollup;
+import com.example.hookgateway.repository.EventLatencyRollupRepository;
+import com.example.hookgateway.repository.EventRollupRepository;
+import com.example.hookgateway.repository.WebhookEventRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class EventRollupTrackerTest {
+
+    @Test
+    void estimatesPercentilesFromHistogram() {
+        long[] histogram = new long[EventRollupTracker.LATENCY_BOUNDS_MS.length];
+        histogram[EventRollupTracker.latencyBucket(40)] = 90; // <= 50ms
+        histogram[EventRollupTracker.latencyBucket(800)] = 9; // <= 1000ms
+        histogram[EventRollupTracker.latencyBucket(120_000)] = 1; // 超出上界计入最后一个区间
+
+        assertEquals(50, EventRollupTracker.percentile(histogram, 0.5));
+        assertEquals(1000, EventRollupTracker.percentile(histogram, 0.99));
+        assertEquals(60000, EventRollupTracker.percentile(histogram, 1.0));
+        assertNull(EventRollupTracker.percentile(new long[histogram.length], 0.5));
+    }
+
+    @Test
+    void countsUtf8Bytes() {
+        assertEquals(0, EventRollupTracker.utf8Length(null));
+        assertEquals("{\"a\":\"支付\"}😀".getBytes(StandardCharsets.UTF_8).length,
+                EventRollupTracker.utf8Length("{\"a\":\"支付\"}😀"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushAddsToExistingRowsAndInsertsMissingOnes() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        EventRollupTracker tracker = new EventRollupTracker(mock(EventRollupRepository.class),
+                mock(EventLatencyRollupRepository.class), mock(WebhookEventRepository.class), jdbcTemplate,
+                transactionTemplate);
+
+        LocalDateTime at = LocalDateTime.of(2026, 1, 1, 12, 30, 15);
+        tracker.record("github", "SUCCESS", at, 100, List.of(20L));
+        tracker.record("github", "SUCCESS", at.plusSeconds(10), 50, List.of(22L, 400L));
+        // 分钟、小时、天三行：分钟行已存在，小时与天行需要插入
+        when(jdbcTemplate.batchUpdate(startsWith("UPDATE event_rollup"), anyList(), any(int[].class)))
+                .thenAnswer(invocation -> {
+                    List<Object[]> rows = invocation.getArgument(1);
+                    return rows.stream().mapToInt(row -> "MINUTE".equals(row[2]) ? 1 : 0).toArray();
+                });
+        when(jdbcTemplate.batchUpdate(startsWith("UPDATE event_latency_rollup"), anyList(), any(int[].class)))
+                .thenAnswer(invocation -> new int[((List<Object[]>) invocation.getArgument(1)).size()]);
+
+        tracker.flush();
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE event_rollup"), rows.capture(), any(int[].class));
+        assertEquals(3, rows.getValue().size());
+        Object[] minute = rows.getValue().stream().filter(row -> "MINUTE".equals(row[2])).findFirst().orElseThrow();
+        assertEquals(2L, minute[0]);
+        assertEquals(150L, minute[1]);
+        assertEquals(Timestamp.valueOf(EventRollup.Granularity.MINUTE.bucketOf(at)), minute[3]);
+        verify(jdbcTemplate, times(2)).update(startsWith("INSERT INTO event_rollup"), any(Object[].class),
+                any(int[].class));
+        // 20ms 与 22ms 合并在 <= 25ms 区间，400ms 在 <= 500ms 区间：每个粒度两行
+        verify(jdbcTemplate, times(6)).update(startsWith("INSERT INTO event_latency_rollup"), any(Object[].class),
+                any(int[].class));
+
+        // 增量已清空
+        reset(jdbcTemplate);
+        tracker.flush();
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList(), any(int[].class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void countsTunnelOutcomeOnlyOnceFromAck() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        WebhookEventRepository eventRepository = mock(WebhookEventRepository.class);
+        when(eventRepository.findSourcesByIdIn(any())).thenReturn(List.<Object[]>of(new Object[] { 7L, "github" }));
+        EventRollupTracker tracker = new EventRollupTracker(mock(EventRollupRepository.class),
+                mock(EventLatencyRollupRepository.class), eventRepository, jdbcTemplate, transactionTemplate);
+
+        // 只有隧道订阅：分发时事件状态为 FAILED（没有 HTTP 成功），下发耗时 3ms；过滤跳过的订阅没有耗时
+        LocalDateTime at = LocalDateTime.now();
+        tracker.recordDelivery("github", "FAILED", at, 100, List.of(
+                DeliveryAttempt.builder().target(WebhookEventStore.tunnelTarget("tk")).status("DISPATCHED")
+                        .latencyMs(3L).build(),
+                DeliveryAttempt.builder().target("http://example.com/hook").status("FILTERED").build()));
+        tracker.recordAcks(Map.of(7L, "SUCCESS"), Map.of(7L, 420L));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), any(int[].class)))
+                .thenAnswer(invocation -> new int[((List<Object[]>) invocation.getArgument(1)).size()]);
+
+        tracker.flush();
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE event_rollup"), rows.capture(), any(int[].class));
+        Map<String, Long> minuteCounts = rows.getValue().stream().filter(row -> "MINUTE".equals(row[2]))
+                .collect(Collectors.toMap(row -> (String) row[5], row -> (Long) row[0]));
+        assertEquals(Map.of(EventRollup.PENDING, 1L, "SUCCESS", 1L), minuteCounts);
+
+        // 耗时分布只有 ACK 的 420ms（<= 500ms 区间）
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE event_latency_rollup"), rows.capture(), any(int[].class));
+        List<Object[]> minuteLatencies = rows.getValue().stream().filter(row -> "MINUTE".equals(row[1])).toList();
+        assertEquals(1, minuteLatencies.size());
+        assertEquals("SUCCESS", minuteLatencies.get(0)[4]);
+        assertEquals(500, minuteLatencies.get(0)[5]);
+    }
+}
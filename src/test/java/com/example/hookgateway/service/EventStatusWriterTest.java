@@ -0,0 +1,78 @@
+package com.example.hookgateway.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class EventStatusWriterTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void coalescesUpdatesForSameEventIntoOneRow() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        EventStatusWriter writer = new EventStatusWriter(jdbcTemplate, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(writer, "batchSize", 500);
+
+        LocalDateTime deliveredAt = LocalDateTime.of(2026, 1, 1, 12, 0);
+        writer.submit(1L, "FAILED", 2, deliveredAt);
+        // 客户端 ACK 只改状态，投递次数与时间沿用之前的值
+        writer.submit(1L, "SUCCESS", null, null);
+        writer.submit(2L, "NO_MATCH", 0, null);
+        assertEquals("SUCCESS", writer.pendingUpdate(1L).status());
+
+        writer.flush();
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), rows.capture(), any(int[].class));
+        assertEquals(2, rows.getValue().size());
+        Object[] first = rows.getValue().stream().filter(row -> row[3].equals(1L)).findFirst().orElseThrow();
+        assertArrayEquals(new Object[] { "SUCCESS", 2, deliveredAt, 1L }, first);
+        assertNull(writer.pendingUpdate(1L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void keepsUpdatesPendingUntilWritten() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        EventStatusWriter writer = new EventStatusWriter(jdbcTemplate, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(writer, "batchSize", 500);
+        writer.submit(1L, "FAILED", 1, null);
+
+        // 写库失败：状态仍可读，下次重试
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), any(int[].class)))
+                .thenThrow(new DataAccessResourceFailureException("down"));
+        assertThrows(DataAccessResourceFailureException.class, writer::flush);
+        assertEquals("FAILED", writer.pendingUpdate(1L).status());
+
+        // 写库期间到达的 ACK 不会随本批移除，在下一批写出
+        reset(jdbcTemplate);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), any(int[].class))).thenAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            if ("FAILED".equals(rows.get(0)[0])) {
+                assertEquals("FAILED", writer.pendingUpdate(1L).status());
+                writer.submit(1L, "SUCCESS", null, null);
+            }
+            return new int[rows.size()];
+        });
+        writer.flush();
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), rows.capture(), any(int[].class));
+        assertArrayEquals(new Object[] { "SUCCESS", 1, null, 1L }, rows.getAllValues().get(1).get(0));
+        assertNull(writer.pendingUpdate(1L));
+    }
+}
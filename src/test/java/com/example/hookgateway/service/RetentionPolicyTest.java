@@ -0,0 +1,67 @@
+package com.example.hookgateway.service;
+
+import com.example.hookgateway.model.RetentionRule;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetentionPolicyTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 31, 12, 0);
+
+    @Test
+    void withoutRulesUsesSingleGlobalSegment() {
+        List<RetentionPolicy.Segment> segments = RetentionPolicy.plan(List.of(), 30, List.of("a", "b"), NOW);
+
+        assertEquals(1, segments.size());
+        assertNull(segments.get(0).source());
+        assertEquals(NOW.minusDays(30), segments.get(0).cutoff());
+    }
+
+    @Test
+    void exactRuleOverridesSourceAndStatusRules() {
+        List<RetentionRule> rules = List.of(
+                rule("telemetry", null, 6),
+                rule(null, "FAILED", 24 * 90),
+                rule("payments", "FAILED", 24 * 365));
+
+        List<RetentionPolicy.Segment> segments = RetentionPolicy.plan(rules, 30,
+                List.of("telemetry", "payments", "github"), NOW);
+
+        // telemetry：来源规则覆盖状态规则，只有一个默认分段
+        assertEquals(List.of(new RetentionPolicy.Segment("telemetry", List.of(), true, NOW.minusHours(6))),
+                segments.stream().filter(s -> "telemetry".equals(s.source())).toList());
+
+        // payments：来源+状态规则覆盖状态规则，其余状态按全局
+        List<RetentionPolicy.Segment> payments = segments.stream().filter(s -> "payments".equals(s.source())).toList();
+        assertEquals(2, payments.size());
+        assertEquals(new RetentionPolicy.Segment("payments", List.of("FAILED"), false, NOW.minusHours(24 * 365)),
+                payments.get(0));
+        assertTrue(payments.get(1).excludeStatuses());
+        assertEquals(List.of("FAILED"), payments.get(1).statuses());
+        assertEquals(NOW.minusDays(30), payments.get(1).cutoff());
+
+        // github：状态规则生效
+        List<RetentionPolicy.Segment> github = segments.stream().filter(s -> "github".equals(s.source())).toList();
+        assertEquals(NOW.minusHours(24 * 90), github.get(0).cutoff());
+        assertFalse(github.get(0).excludeStatuses());
+    }
+
+    @Test
+    void partitionsKeepLongestRetention() {
+        List<RetentionRule> rules = List.of(rule("telemetry", null, 6), rule("payments", null, 24 * 90));
+
+        assertEquals(24 * 90, RetentionPolicy.longestRetentionHours(rules, 30));
+        assertEquals(24 * 30, RetentionPolicy.longestRetentionHours(List.of(rule("telemetry", null, 6)), 30));
+    }
+
+    private static RetentionRule rule(String source, String status, int hours) {
+        return RetentionRule.builder().source(source).status(status).retentionHours(hours).build();
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.hookgateway.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SearchTokenizerTest {
+
+    @Test
+    void splitsJsonIntoLowercaseWords() {
+        Set<String> tokens = SearchTokenizer.tokenizeQuery("{\"orderId\":\"A-1024\",\"status\":\"PAID\"}", 100);
+
+        assertEquals(List.of("orderid", "1024", "status", "paid"), List.copyOf(tokens));
+    }
+
+    @Test
+    void splitsCjkIntoBigrams() {
+        Set<String> tokens = SearchTokenizer.tokenizeQuery("支付成功 ok 单", 100);
+
+        assertEquals(List.of("支付", "付成", "成功", "ok", "单"), List.copyOf(tokens));
+    }
+
+    @Test
+    void stopsAtLimits() {
+        Set<String> tokens = new LinkedHashSet<>();
+        SearchTokenizer.tokenize("alpha beta gamma delta", 8, 3, tokens);
+
+        // 只扫描前 8 个字符，"beta" 被截断为 "be"
+        assertEquals(List.of("alpha", "be"), List.copyOf(tokens));
+
+        tokens.clear();
+        SearchTokenizer.tokenize("alpha beta gamma delta", 100, 3, tokens);
+        assertEquals(List.of("alpha", "beta", "gamma"), List.copyOf(tokens));
+    }
+}
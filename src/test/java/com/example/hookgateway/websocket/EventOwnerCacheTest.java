@@ -0,0 +1,25 @@
+package com.example.hookgateway.websocket;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class EventOwnerCacheTest {
+
+    @Test
+    void keepsMostRecentSequentialEvents() {
+        EventOwnerCache cache = new EventOwnerCache(100);
+        assertEquals(128, cache.capacity());
+
+        for (long id = 1; id <= 200; id++) {
+            cache.put(id, "key-" + id);
+        }
+
+        assertEquals("key-200", cache.get(200));
+        assertEquals("key-73", cache.get(73));
+        // 被 ID 相差一个容量的新事件覆盖
+        assertNull(cache.get(72));
+        assertNull(cache.get(1));
+    }
+}
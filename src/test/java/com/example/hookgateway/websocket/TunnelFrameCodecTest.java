@@ -0,0 +1,75 @@
+package com.example.hookgateway.websocket;
+
+import com.example.hookgateway.model.TunnelBroadcastMessage;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TunnelFrameCodecTest {
+
+    @Test
+    void encodesMultipleEventsInOneUncompressedFrame() {
+        ByteBuffer frame = TunnelFrameCodec.encode(List.of(message(1L, "{\"a\":1}"), message(2L, "中文")), 0);
+
+        assertEquals(TunnelFrameCodec.PROTOCOL_V2, frame.get());
+        assertEquals(TunnelFrameCodec.TYPE_WEBHOOKS, frame.get());
+        assertEquals(0, frame.get());
+        assertEquals(2, frame.getInt());
+
+        assertEvent(frame, 1L, "{\"a\":1}");
+        assertEvent(frame, 2L, "中文");
+        assertEquals(0, frame.remaining());
+    }
+
+    @Test
+    void compressesBodyAboveThreshold() throws Exception {
+        String payload = "x".repeat(4096);
+        ByteBuffer frame = TunnelFrameCodec.encode(List.of(message(7L, payload)), 1024);
+
+        frame.position(2);
+        assertEquals(TunnelFrameCodec.FLAG_DEFLATE, frame.get());
+        assertEquals(1, frame.getInt());
+        int rawLength = frame.getInt();
+
+        Inflater inflater = new Inflater();
+        inflater.setInput(frame);
+        byte[] body = new byte[rawLength];
+        assertEquals(rawLength, inflater.inflate(body));
+        inflater.end();
+
+        assertEvent(ByteBuffer.wrap(body), 7L, payload);
+    }
+
+    private static TunnelBroadcastMessage message(Long eventId, String payload) {
+        return TunnelBroadcastMessage.builder()
+                .tunnelKey("key")
+                .eventId(eventId)
+                .source("github")
+                .method("POST")
+                .headers("X-Test: 1")
+                .payload(payload)
+                .build();
+    }
+
+    private static void assertEvent(ByteBuffer body, long eventId, String payload) {
+        int headerLength = body.getInt();
+        int headerEnd = body.position() + headerLength;
+        assertEquals(eventId, body.getLong());
+        assertEquals("github", readString(body));
+        assertEquals("POST", readString(body));
+        assertEquals("X-Test: 1", readString(body));
+        assertEquals(headerEnd, body.position());
+        assertEquals(payload, readString(body));
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] data = new byte[buffer.getInt()];
+        buffer.get(data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+}
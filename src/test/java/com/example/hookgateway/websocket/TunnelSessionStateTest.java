@@ -0,0 +1,51 @@
+package com.example.hookgateway.websocket;
+
+import com.example.hookgateway.model.TunnelBroadcastMessage;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class TunnelSessionStateTest {
+
+    @Test
+    void countsOnlyPingsSentSinceLastPong() {
+        TunnelSessionState state = new TunnelSessionState("tk", mock(WebSocketSession.class), 1000, 1024, 10, 1,
+                null);
+        // 连接建立后尚未发出 Ping：无论距离上次 Pong 多久都不算失联
+        assertEquals(0, state.getUnansweredPings());
+
+        state.onPingSent();
+        assertEquals(2, state.onPingSent());
+
+        state.onPong(System.nanoTime());
+        assertEquals(0, state.getUnansweredPings());
+        assertEquals(1, state.onPingSent());
+    }
+
+    @Test
+    void expiredCreditsReturnTheirMessagesForRedelivery() throws InterruptedException {
+        TunnelSessionState state = new TunnelSessionState("tk", mock(WebSocketSession.class), 1000, 1024, 2, 1,
+                null);
+        TunnelBroadcastMessage first = TunnelBroadcastMessage.builder().tunnelKey("tk").eventId(1L).build();
+        TunnelBroadcastMessage second = TunnelBroadcastMessage.builder().tunnelKey("tk").eventId(2L).build();
+        state.tryAcquireCredit(first);
+        state.markSending(1L);
+        state.tryAcquireCredit(second);
+        state.markSending(2L);
+        assertFalse(state.tryAcquireCredit(TunnelBroadcastMessage.builder().eventId(3L).build()));
+        Thread.sleep(5);
+
+        List<TunnelSessionState.Unacked> expired = state.expireCredits(1);
+
+        assertEquals(List.of(first, second), expired.stream().map(TunnelSessionState.Unacked::message).toList());
+        assertEquals(2, state.getAvailableCredits());
+        // 超时事件已交给调用方补发，断线时不会重复写入缓冲
+        assertTrue(state.drainUnacked().isEmpty());
+    }
+}
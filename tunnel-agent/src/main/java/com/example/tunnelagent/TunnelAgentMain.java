@@ -2,16 +2,44 @@ package com.example.tunnelagent;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpServer;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.util.TimeValue;
 import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.framing.CloseFrame;
 import org.java_websocket.handshake.ServerHandshake;
 
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 
 /**
  * Webhook Tunnel Agent
@@ -26,6 +54,22 @@ public class TunnelAgentMain {
         String server = getArg(args, "--server", "wss://localhost:8080/tunnel/connect");
         String tunnelKey = getArg(args, "--key", null);
         String targetUrl = getArg(args, "--target", "http://localhost:8080/webhook");
+        // 批量 ACK：大于 1 时合并为 ACK_BATCH 帧上报，减少网关处理开销
+        int ackBatchSize = Integer.parseInt(getArg(args, "--ack-batch", "1"));
+        // 协议版本：2 为二进制帧（旧版网关会忽略该请求头并继续使用 JSON），1 强制使用 JSON 文本帧
+        String protocol = getArg(args, "--protocol", "2");
+        // 并发转发线程数；--ordered=true 时同一来源的事件按到达顺序串行转发
+        int concurrency = Integer.parseInt(getArg(args, "--concurrency", "4"));
+        boolean ordered = Boolean.parseBoolean(getArg(args, "--ordered", "false"));
+        // 断线重连的最大退避时间（毫秒），实际等待时间在 [0, min(上限, 1s * 2^n)] 内随机
+        long reconnectMaxMs = Long.parseLong(getArg(args, "--reconnect-max-ms", "60000"));
+
+        // 本地压测模式：启动内置桩服务，测量转发吞吐，不连接网关
+        String benchmark = getArg(args, "--benchmark", null);
+        if (benchmark != null) {
+            runBenchmark(Integer.parseInt(benchmark), concurrency, ordered);
+            return;
+        }
 
         if (tunnelKey == null || tunnelKey.isEmpty()) {
             System.err.println("错误：必须提供 --key 参数");
@@ -38,14 +82,78 @@ public class TunnelAgentMain {
         System.out.println("服务器: " + server);
         System.out.println("Tunnel Key: " + tunnelKey);
         System.out.println("本地目标: " + targetUrl);
+        System.out.println("并发转发: " + concurrency + (ordered ? "（按来源保序）" : ""));
+        if (ackBatchSize > 1) {
+            System.out.println("批量 ACK: " + ackBatchSize);
+        }
         System.out.println("========================================");
         System.out.println("正在连接...");
 
-        Map<String, String> headers = Map.of("X-Tunnel-Key", tunnelKey);
-        TunnelWebSocketClient client = new TunnelWebSocketClient(URI.create(server), targetUrl, headers);
+        // Agent 实例 ID：网关据此识别重连的是同一个 Agent，配合续传游标避免重复投递
+        Map<String, String> headers = Map.of("X-Tunnel-Key", tunnelKey, "X-Tunnel-Protocol", protocol,
+                "X-Tunnel-Agent-Id", UUID.randomUUID().toString());
+        LocalForwarder forwarder = new LocalForwarder(targetUrl, concurrency, ordered, true);
+        TunnelWebSocketClient client = new TunnelWebSocketClient(URI.create(server), forwarder, headers,
+                ackBatchSize, reconnectMaxMs);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            client.shutdown();
+            forwarder.close();
+        }));
         client.connect();
     }
 
+    /**
+     * 本地压测：内置桩服务直接返回 200，按指定并发转发 N 个请求并输出吞吐与耗时。
+     */
+    private static void runBenchmark(int requests, int concurrency, boolean ordered) {
+        HttpServer stub = null;
+        LocalForwarder forwarder = null;
+        try {
+            stub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            stub.createContext("/", exchange -> {
+                exchange.getRequestBody().readAllBytes();
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+            });
+            stub.setExecutor(Executors.newFixedThreadPool(Math.max(4, concurrency)));
+            stub.start();
+
+            String url = "http://127.0.0.1:" + stub.getAddress().getPort() + "/webhook";
+            forwarder = new LocalForwarder(url, concurrency, ordered, false);
+            String payload = gson.toJson(Map.of("event", "benchmark", "data", "x".repeat(512)));
+
+            System.out.println("压测: " + requests + " 个请求，并发 " + concurrency + (ordered ? "（按来源保序）" : ""));
+            CountDownLatch done = new CountDownLatch(requests);
+            AtomicInteger failed = new AtomicInteger();
+            long start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                LocalForwarder f = forwarder;
+                forwarder.submit("source-" + (i % 8), () -> {
+                    if (!f.forward("POST", "X-Benchmark: 1", payload).startsWith("SUCCESS")) {
+                        failed.incrementAndGet();
+                    }
+                    done.countDown();
+                });
+            }
+            done.await();
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+            System.out.printf("完成: %d 个请求，失败 %d，耗时 %.2fs，吞吐 %.0f req/s%n",
+                    requests, failed.get(), seconds, requests / seconds);
+        } catch (Exception e) {
+            System.err.println("❌ 压测失败: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            if (forwarder != null) {
+                forwarder.close();
+            }
+            if (stub != null) {
+                stub.stop(0);
+                ((ExecutorService) stub.getExecutor()).shutdownNow();
+            }
+        }
+    }
+
     private static String getArg(String[] args, String key, String defaultValue) {
         for (String arg : args) {
             if (arg.startsWith(key + "=")) {
@@ -57,16 +165,54 @@ public class TunnelAgentMain {
 
     static class TunnelWebSocketClient extends WebSocketClient {
 
-        private final String targetUrl;
-
-        public TunnelWebSocketClient(URI serverUri, String targetUrl, Map<String, String> headers) {
+        // 网关限制单帧 16KB，批量模式下每帧最多 50 条、明细截断到 200 字符
+        private static final int MAX_ACK_BATCH = 50;
+        private static final int MAX_BATCH_DETAIL_LENGTH = 200;
+        private static final long ACK_FLUSH_INTERVAL_MS = 200;
+        private static final long RECONNECT_BASE_MS = 1000;
+
+        private final LocalForwarder forwarder;
+        private final int ackBatchSize;
+        private final long reconnectMaxMs;
+        // 待上报的 ACK：批量模式下的未满批次，以及断线期间无法发送的 ACK
+        private final List<Map<String, Object>> pendingAcks = new ArrayList<>();
+        private final ResumeTracker resumeTracker = new ResumeTracker();
+        private final ScheduledExecutorService scheduler;
+        private final AtomicInteger reconnectAttempts = new AtomicInteger();
+        private volatile boolean shuttingDown;
+
+        public TunnelWebSocketClient(URI serverUri, LocalForwarder forwarder, Map<String, String> headers,
+                int ackBatchSize, long reconnectMaxMs) {
             super(serverUri, headers);
-            this.targetUrl = targetUrl;
+            this.forwarder = forwarder;
+            this.ackBatchSize = Math.max(1, Math.min(ackBatchSize, MAX_ACK_BATCH));
+            this.reconnectMaxMs = Math.max(RECONNECT_BASE_MS, reconnectMaxMs);
+            // 重连调度与 ACK 定时上报共用一个后台线程，不占用 WebSocket 线程
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "agent-scheduler");
+                t.setDaemon(true);
+                return t;
+            });
+            // 未凑满一批或断线期间积压的 ACK 定时上报
+            this.scheduler.scheduleWithFixedDelay(this::flushAcks, ACK_FLUSH_INTERVAL_MS,
+                    ACK_FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * 主动退出：不再重连。
+         */
+        void shutdown() {
+            shuttingDown = true;
+            scheduler.shutdownNow();
+            close();
         }
 
         @Override
         public void onOpen(ServerHandshake handshakedata) {
+            reconnectAttempts.set(0);
             System.out.println("✅ 连接成功！等待 Webhook...");
+            // 先补报断线期间完成转发的 ACK
+            scheduler.execute(this::flushAcks);
         }
 
         @Override
@@ -77,6 +223,8 @@ public class TunnelAgentMain {
 
                 if ("WELCOME".equals(type)) {
                     System.out.println("📩 收到欢迎消息: " + json.get("message").getAsString());
+                    int negotiated = json.has("protocol") ? json.get("protocol").getAsInt() : 1;
+                    System.out.println("   协议版本: v" + negotiated);
                     return;
                 }
 
@@ -86,16 +234,7 @@ public class TunnelAgentMain {
                     String method = json.get("method").getAsString();
                     String headers = json.has("headers") ? json.get("headers").getAsString() : "";
                     String payload = json.get("payload").getAsString();
-
-                    System.out.println("\n📥 收到 Webhook [ID: " + eventId + "]");
-                    System.out.println("   来源: " + source);
-                    System.out.println("   方法: " + method);
-
-                    // 转发到本地服务并返回结果描述
-                    String result = forwardToLocal(method, headers, payload);
-
-                    // 发送 ACK 回网关
-                    sendAck(eventId, result);
+                    handleWebhook(eventId, source, method, headers, payload);
                 }
 
             } catch (Exception e) {
@@ -104,25 +243,283 @@ public class TunnelAgentMain {
             }
         }
 
+        /**
+         * v2 二进制帧：一个帧可包含多个事件。
+         */
+        @Override
+        public void onMessage(ByteBuffer bytes) {
+            try {
+                for (FrameDecoder.Webhook webhook : FrameDecoder.decode(bytes)) {
+                    handleWebhook(webhook.eventId(), webhook.source(), webhook.method(), webhook.headers(),
+                            webhook.payload());
+                }
+            } catch (Exception e) {
+                System.err.println("❌ 解析二进制帧时出错: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+
+        private void handleWebhook(long eventId, String source, String method, String headers, String payload) {
+            // 重连后网关可能重发 ACK 丢失的事件：已处理过的只补报 ACK，处理中的直接忽略
+            Map<String, Object> previousAck = resumeTracker.getAck(eventId);
+            if (previousAck != null) {
+                System.out.println("\n🔁 Webhook [ID: " + eventId + "] 已处理，重新上报 ACK");
+                queueAck(new java.util.HashMap<>(previousAck));
+                return;
+            }
+            if (!resumeTracker.begin(eventId)) {
+                return;
+            }
+
+            System.out.println("\n📥 收到 Webhook [ID: " + eventId + "]");
+            System.out.println("   来源: " + source);
+            System.out.println("   方法: " + method);
+
+            // 在工作线程中转发到本地服务，完成后异步发送 ACK 回网关，不阻塞 WebSocket 读线程
+            forwarder.submit(source, () -> sendAck(eventId, forwarder.forward(method, headers, payload)));
+        }
+
         private void sendAck(long eventId, String result) {
+            // 使用普通 HashMap 以防未来有字段为 null (Map.of 不支持 null)
+            java.util.Map<String, Object> ack = new java.util.HashMap<>();
+            ack.put("eventId", eventId);
+            ack.put("status", result.startsWith("SUCCESS") ? "SUCCESS" : "FAILED");
+            ack.put("detail", result);
+            resumeTracker.complete(eventId, ack);
+            queueAck(ack);
+        }
+
+        private void queueAck(Map<String, Object> ack) {
+            if (ackBatchSize > 1 || !isOpen()) {
+                boolean full;
+                synchronized (pendingAcks) {
+                    pendingAcks.add(ack);
+                    full = pendingAcks.size() >= ackBatchSize;
+                }
+                if (full) {
+                    flushAcks();
+                }
+                return;
+            }
+
             try {
-                // 使用普通 HashMap 以防未来有字段为 null (Map.of 不支持 null)
-                java.util.Map<String, Object> ack = new java.util.HashMap<>();
-                ack.put("type", "ACK");
-                ack.put("eventId", eventId);
-                ack.put("status", result.startsWith("SUCCESS") ? "SUCCESS" : "FAILED");
-                ack.put("detail", result);
-
-                String ackJson = gson.toJson(ack);
-                this.send(ackJson);
+                java.util.Map<String, Object> frame = new java.util.HashMap<>(ack);
+                frame.put("type", "ACK");
+                this.send(gson.toJson(frame));
                 System.out.println("   📤 ACK 已上报网关");
             } catch (Exception e) {
-                System.err.println("   ❌ 发送 ACK 失败: " + e.getMessage());
+                // 连接已断开，留待重连后补报
+                synchronized (pendingAcks) {
+                    pendingAcks.add(ack);
+                }
+                System.err.println("   ❌ 发送 ACK 失败，重连后补报: " + e.getMessage());
+            }
+        }
+
+        private void flushAcks() {
+            while (true) {
+                List<Map<String, Object>> batch;
+                synchronized (pendingAcks) {
+                    if (pendingAcks.isEmpty() || !isOpen()) {
+                        return;
+                    }
+                    int size = Math.min(pendingAcks.size(), MAX_ACK_BATCH);
+                    batch = new ArrayList<>(pendingAcks.subList(0, size));
+                    pendingAcks.subList(0, size).clear();
+                }
+                try {
+                    List<Map<String, Object>> acks = new ArrayList<>(batch.size());
+                    for (Map<String, Object> ack : batch) {
+                        Map<String, Object> item = new java.util.HashMap<>(ack);
+                        String detail = String.valueOf(ack.get("detail"));
+                        item.put("detail", detail.length() > MAX_BATCH_DETAIL_LENGTH
+                                ? detail.substring(0, MAX_BATCH_DETAIL_LENGTH) : detail);
+                        acks.add(item);
+                    }
+                    java.util.Map<String, Object> frame = new java.util.HashMap<>();
+                    frame.put("type", "ACK_BATCH");
+                    frame.put("acks", acks);
+                    this.send(gson.toJson(frame));
+                    System.out.println("   📤 批量 ACK 已上报网关 (" + batch.size() + " 条)");
+                } catch (Exception e) {
+                    synchronized (pendingAcks) {
+                        pendingAcks.addAll(0, batch);
+                    }
+                    System.err.println("   ❌ 发送批量 ACK 失败: " + e.getMessage());
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+            System.out.println("\n⚠️  连接已关闭 (代码 " + code + "): " + reason);
+            if (shuttingDown) {
+                return;
+            }
+            if (isFatal(code)) {
+                // 网关拒绝了本 Agent（Tunnel Key 无效、缺少参数、连接数超限或协议错误），重连只会再次被拒绝
+                System.err.println("❌ 网关拒绝连接，不再重连: " + reason);
+                shutdown();
+                System.exit(1);
+                return;
+            }
+
+            // 指数退避 + 全抖动：网关重启后各 Agent 的重连时间随机分散，避免同时涌入
+            int attempt = reconnectAttempts.getAndIncrement();
+            long ceiling = Math.min(reconnectMaxMs, RECONNECT_BASE_MS << Math.min(attempt, 16));
+            long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+            System.out.println(delay + "ms 后尝试第 " + (attempt + 1) + " 次重连...");
+
+            // 重连必须在非 WebSocket 线程中进行
+            try {
+                scheduler.schedule(this::doReconnect, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // 已在退出
+            }
+        }
+
+        /**
+         * 配置或协议错误导致的关闭，重连无法恢复。
+         */
+        private static boolean isFatal(int code) {
+            return code == CloseFrame.PROTOCOL_ERROR || code == CloseFrame.REFUSE
+                    || code == CloseFrame.NO_UTF8 || code == CloseFrame.POLICY_VALIDATION;
+        }
+
+        private void doReconnect() {
+            // 续传游标：网关据此跳过本 Agent 已处理但 ACK 未送达的事件，其余未确认事件重新投递
+            long cursor = resumeTracker.getResumeCursor();
+            if (cursor > 0) {
+                addHeader("X-Tunnel-Resume-After", String.valueOf(cursor));
             }
+            System.out.println("🔄 正在尝试重新连接..." + (cursor > 0 ? "（续传游标 " + cursor + "）" : ""));
+            reconnect();
         }
 
-        private String forwardToLocal(String method, String headersStr, String payload) {
-            try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
+        @Override
+        public void onError(Exception ex) {
+            System.err.println("❌ WebSocket 错误: " + ex.getMessage());
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * 续传状态：记录处理中的事件与最近已处理事件的 ACK。
+     * 续传游标为已确认的最大 eventId，但不超过任何仍在处理中的事件，
+     * 即所有不大于游标且已收到的事件都已处理完成。
+     */
+    static final class ResumeTracker {
+
+        // 保留最近已处理事件的 ACK 条数，用于识别重连后的重复投递
+        private static final int MAX_RECENT_ACKS = 10_000;
+
+        private final TreeSet<Long> inProgress = new TreeSet<>();
+        private final Map<Long, Map<String, Object>> recentAcks = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Map<String, Object>> eldest) {
+                return size() > MAX_RECENT_ACKS;
+            }
+        };
+        private long maxAcked;
+
+        /**
+         * 开始处理事件。
+         *
+         * @return false 表示该事件正在处理中
+         */
+        synchronized boolean begin(long eventId) {
+            return inProgress.add(eventId);
+        }
+
+        synchronized void complete(long eventId, Map<String, Object> ack) {
+            inProgress.remove(eventId);
+            recentAcks.put(eventId, ack);
+            maxAcked = Math.max(maxAcked, eventId);
+        }
+
+        synchronized Map<String, Object> getAck(long eventId) {
+            return recentAcks.get(eventId);
+        }
+
+        synchronized long getResumeCursor() {
+            return inProgress.isEmpty() ? maxAcked : Math.min(maxAcked, inProgress.first() - 1);
+        }
+    }
+
+    /**
+     * 本地转发器：共享带连接池与长连接的 HTTP 客户端，在有界线程池中并发转发。
+     * 保序模式下按来源哈希到固定的单线程通道，同一来源的事件按到达顺序转发。
+     * 队列满时提交线程阻塞等待，对 WebSocket 读线程形成背压。
+     */
+    static final class LocalForwarder {
+
+        // 每个线程的排队上限
+        private static final int QUEUE_PER_WORKER = 100;
+
+        private final String targetUrl;
+        private final boolean verbose;
+        private final CloseableHttpClient httpClient;
+        private final List<ThreadPoolExecutor> lanes = new ArrayList<>();
+
+        LocalForwarder(String targetUrl, int concurrency, boolean ordered, boolean verbose) {
+            this.targetUrl = targetUrl;
+            this.verbose = verbose;
+            int workers = Math.max(1, concurrency);
+
+            PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                    .setMaxConnTotal(workers)
+                    .setMaxConnPerRoute(workers)
+                    .build();
+            this.httpClient = HttpClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .evictIdleConnections(TimeValue.ofSeconds(30))
+                    .build();
+
+            AtomicInteger threadIndex = new AtomicInteger();
+            ThreadFactory threadFactory = r -> {
+                Thread t = new Thread(r, "forwarder-" + threadIndex.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            };
+            if (ordered) {
+                for (int i = 0; i < workers; i++) {
+                    lanes.add(newExecutor(1, QUEUE_PER_WORKER, threadFactory));
+                }
+            } else {
+                lanes.add(newExecutor(workers, workers * QUEUE_PER_WORKER, threadFactory));
+            }
+        }
+
+        private static ThreadPoolExecutor newExecutor(int threads, int queueSize, ThreadFactory threadFactory) {
+            return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueSize), threadFactory, (task, executor) -> {
+                        try {
+                            executor.getQueue().put(task);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new RejectedExecutionException("Interrupted while waiting for forwarder queue", e);
+                        }
+                    });
+        }
+
+        /**
+         * 提交转发任务。
+         *
+         * @param orderingKey 保序键（事件来源），非保序模式下忽略
+         * @param task        转发任务
+         */
+        void submit(String orderingKey, Runnable task) {
+            int lane = lanes.size() == 1 ? 0
+                    : Math.floorMod(orderingKey != null ? orderingKey.hashCode() : 0, lanes.size());
+            lanes.get(lane).execute(task);
+        }
+
+        /**
+         * 同步转发一个请求到本地服务，复用连接池中的长连接。
+         */
+        String forward(String method, String headersStr, String payload) {
+            try {
                 org.apache.hc.core5.http.ClassicHttpRequest request;
 
                 // 根据原始方法创建请求
@@ -181,40 +578,113 @@ public class TunnelAgentMain {
                 request.setHeader("Content-Type", "application/json");
 
                 try (CloseableHttpResponse response = httpClient.execute(request)) {
+                    // 读完响应体才能把连接归还连接池
+                    EntityUtils.consume(response.getEntity());
                     int statusCode = response.getCode();
-                    System.out.println("   ✅ 已转发到本地，响应: " + statusCode);
+                    if (verbose) {
+                        System.out.println("   ✅ 已转发到本地，响应: " + statusCode);
+                    }
                     return "SUCCESS: Local client responded with " + statusCode;
                 }
 
             } catch (Exception e) {
-                System.err.println("   ❌ 转发失败: " + e.getMessage());
+                if (verbose) {
+                    System.err.println("   ❌ 转发失败: " + e.getMessage());
+                }
                 return "FAILED: " + e.getMessage();
             }
         }
 
-        @Override
-        public void onClose(int code, String reason, boolean remote) {
-            System.out.println("\n⚠️  连接已关闭 (代码 " + code + "): " + reason);
+        void close() {
+            lanes.forEach(ThreadPoolExecutor::shutdown);
+            try {
+                httpClient.close();
+            } catch (Exception e) {
+                // 退出阶段忽略关闭异常
+            }
+        }
+    }
 
-            // 自动重连逻辑修复：必须在非 WebSocket 线程中运行
-            if (remote || code == 1006) {
-                System.out.println("5秒后尝试重连...");
-                new Thread(() -> {
-                    try {
-                        Thread.sleep(5000);
-                        System.out.println("🔄 正在尝试重新连接...");
-                        this.reconnect();
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    }
-                }).start();
+    /**
+     * v2 二进制帧解码，格式与网关 TunnelFrameCodec 一致：
+     * version(1B) | type(1B) | flags(1B, bit0=DEFLATE) | count(4B) | body，
+     * body 中每个事件为 headerLength(4B) + header(eventId, source, method, headers) + payloadLength(4B) + payload。
+     */
+    static final class FrameDecoder {
+
+        private static final int PROTOCOL_V2 = 2;
+        private static final byte TYPE_WEBHOOKS = 1;
+        private static final byte FLAG_DEFLATE = 1;
+        // 解压后帧体上限，防止异常数据耗尽内存
+        private static final int MAX_BODY_BYTES = 64 * 1024 * 1024;
+
+        record Webhook(long eventId, String source, String method, String headers, String payload) {
+        }
+
+        private FrameDecoder() {
+        }
+
+        static List<Webhook> decode(ByteBuffer frame) throws DataFormatException {
+            byte version = frame.get();
+            byte type = frame.get();
+            byte flags = frame.get();
+            int count = frame.getInt();
+            if (version != PROTOCOL_V2 || type != TYPE_WEBHOOKS) {
+                throw new IllegalArgumentException("Unsupported frame: version=" + version + ", type=" + type);
+            }
+
+            ByteBuffer body = frame;
+            if ((flags & FLAG_DEFLATE) != 0) {
+                int rawLength = frame.getInt();
+                if (rawLength < 0 || rawLength > MAX_BODY_BYTES) {
+                    throw new IllegalArgumentException("Frame body too large: " + rawLength);
+                }
+                body = ByteBuffer.wrap(inflate(frame, rawLength));
+            }
+
+            List<Webhook> webhooks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int headerLength = body.getInt();
+                ByteBuffer header = body.slice(body.position(), headerLength);
+                body.position(body.position() + headerLength);
+
+                long eventId = header.getLong();
+                String source = readString(header);
+                String method = readString(header);
+                String headers = readString(header);
+                String payload = readString(body);
+                webhooks.add(new Webhook(eventId, source, method, headers, payload));
             }
+            return webhooks;
         }
 
-        @Override
-        public void onError(Exception ex) {
-            System.err.println("❌ WebSocket 错误: " + ex.getMessage());
-            ex.printStackTrace();
+        private static String readString(ByteBuffer buffer) {
+            int length = buffer.getInt();
+            byte[] data = new byte[length];
+            buffer.get(data);
+            return new String(data, StandardCharsets.UTF_8);
+        }
+
+        private static byte[] inflate(ByteBuffer compressed, int rawLength) throws DataFormatException {
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(compressed);
+                ByteArrayOutputStream out = new ByteArrayOutputStream(rawLength);
+                byte[] chunk = new byte[8192];
+                while (!inflater.finished() && out.size() < rawLength) {
+                    int n = inflater.inflate(chunk);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    out.write(chunk, 0, n);
+                }
+                if (out.size() != rawLength) {
+                    throw new DataFormatException("Inflated " + out.size() + " bytes, expected " + rawLength);
+                }
+                return out.toByteArray();
+            } finally {
+                inflater.end();
+            }
         }
     }
 }